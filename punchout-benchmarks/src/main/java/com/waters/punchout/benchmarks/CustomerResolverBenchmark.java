@@ -0,0 +1,98 @@
+package com.waters.punchout.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.waters.punchout.gateway.converter.config.PunchoutConversionProperties;
+import com.waters.punchout.gateway.converter.resolve.ConversionKey;
+import com.waters.punchout.gateway.converter.resolve.CustomerConfig;
+import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
+import com.waters.punchout.gateway.converter.resolve.MatchCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer resolution against the configured customers padded with synthetic ones.
+ * The synthetic configs go first, so every real sender pays for a scan of the whole list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CustomerResolverBenchmark {
+
+    @Param({"10", "1000"})
+    private int customers;
+
+    private CustomerResolver resolver;
+    private JsonNode[] headers;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        PunchoutConversionProperties properties = GatewayComponents.conversionProperties();
+        List<CustomerConfig> configured = properties.getCustomers();
+
+        List<CustomerConfig> padded = new ArrayList<>();
+        for (int i = 0; padded.size() + configured.size() < customers; i++) {
+            MatchCriteria match = new MatchCriteria();
+            // Alternate the criteria kinds the real configs use
+            switch (i % 3) {
+                case 0:
+                    match.setFromIdentityPattern("synthetic-buyer-" + i);
+                    break;
+                case 1:
+                    match.setFromDomain("SyntheticNetwork" + i);
+                    break;
+                default:
+                    match.setSenderUserAgentPattern(".*Synthetic Client " + i + ".*");
+                    break;
+            }
+            CustomerConfig config = new CustomerConfig();
+            config.setId("synthetic" + i);
+            config.setVersion("v1");
+            config.setMatch(match);
+            padded.add(config);
+        }
+        padded.addAll(configured);
+        properties.setCustomers(padded);
+        resolver = new CustomerResolver(properties);
+
+        XmlMapper xmlMapper = new XmlMapper();
+        List<String> documents = new ArrayList<>(Fixtures.renderedTemplates());
+        for (String converter : Fixtures.converterIds()) {
+            documents.add(Fixtures.setupRequestFor(converter));
+        }
+        List<JsonNode> parsed = new ArrayList<>();
+        for (String document : documents) {
+            try {
+                parsed.add(xmlMapper.readTree(document));
+            } catch (JsonProcessingException e) {
+                // A few sample templates are not well-formed (bare '&'); the gateway rejects those before resolving
+            }
+        }
+        headers = parsed.toArray(new JsonNode[0]);
+    }
+
+    @Benchmark
+    public ConversionKey resolve() {
+        JsonNode root = headers[next];
+        next = next + 1 == headers.length ? 0 : next + 1;
+        return resolver.resolve(root);
+    }
+}
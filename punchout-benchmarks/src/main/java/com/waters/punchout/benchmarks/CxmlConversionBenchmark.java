@@ -0,0 +1,57 @@
+package com.waters.punchout.benchmarks;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.waters.punchout.gateway.converter.CxmlConversionService;
+import com.waters.punchout.gateway.converter.config.PunchoutConversionProperties;
+import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
+import com.waters.punchout.gateway.model.PunchOutRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full PunchOutSetupRequest conversion (parse, dialect, customer resolution, strategy)
+ * once per registered converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CxmlConversionBenchmark {
+
+    @Param({"default", "acme", "techcorp", "global", "ariba", "coupa", "oracle"})
+    private String converter;
+
+    private CxmlConversionService conversionService;
+    private String cxml;
+
+    @Setup
+    public void setup() throws Exception {
+        PunchoutConversionProperties properties = GatewayComponents.conversionProperties();
+        conversionService = GatewayComponents.conversionService(properties);
+        cxml = Fixtures.setupRequestFor(converter);
+
+        // Fail fast if the fixture no longer resolves to the converter under test
+        String resolved = new CustomerResolver(properties).resolve(new XmlMapper().readTree(cxml)).getCustomerId();
+        if (!converter.equals(resolved)) {
+            throw new IllegalStateException("Fixture for " + converter + " resolves to " + resolved);
+        }
+    }
+
+    @Benchmark
+    public PunchOutRequest convertCxmlToRequest() throws Exception {
+        return conversionService.convertCxmlToRequest(cxml);
+    }
+}
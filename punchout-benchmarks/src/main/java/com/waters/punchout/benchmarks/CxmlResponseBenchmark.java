@@ -0,0 +1,60 @@
+package com.waters.punchout.benchmarks;
+
+import com.waters.punchout.common.dto.OrderResponse;
+import com.waters.punchout.gateway.converter.CxmlResponseBuilder;
+import com.waters.punchout.gateway.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cXML response documents returned by the setup and order endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CxmlResponseBenchmark {
+
+    private CxmlResponseBuilder responseBuilder;
+    private String sessionKey;
+    private String catalogUrl;
+    private OrderResponse orderResponse;
+
+    @Setup
+    public void setup() {
+        responseBuilder = new CxmlResponseBuilder();
+        sessionKey = IdGenerator.nextId("SESSION_");
+        catalogUrl = "https://dev.waters.com/catalog?sessionKey=" + sessionKey;
+
+        orderResponse = new OrderResponse();
+        orderResponse.setOrderId("ORD-2025-001");
+        orderResponse.setMuleOrderId("MULE-ORD-2025-001");
+    }
+
+    @Benchmark
+    public String setupResponse() {
+        return responseBuilder.buildSetupResponse(sessionKey, catalogUrl);
+    }
+
+    @Benchmark
+    public String orderResponse() {
+        return responseBuilder.buildOrderResponse(orderResponse);
+    }
+
+    @Benchmark
+    public String errorResponse() {
+        return responseBuilder.buildErrorResponse("Failed to process PunchOut request: Mule request failed");
+    }
+}
@@ -0,0 +1,177 @@
+package com.waters.punchout.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark inputs built from the mongodb-*-sample-data.json files in the repository root,
+ * which the build copies onto the classpath under fixtures/.
+ */
+public final class Fixtures {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Sender identity, credential domain, user agent and required extrinsics that make
+     * CustomerResolver pick each configured converter (see punchout.conversion.customers).
+     */
+    private static final Map<String, String[]> CONVERTER_SENDERS = new LinkedHashMap<>();
+
+    static {
+        CONVERTER_SENDERS.put("default", new String[]{"NetworkID", "CUST001", "Waters Dev Client", ""});
+        CONVERTER_SENDERS.put("acme", new String[]{"NetworkID", "buyer123", "Acme PunchOut Client 2.0",
+                "CostCenter=CC-1001;Department=Research"});
+        CONVERTER_SENDERS.put("techcorp", new String[]{"NetworkID", "buyer456", "TechCorp Procurement Portal",
+                "CompanyCode=TC001;UniqueName=techcorp-dev-user"});
+        CONVERTER_SENDERS.put("global", new String[]{"NetworkID", "buyer789", "Global Procurement 3.1",
+                "Region=EMEA"});
+        CONVERTER_SENDERS.put("ariba", new String[]{"AribaNetworkUserId", "AN01000000001", "Ariba Network 1.0",
+                "UniqueName=ariba-user;AribaNetworkId=AN01000000001"});
+        CONVERTER_SENDERS.put("coupa", new String[]{"NetworkID", "CUST004", "Coupa Procurement 1.0",
+                "requester-email=buyer@coupa.example;requester-login=cbuyer;CoupaVersion=35"});
+        CONVERTER_SENDERS.put("oracle", new String[]{"NetworkID", "CUST005", "Oracle iProcurement 12.2",
+                "OrgId=204;UserId=1318;RespId=50578"});
+    }
+
+    private Fixtures() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static JsonNode load(String name) {
+        String resource = "/fixtures/mongodb-" + name + "-sample-data.json";
+        try (InputStream in = Fixtures.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + resource);
+            }
+            return MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<String> converterIds() {
+        return new ArrayList<>(CONVERTER_SENDERS.keySet());
+    }
+
+    /**
+     * A PunchOutSetupRequest from the first cXML template, re-addressed so it resolves to the
+     * given converter and carries the extrinsics that converter validates.
+     */
+    public static String setupRequestFor(String converterId) {
+        String[] sender = CONVERTER_SENDERS.get(converterId);
+        if (sender == null) {
+            throw new IllegalArgumentException("Unknown converter " + converterId);
+        }
+
+        JsonNode template = load("cxml-templates").get(0);
+        String cxml = render(template, sender[1]);
+        cxml = cxml.replaceAll("domain=\"NetworkID\"", "domain=\"" + sender[0] + "\"");
+        cxml = cxml.replaceAll("<UserAgent>[^<]*</UserAgent>", "<UserAgent>" + sender[2] + "</UserAgent>");
+
+        StringBuilder extrinsics = new StringBuilder();
+        if (!sender[3].isEmpty()) {
+            for (String pair : sender[3].split(";")) {
+                String[] kv = pair.split("=", 2);
+                extrinsics.append("      <Extrinsic name=\"").append(kv[0]).append("\">")
+                        .append(kv[1]).append("</Extrinsic>\n");
+            }
+        }
+        return cxml.replace("      <BrowserFormPost>", extrinsics + "      <BrowserFormPost>");
+    }
+
+    /**
+     * Every cXML template with its placeholders filled in, as sent by the sample customers.
+     */
+    public static List<String> renderedTemplates() {
+        List<String> documents = new ArrayList<>();
+        for (JsonNode template : load("cxml-templates")) {
+            documents.add(render(template, template.path("customerId").asText()));
+        }
+        return documents;
+    }
+
+    /**
+     * Inbound OrderRequest from the order network samples with lineItems ItemOut entries,
+     * cycling through the line items of the sample orders.
+     */
+    public static String orderRequest(int lineItems) {
+        String order = null;
+        for (JsonNode request : load("order-network-requests")) {
+            String body = request.path("requestBody").asText();
+            if (body.contains("<OrderRequest>") && body.contains("<ItemOut")) {
+                order = body;
+                break;
+            }
+        }
+        if (order == null) {
+            throw new IllegalStateException("No OrderRequest with line items in order-network-requests");
+        }
+
+        List<JsonNode> sampleItems = new ArrayList<>();
+        load("orders").forEach(o -> o.path("items").forEach(sampleItems::add));
+
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < lineItems; i++) {
+            JsonNode item = sampleItems.get(i % sampleItems.size());
+            items.append("      <ItemOut quantity=\"").append(item.path("quantity").asInt(1))
+                    .append("\" lineNumber=\"").append(i + 1).append("\">\n")
+                    .append("        <ItemID><SupplierPartID>").append(escape(item.path("supplierPartId").asText()))
+                    .append("</SupplierPartID></ItemID>\n")
+                    .append("        <ItemDetail>\n")
+                    .append("          <UnitPrice><Money currency=\"").append(item.path("currency").asText("USD"))
+                    .append("\">").append(item.path("unitPrice").path("$numberDecimal").asText("0"))
+                    .append("</Money></UnitPrice>\n")
+                    .append("          <Description xml:lang=\"en\">").append(escape(item.path("description").asText()))
+                    .append("</Description>\n")
+                    .append("          <UnitOfMeasure>").append(item.path("uom").asText("EA")).append("</UnitOfMeasure>\n")
+                    .append("        </ItemDetail>\n")
+                    .append("      </ItemOut>\n");
+        }
+
+        int start = order.indexOf("<ItemOut");
+        int end = order.lastIndexOf("</ItemOut>") + "</ItemOut>".length();
+        return order.substring(0, order.lastIndexOf('\n', start) + 1) + items
+                + order.substring(order.indexOf('\n', end) + 1);
+    }
+
+    /**
+     * Request and response bodies captured in the network request samples, filtered by the
+     * first character of the payload ('<' for cXML, '{' for JSON).
+     */
+    public static List<String> networkBodies(char firstChar) {
+        List<String> bodies = new ArrayList<>();
+        for (String name : new String[]{"network-requests", "order-network-requests", "invoice-network-requests"}) {
+            for (JsonNode request : load(name)) {
+                for (String field : new String[]{"requestBody", "responseBody"}) {
+                    String body = request.path(field).asText("").trim();
+                    if (!body.isEmpty() && body.charAt(0) == firstChar) {
+                        bodies.add(body);
+                    }
+                }
+            }
+        }
+        return bodies;
+    }
+
+    private static String render(JsonNode template, String buyerId) {
+        return template.path("cxmlTemplate").asText()
+                .replace("{{PAYLOAD_ID}}", "1700000000000.1234@waters.com")
+                .replace("{{TIMESTAMP}}", "2025-11-09T09:45:30Z")
+                .replace("{{BUYER_ID}}", buyerId)
+                .replace("{{DOMAIN}}", "waters.com")
+                .replace("{{SESSION_KEY}}", "SESSION_DEV_" + buyerId + "_1700000000")
+                .replace("{{CUSTOMER_NAME}}", template.path("customerName").asText());
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;");
+    }
+}
@@ -0,0 +1,79 @@
+package com.waters.punchout.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waters.punchout.gateway.converter.CxmlConversionService;
+import com.waters.punchout.gateway.converter.CxmlOrderConverter;
+import com.waters.punchout.gateway.converter.config.PunchoutConversionProperties;
+import com.waters.punchout.gateway.converter.dialect.DialectDetector;
+import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
+import com.waters.punchout.gateway.converter.sniff.CxmlHeaderSniffer;
+import com.waters.punchout.gateway.converter.strategy.ConverterRegistry;
+import com.waters.punchout.gateway.converter.strategy.customers.AcmeV1Converter;
+import com.waters.punchout.gateway.converter.strategy.customers.AribaV1Converter;
+import com.waters.punchout.gateway.converter.strategy.customers.CoupaV1Converter;
+import com.waters.punchout.gateway.converter.strategy.customers.DefaultV1Converter;
+import com.waters.punchout.gateway.converter.strategy.customers.GlobalV1Converter;
+import com.waters.punchout.gateway.converter.strategy.customers.OracleV1Converter;
+import com.waters.punchout.gateway.converter.strategy.customers.TechCorpV2Converter;
+import com.waters.punchout.gateway.converter.validation.CxmlDtdValidator;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Wires the gateway conversion components by hand, bound to the customer configuration in
+ * the gateway's application.yml, so benchmarks measure the code and not a Spring context.
+ */
+public final class GatewayComponents {
+
+    private static final String ENVIRONMENT = "dev";
+
+    private GatewayComponents() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static PunchoutConversionProperties conversionProperties() {
+        try {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                    .load("application", new ClassPathResource("application.yml"));
+            return new Binder(ConfigurationPropertySources.from(sources.get(0)))
+                    .bind("punchout.conversion", PunchoutConversionProperties.class)
+                    .orElseGet(PunchoutConversionProperties::new);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static CxmlConversionService conversionService(PunchoutConversionProperties properties) {
+        CustomerResolver resolver = new CustomerResolver(properties);
+        ConverterRegistry registry = new ConverterRegistry(Arrays.asList(
+                new DefaultV1Converter(),
+                new AcmeV1Converter(),
+                new TechCorpV2Converter(),
+                new GlobalV1Converter(),
+                new AribaV1Converter(),
+                new CoupaV1Converter(),
+                new OracleV1Converter()));
+        return new CxmlConversionService(new DialectDetector(), resolver, registry,
+                dtdValidator(properties, resolver));
+    }
+
+    public static CxmlOrderConverter orderConverter(PunchoutConversionProperties properties) {
+        return new CxmlOrderConverter(dtdValidator(properties, new CustomerResolver(properties)));
+    }
+
+    public static ObjectMapper objectMapper() {
+        return new ObjectMapper().findAndRegisterModules();
+    }
+
+    private static CxmlDtdValidator dtdValidator(PunchoutConversionProperties properties, CustomerResolver resolver) {
+        return new CxmlDtdValidator(properties, new CxmlHeaderSniffer(), resolver, ENVIRONMENT);
+    }
+}
@@ -0,0 +1,56 @@
+package com.waters.punchout.benchmarks;
+
+import com.waters.punchout.gateway.util.SecurityUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Secret masking as applied to every logged request and response body, cycling through
+ * the captured network payloads of one format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MaskSecretsBenchmark {
+
+    @Param({"cxml", "json"})
+    private String format;
+
+    private String[] bodies;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<String> samples = new ArrayList<>();
+        if ("cxml".equals(format)) {
+            samples.addAll(Fixtures.networkBodies('<'));
+            samples.addAll(Fixtures.renderedTemplates());
+        } else {
+            samples.addAll(Fixtures.networkBodies('{'));
+        }
+        bodies = samples.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public String maskSecrets() {
+        String body = bodies[next];
+        next = next + 1 == bodies.length ? 0 : next + 1;
+        return SecurityUtil.maskSecrets(body);
+    }
+}
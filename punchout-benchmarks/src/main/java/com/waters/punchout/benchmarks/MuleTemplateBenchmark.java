@@ -0,0 +1,60 @@
+package com.waters.punchout.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.waters.punchout.gateway.model.PunchOutRequest;
+import com.waters.punchout.gateway.service.MuleTemplateRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of an onboarded customer's targetJson into the Mule payload, as done by
+ * PunchOutOrchestrationService for every setup request of a deployed customer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MuleTemplateBenchmark {
+
+    private MuleTemplateRenderer renderer;
+    private String targetJson;
+    private PunchOutRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        renderer = new MuleTemplateRenderer(GatewayComponents.objectMapper());
+
+        JsonNode onboarding = null;
+        for (JsonNode candidate : Fixtures.load("customer-onboarding")) {
+            if (candidate.path("deployed").asBoolean()) {
+                onboarding = candidate;
+                break;
+            }
+        }
+        if (onboarding == null) {
+            throw new IllegalStateException("No deployed onboarding in customer-onboarding fixtures");
+        }
+
+        targetJson = onboarding.path("targetJson").asText();
+        request = GatewayComponents.conversionService(GatewayComponents.conversionProperties())
+                .convertCxmlToRequest(onboarding.path("sampleCxml").asText());
+    }
+
+    @Benchmark
+    public Map<String, Object> render() throws Exception {
+        return renderer.render(targetJson, request);
+    }
+}
@@ -0,0 +1,51 @@
+package com.waters.punchout.benchmarks;
+
+import com.waters.punchout.gateway.converter.CxmlOrderConverter;
+import com.waters.punchout.gateway.entity.OrderDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderRequest to OrderDocument conversion across order sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class OrderConversionBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int lineItems;
+
+    private CxmlOrderConverter orderConverter;
+    private String cxml;
+
+    @Setup
+    public void setup() throws Exception {
+        orderConverter = GatewayComponents.orderConverter(GatewayComponents.conversionProperties());
+        cxml = Fixtures.orderRequest(lineItems);
+
+        int converted = orderConverter.convertCxmlToOrder(cxml).getItems().size();
+        if (converted != lineItems) {
+            throw new IllegalStateException("Expected " + lineItems + " line items, converted " + converted);
+        }
+    }
+
+    @Benchmark
+    public OrderDocument convertCxmlToOrder() throws Exception {
+        return orderConverter.convertCxmlToOrder(cxml);
+    }
+}
@@ -1,7 +1,19 @@
 package com.waters.punchout.converter;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
 public interface CxmlConverter {
     Object convert(String cxmlContent, String documentType);
     boolean supports(String customerId);
     String getCustomerId();
+
+    /**
+     * Converts the document straight into a caller-supplied generator.
+     * Converters should override this to skip building an intermediate Map.
+     */
+    default void convert(String cxmlContent, String documentType, JsonGenerator generator) throws IOException {
+        generator.writeObject(convert(cxmlContent, documentType));
+    }
 }
@@ -0,0 +1,74 @@
+package com.waters.punchout.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceData {
+    private Header header;
+    private List<LineItem> lineItems;
+    private Summary summary;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Header {
+        private String payloadId;
+        private String invoiceNumber;
+        private String purpose;
+        private String operation;
+        private LocalDateTime invoiceDate;
+        private String fromIdentity;
+        private String toIdentity;
+        private String senderIdentity;
+        private String paymentTerms;
+        private String comments;
+        private Map<String, Object> billTo;
+        private Map<String, Object> shipTo;
+        private Map<String, Object> remitTo;
+        private Map<String, String> extrinsics;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineItem {
+        private Integer lineNumber;
+        private Integer referenceLineNumber;
+        private String orderId;
+        private String supplierPartId;
+        private String description;
+        private BigDecimal quantity;
+        private String uom;
+        private BigDecimal unitPrice;
+        private BigDecimal extendedAmount;
+        private String currency;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Summary {
+        private BigDecimal subtotal;
+        private BigDecimal taxAmount;
+        private BigDecimal shippingAmount;
+        private BigDecimal specialHandlingAmount;
+        private BigDecimal grossAmount;
+        private BigDecimal netAmount;
+        private BigDecimal dueAmount;
+        private String currency;
+    }
+}
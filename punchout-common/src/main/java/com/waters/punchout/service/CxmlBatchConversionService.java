@@ -0,0 +1,16 @@
+package com.waters.punchout.service;
+
+import com.waters.punchout.model.CxmlRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+public interface CxmlBatchConversionService {
+
+    /**
+     * Converts the requests in parallel and writes one NDJSON result line per request,
+     * in input order, to the given stream. Returns the number of items processed.
+     */
+    int convertBatch(Iterator<CxmlRequest> requests, OutputStream out) throws IOException;
+}
@@ -1,8 +1,15 @@
 package com.waters.punchout.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.waters.punchout.model.CxmlRequest;
 import com.waters.punchout.model.ConversionResponse;
 
 public interface CxmlConversionService {
     ConversionResponse convertCxml(CxmlRequest request);
+
+    /**
+     * Converts the request and writes the converted data into the given generator.
+     * The returned response carries the status only; its data is always null.
+     */
+    ConversionResponse convertCxml(CxmlRequest request, JsonGenerator dataGenerator);
 }
@@ -0,0 +1,87 @@
+package com.waters.punchout.gateway.bulkhead;
+
+import com.waters.punchout.gateway.config.BulkheadProperties;
+import com.waters.punchout.gateway.exception.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A semaphore with a bounded wait line: callers beyond maxWaiting, or still waiting after
+ * maxWait, are rejected instead of holding a servlet thread.
+ */
+class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Counter rejected;
+    private final Timer waitTimer;
+
+    Bulkhead(String type, String name, BulkheadProperties.Limit limit, MeterRegistry meterRegistry) {
+        this.name = type + ":" + name;
+        this.maxConcurrent = limit.getMaxConcurrent();
+        this.maxWaiting = limit.getMaxWaiting();
+        this.maxWaitNanos = limit.getMaxWait().toNanos();
+        this.permits = new Semaphore(maxConcurrent);
+
+        Gauge.builder("punchout.bulkhead.active", this, b -> b.maxConcurrent - b.permits.availablePermits())
+                .tag("type", type).tag("name", name)
+                .description("Requests holding a bulkhead slot")
+                .register(meterRegistry);
+        Gauge.builder("punchout.bulkhead.waiting", waiting, AtomicInteger::get)
+                .tag("type", type).tag("name", name)
+                .description("Requests waiting for a bulkhead slot")
+                .register(meterRegistry);
+        Gauge.builder("punchout.bulkhead.max", this, b -> b.maxConcurrent)
+                .tag("type", type).tag("name", name)
+                .description("Bulkhead slots")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("punchout.bulkhead.rejected")
+                .tag("type", type).tag("name", name)
+                .description("Requests rejected by a full bulkhead")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("punchout.bulkhead.wait")
+                .tag("type", type).tag("name", name)
+                .description("Time spent waiting for a bulkhead slot")
+                .register(meterRegistry);
+    }
+
+    void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new BulkheadFullException(name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new BulkheadFullException(name);
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+}
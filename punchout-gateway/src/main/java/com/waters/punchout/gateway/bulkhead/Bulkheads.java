@@ -0,0 +1,89 @@
+package com.waters.punchout.gateway.bulkhead;
+
+import com.waters.punchout.gateway.config.BulkheadProperties;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulkheads keyed by request-size class and by normalised environment, so a burst of
+ * large orders or a hung environment only uses up its own slots.
+ *
+ * <pre>
+ * try (Bulkheads.Permit envPermit = bulkheads.enterEnvironment(environment);
+ *      Bulkheads.Permit sizePermit = bulkheads.enterSizeClass(cxml.length())) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * The environment permit is taken first. Size classes are shared by all environments,
+ * so a request must not hold one while it waits for a hung environment.
+ */
+@Component
+@Slf4j
+public class Bulkheads {
+
+    private static final Permit NO_PERMIT = () -> { };
+
+    private final BulkheadProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Map.Entry<String, BulkheadProperties.SizeClass>> sizeClasses;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public Bulkheads(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.sizeClasses = new ArrayList<>(properties.getSizeClasses().entrySet());
+        this.sizeClasses.sort(Comparator.comparing(e -> e.getValue().getMaxBytes(),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        log.info("Bulkheads enabled={}, size classes={}, environments={}", properties.isEnabled(),
+                properties.getSizeClasses().keySet(), properties.getEnvironments().keySet());
+    }
+
+    public Permit enterSizeClass(long payloadBytes) {
+        if (!properties.isEnabled() || sizeClasses.isEmpty()) {
+            return NO_PERMIT;
+        }
+        Map.Entry<String, BulkheadProperties.SizeClass> sizeClass = sizeClasses.get(sizeClasses.size() - 1);
+        for (Map.Entry<String, BulkheadProperties.SizeClass> candidate : sizeClasses) {
+            Long maxBytes = candidate.getValue().getMaxBytes();
+            if (maxBytes == null || payloadBytes <= maxBytes) {
+                sizeClass = candidate;
+                break;
+            }
+        }
+        return enter("size", sizeClass.getKey(), sizeClass.getValue());
+    }
+
+    public Permit enterEnvironment(String environment) {
+        if (!properties.isEnabled()) {
+            return NO_PERMIT;
+        }
+        // Unknown or missing environments share the default environment's bulkhead
+        String normalized = EnvironmentUtil.isValid(environment) ? EnvironmentUtil.normalize(environment) : "dev";
+        return enter("environment", normalized, properties.environmentLimit(normalized));
+    }
+
+    private Permit enter(String type, String name, BulkheadProperties.Limit limit) {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(type + ":" + name,
+                key -> new Bulkhead(type, name, limit, meterRegistry));
+        bulkhead.acquire();
+        return bulkhead::release;
+    }
+
+    /**
+     * A held bulkhead slot, released on close.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -1,6 +1,9 @@
 package com.waters.punchout.gateway.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waters.punchout.gateway.deadline.Deadline;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.exception.DeadlineExceededException;
 import com.waters.punchout.gateway.logging.NetworkRequestLogger;
 import com.waters.punchout.gateway.metrics.MetricsService;
 import com.waters.punchout.gateway.model.PunchOutRequest;
@@ -8,13 +11,11 @@ import com.waters.punchout.gateway.service.AuthTokenCacheService;
 import com.waters.punchout.gateway.service.EnvironmentConfigService;
 import com.waters.punchout.gateway.util.EnvironmentUtil;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.util.HashMap;
@@ -25,7 +26,8 @@ import java.util.Map;
 @Slf4j
 public class AuthServiceClient {
 
-    private final WebClient webClient;
+    private final DownstreamWebClients webClients;
+    private final DownstreamRetry downstreamRetry;
     private final NetworkRequestLogger networkRequestLogger;
     private final ObjectMapper objectMapper;
     private final EnvironmentConfigService environmentConfigService;
@@ -36,14 +38,16 @@ public class AuthServiceClient {
     private String currentEnvironment;
 
     public AuthServiceClient(
-            WebClient.Builder webClientBuilder,
+            DownstreamWebClients webClients,
+            DownstreamRetry downstreamRetry,
             NetworkRequestLogger networkRequestLogger,
             ObjectMapper objectMapper,
             EnvironmentConfigService environmentConfigService,
             AuthTokenCacheService authTokenCacheService,
             MetricsService metricsService
     ) {
-        this.webClient = webClientBuilder.build();
+        this.webClients = webClients;
+        this.downstreamRetry = downstreamRetry;
         this.networkRequestLogger = networkRequestLogger;
         this.objectMapper = objectMapper;
         this.environmentConfigService = environmentConfigService;
@@ -63,29 +67,26 @@ public class AuthServiceClient {
         return getAuthToken(request, environment);
     }
 
-    @Retry(name = "authService")
     @CircuitBreaker(name = "authService")
     public String getAuthToken(PunchOutRequest request, String environment) {
         String authUrl = environmentConfigService.getAuthServiceUrl(environment);
         
-        // Check if using Waters auth (email/password based) - only these can be cached
+        // Check if using Waters auth (email/password based) - only these can be shared
         boolean isWatersAuth = authUrl != null && authUrl.contains("waters.com");
-        String cachedToken = null;
         
         if (isWatersAuth) {
             String email = environmentConfigService.getAuthEmail(environment);
-            cachedToken = authTokenCacheService.getCachedToken(environment, email);
-            
-            if (cachedToken != null) {
-                log.info("Using cached auth token for sessionKey={}, environment={}", 
-                        request.getSessionKey(), environment);
-                metricsService.recordCacheAccess("authTokens", true);
-                return cachedToken;
-            } else {
-                metricsService.recordCacheAccess("authTokens", false);
-            }
+            String token = authTokenCacheService.getToken(environment, email,
+                    () -> requestAuthToken(request, environment, authUrl));
+            log.debug("Using shared auth token for sessionKey={}, environment={}",
+                    request.getSessionKey(), environment);
+            return token;
         }
         
+        return requestAuthToken(request, environment, authUrl);
+    }
+
+    private String requestAuthToken(PunchOutRequest request, String environment, String authUrl) {
         log.info("Requesting auth token for sessionKey={}, environment={}, url={}", 
                 request.getSessionKey(), environment, authUrl);
         
@@ -106,12 +107,14 @@ public class AuthServiceClient {
             
             Map<String, String> responseHeadersMap = new HashMap<>();
             
-            var responseEntity = webClient.post()
+            Deadline deadline = DeadlineContext.current();
+            deadline.check("auth token request");
+            var responseEntity = deadline.bound(downstreamRetry.withRetry(webClients.get(environment, DownstreamWebClients.AUTH).post()
                     .uri(authUrl)
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(payload)
                     .retrieve()
-                    .toEntity(String.class)
+                    .toEntity(String.class), environment, DownstreamWebClients.AUTH), "auth token request")
                     .block();
             
             statusCode = responseEntity.getStatusCode().value();
@@ -148,16 +151,12 @@ public class AuthServiceClient {
             
             log.info("Successfully obtained auth token for sessionKey={}", request.getSessionKey());
             
-            // Cache token if using Waters auth
-            if (isWatersAuth && token != null) {
-                String email = environmentConfigService.getAuthEmail(environment);
-                authTokenCacheService.cacheToken(environment, email, token);
-            }
-            
             // Log successful request with complete headers
             long duration = System.currentTimeMillis() - startTime;
             networkRequestLogger.logOutboundRequest(
                     request.getSessionKey(),
+                    environment,
+                    request.customerIdentifier(),
                     "Punchout Gateway",
                     "Auth Service",
                     "POST",
@@ -197,6 +196,8 @@ public class AuthServiceClient {
             
             networkRequestLogger.logOutboundRequest(
                     request.getSessionKey(),
+                    environment,
+                    request.customerIdentifier(),
                     "Punchout Gateway",
                     "Auth Service",
                     "POST",
@@ -229,6 +230,8 @@ public class AuthServiceClient {
             
             networkRequestLogger.logOutboundRequest(
                     request.getSessionKey(),
+                    environment,
+                    request.customerIdentifier(),
                     "Punchout Gateway",
                     "Auth Service",
                     "POST",
@@ -244,6 +247,10 @@ public class AuthServiceClient {
                     errorMessage
             );
             
+            if (e instanceof DeadlineExceededException) {
+                log.warn("Auth token request for sessionKey={} abandoned: {}", request.getSessionKey(), e.getMessage());
+                throw (DeadlineExceededException) e;
+            }
             log.error("Unexpected error while getting auth token: {}", errorMessage, e);
             throw new RuntimeException("Failed to get auth token: " + e.getMessage(), e);
         }
@@ -0,0 +1,92 @@
+package com.waters.punchout.gateway.client;
+
+import com.waters.punchout.gateway.config.HttpClientPoolProperties;
+import com.waters.punchout.gateway.entity.EnvironmentConfig;
+import com.waters.punchout.gateway.service.EnvironmentConfigService;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Opens pooled connections to the Auth and Mule services of every enabled environment
+ * once the context has started and before it reports ready, so the first setups after
+ * a deploy do not pay for TCP and TLS handshakes. Startup waits at most
+ * punchout.http-client.preconnect.timeout; slower environments finish in the background.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConnectionPreconnector {
+
+    private final DownstreamWebClients webClients;
+    private final EnvironmentConfigService environmentConfigService;
+    private final HttpClientPoolProperties properties;
+
+    @Value("${app.environment:dev}")
+    private String currentEnvironment;
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(2)
+    public void preconnect() {
+        if (!properties.getPreconnect().isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CompletableFuture<Integer> opened = Mono.fromCallable(this::environments)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(environment -> Flux.merge(
+                        preconnect(environment, DownstreamWebClients.AUTH, environmentConfigService.getAuthServiceUrl(environment)),
+                        preconnect(environment, DownstreamWebClients.MULE, environmentConfigService.getMuleServiceUrl(environment))))
+                .reduce(0, Integer::sum)
+                .onErrorResume(e -> {
+                    log.warn("Connection pre-connect failed: {}", e.getMessage());
+                    return Mono.just(0);
+                })
+                .toFuture();
+        try {
+            Integer count = opened.get(properties.getPreconnect().getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Pre-connected {} downstream connections in {} ms", count, System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            log.warn("Connection pre-connect still running after {}; continuing startup",
+                    properties.getPreconnect().getTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Connection pre-connect failed: {}", e.getMessage());
+        }
+    }
+
+    private Mono<Integer> preconnect(String environment, String service, String url) {
+        if (url == null) {
+            return Mono.just(0);
+        }
+        return webClients.preconnect(environment, service, url);
+    }
+
+    private Set<String> environments() {
+        Set<String> environments = new LinkedHashSet<>();
+        environments.add(EnvironmentUtil.normalize(currentEnvironment));
+        for (EnvironmentConfig config : environmentConfigService.getAllConfigs()) {
+            if (Boolean.TRUE.equals(config.getEnabled()) && EnvironmentUtil.isValid(config.getEnvironment())) {
+                environments.add(EnvironmentUtil.normalize(config.getEnvironment()));
+            }
+        }
+        return environments;
+    }
+}
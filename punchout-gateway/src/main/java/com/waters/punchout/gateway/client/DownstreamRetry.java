@@ -0,0 +1,120 @@
+package com.waters.punchout.gateway.client;
+
+import com.waters.punchout.gateway.config.RetryProperties;
+import com.waters.punchout.gateway.deadline.Deadline;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retries downstream calls inside the reactive chain: the backoff is a timer on the
+ * Reactor scheduler, so no thread sleeps between attempts. Only connection-level
+ * failures (no HTTP response) and timeouts are retried, never past the request
+ * deadline, and only while the downstream's {@link RetryBudget} allows.
+ *
+ * Meters punchout.downstream.retries{service,environment,outcome} where outcome is
+ * retried, budget-exhausted, deadline or attempts-exhausted, and
+ * punchout.downstream.retry.budget with the tokens left.
+ */
+@Component
+@Slf4j
+public class DownstreamRetry {
+
+    private final RetryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Downstream> downstreams = new ConcurrentHashMap<>();
+
+    public DownstreamRetry(RetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> withRetry(Mono<T> call, String environment, String service) {
+        Downstream downstream = downstreams.computeIfAbsent(service + "-" + environment,
+                name -> new Downstream(environment, service));
+        // Retry decisions run on Reactor threads, which do not carry the request's deadline
+        Deadline deadline = DeadlineContext.current();
+        // One deposit per logical call: retryWhen resubscribes to call, not to this defer
+        return Mono.defer(() -> {
+            downstream.budget.deposit();
+            return call.retryWhen(retry(downstream, deadline));
+        });
+    }
+
+    private Retry retry(Downstream downstream, Deadline deadline) {
+        int maxRetries = properties.getMaxAttempts() - 1;
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (!isRetryable(failure)) {
+                return Mono.error(failure);
+            }
+            if (signal.totalRetries() >= maxRetries) {
+                downstream.count("attempts-exhausted");
+                return Mono.error(failure);
+            }
+            Duration backoff = backoff(signal.totalRetries());
+            if (deadline.remaining().compareTo(backoff) <= 0) {
+                downstream.count("deadline");
+                return Mono.error(failure);
+            }
+            if (!downstream.budget.tryWithdraw()) {
+                downstream.count("budget-exhausted");
+                log.debug("Retry budget of {} spent, not retrying: {}", downstream.name, failure.getMessage());
+                return Mono.error(failure);
+            }
+            downstream.count("retried");
+            log.debug("Retrying {} in {} ms (retry {}): {}", downstream.name, backoff.toMillis(),
+                    signal.totalRetries() + 1, failure.getMessage());
+            return Mono.delay(backoff);
+        }));
+    }
+
+    private Duration backoff(long retriesSoFar) {
+        long base = properties.getBaseBackoff().toMillis();
+        long ceiling = Math.min(properties.getMaxBackoff().toMillis(), base << Math.min(retriesSoFar, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private static boolean isRetryable(Throwable failure) {
+        Throwable cause = Exceptions.unwrap(failure);
+        return cause instanceof WebClientRequestException || cause instanceof TimeoutException;
+    }
+
+    private final class Downstream {
+        private final String name;
+        private final String environment;
+        private final String service;
+        private final RetryBudget budget = new RetryBudget(properties.getBudget());
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+        private Downstream(String environment, String service) {
+            this.name = service + "-" + environment;
+            this.environment = environment;
+            this.service = service;
+            Gauge.builder("punchout.downstream.retry.budget", budget, RetryBudget::getBalance)
+                    .tag("service", service).tag("environment", environment)
+                    .description("Retries the downstream's retry budget still allows")
+                    .register(meterRegistry);
+        }
+
+        private void count(String outcome) {
+            counters.computeIfAbsent(outcome, o -> Counter.builder("punchout.downstream.retries")
+                    .tag("service", service).tag("environment", environment).tag("outcome", o)
+                    .description("Retry decisions for failed downstream calls")
+                    .register(meterRegistry)).increment();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.waters.punchout.gateway.client;
+
+import com.waters.punchout.gateway.config.HttpClientPoolProperties;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebClients for the downstream services, one connection pool per environment and
+ * service, so a slow Mule in one environment cannot hold the connections another
+ * environment needs. Pools are named "{service}-{environment}" and publish the
+ * reactor.netty.connection.provider.* gauges to Micrometer.
+ */
+@Component
+@Slf4j
+public class DownstreamWebClients implements DisposableBean {
+
+    public static final String AUTH = "auth";
+    public static final String MULE = "mule";
+
+    private final WebClient.Builder webClientBuilder;
+    private final HttpClientPoolProperties properties;
+    private final Map<String, Downstream> downstreams = new ConcurrentHashMap<>();
+
+    public DownstreamWebClients(WebClient.Builder webClientBuilder, HttpClientPoolProperties properties) {
+        this.webClientBuilder = webClientBuilder;
+        this.properties = properties;
+    }
+
+    public WebClient get(String environment, String service) {
+        return downstream(environment, service).webClient;
+    }
+
+    /**
+     * Opens the configured number of connections to the given URL by sending that many
+     * concurrent HEAD requests; any HTTP response leaves a kept-alive connection in the pool.
+     */
+    public Mono<Integer> preconnect(String environment, String service, String url) {
+        Downstream downstream = downstream(environment, service);
+        int connections = downstream.pool.getPreconnectConnections();
+        return Flux.range(0, connections)
+                .flatMap(i -> downstream.webClient.method(HttpMethod.HEAD)
+                        .uri(url)
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(1))
+                        .onErrorResume(e -> {
+                            log.debug("Pre-connect to {} for {} failed: {}", url, downstream.name, e.getMessage());
+                            return Mono.just(0);
+                        }), connections)
+                .reduce(0, Integer::sum);
+    }
+
+    private Downstream downstream(String environment, String service) {
+        return downstreams.computeIfAbsent(service + "-" + environment,
+                name -> create(name, properties.resolve(environment, service)));
+    }
+
+    private Downstream create(String name, HttpClientPoolProperties.Pool pool) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true)
+                .build();
+
+        long responseTimeoutMs = properties.getResponseTimeout().toMillis();
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout())
+                .doOnConnected(conn ->
+                    conn.addHandlerLast(new ReadTimeoutHandler(responseTimeoutMs, TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(responseTimeoutMs, TimeUnit.MILLISECONDS))
+                );
+        if (Boolean.TRUE.equals(pool.getHttp2())) {
+            httpClient = httpClient.protocol(HttpProtocol.HTTP11, HttpProtocol.H2);
+        }
+
+        log.info("Created connection pool {}: maxConnections={}, pendingAcquireMaxCount={}, http2={}",
+                name, pool.getMaxConnections(), pool.getPendingAcquireMaxCount(), pool.getHttp2());
+
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        return new Downstream(name, pool, provider, webClient);
+    }
+
+    @Override
+    public void destroy() {
+        downstreams.values().forEach(d -> d.provider.disposeLater().block(Duration.ofSeconds(5)));
+    }
+
+    private static final class Downstream {
+        private final String name;
+        private final HttpClientPoolProperties.Pool pool;
+        private final ConnectionProvider provider;
+        private final WebClient webClient;
+
+        private Downstream(String name, HttpClientPoolProperties.Pool pool, ConnectionProvider provider, WebClient webClient) {
+            this.name = name;
+            this.pool = pool;
+            this.provider = provider;
+            this.webClient = webClient;
+        }
+    }
+}
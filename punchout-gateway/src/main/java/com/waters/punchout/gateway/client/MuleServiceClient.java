@@ -1,16 +1,18 @@
 package com.waters.punchout.gateway.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waters.punchout.gateway.deadline.Deadline;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.exception.DeadlineExceededException;
 import com.waters.punchout.gateway.logging.NetworkRequestLogger;
 import com.waters.punchout.gateway.service.EnvironmentConfigService;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.util.HashMap;
@@ -20,7 +22,8 @@ import java.util.Map;
 @Slf4j
 public class MuleServiceClient {
 
-    private final WebClient webClient;
+    private final DownstreamWebClients webClients;
+    private final DownstreamRetry downstreamRetry;
     private final NetworkRequestLogger networkRequestLogger;
     private final ObjectMapper objectMapper;
     private final EnvironmentConfigService environmentConfigService;
@@ -29,24 +32,26 @@ public class MuleServiceClient {
     private String currentEnvironment;
 
     public MuleServiceClient(
-            WebClient.Builder webClientBuilder,
+            DownstreamWebClients webClients,
+            DownstreamRetry downstreamRetry,
             NetworkRequestLogger networkRequestLogger,
             ObjectMapper objectMapper,
             EnvironmentConfigService environmentConfigService
     ) {
-        this.webClient = webClientBuilder.build();
+        this.webClients = webClients;
+        this.downstreamRetry = downstreamRetry;
         this.networkRequestLogger = networkRequestLogger;
         this.objectMapper = objectMapper;
         this.environmentConfigService = environmentConfigService;
     }
 
     public Map<String, Object> sendMuleRequest(Map<String, Object> payload, String token, String sessionKey) {
-        return sendMuleRequest(payload, token, sessionKey, currentEnvironment);
+        return sendMuleRequest(payload, token, sessionKey, EnvironmentUtil.normalize(currentEnvironment), null);
     }
 
-    @Retry(name = "muleService")
     @CircuitBreaker(name = "muleService")
-    public Map<String, Object> sendMuleRequest(Map<String, Object> payload, String token, String sessionKey, String environment) {
+    public Map<String, Object> sendMuleRequest(Map<String, Object> payload, String token, String sessionKey,
+                                               String environment, String customer) {
         String muleUrl = environmentConfigService.getMuleServiceUrl(environment);
         log.info("Sending Mule request for sessionKey={}, environment={}, url={}", 
                 sessionKey, environment, muleUrl);
@@ -69,13 +74,15 @@ public class MuleServiceClient {
             
             Map<String, String> responseHeadersMap = new HashMap<>();
             
-            var responseEntity = webClient.post()
+            Deadline deadline = DeadlineContext.current();
+            deadline.check("Mule request");
+            var responseEntity = deadline.bound(downstreamRetry.withRetry(webClients.get(environment, DownstreamWebClients.MULE).post()
                     .uri(muleUrl)
                     .contentType(MediaType.APPLICATION_JSON)
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                     .bodyValue(payload)
                     .retrieve()
-                    .toEntity(Map.class)
+                    .toEntity(Map.class), environment, DownstreamWebClients.MULE), "Mule request")
                     .block();
             
             Map<String, Object> response = responseEntity.getBody();
@@ -94,6 +101,8 @@ public class MuleServiceClient {
             // Log with response headers
             networkRequestLogger.logOutboundRequest(
                     sessionKey,
+                    environment,
+                    customer,
                     "Punchout Gateway",
                     "Catalog Service",
                     "POST",
@@ -125,6 +134,8 @@ public class MuleServiceClient {
             long duration = System.currentTimeMillis() - startTime;
             networkRequestLogger.logOutboundRequest(
                     sessionKey,
+                    environment,
+                    customer,
                     "Punchout Gateway",
                     "Mule Service",
                     "POST",
@@ -149,6 +160,8 @@ public class MuleServiceClient {
             long duration = System.currentTimeMillis() - startTime;
             networkRequestLogger.logOutboundRequest(
                     sessionKey,
+                    environment,
+                    customer,
                     "Punchout Gateway",
                     "Mule Service",
                     "POST",
@@ -164,6 +177,10 @@ public class MuleServiceClient {
                     errorMessage
             );
             
+            if (e instanceof DeadlineExceededException) {
+                log.warn("Mule request for sessionKey={} abandoned: {}", sessionKey, e.getMessage());
+                throw (DeadlineExceededException) e;
+            }
             log.error("Unexpected error while getting Mule response: {}", errorMessage, e);
             throw new RuntimeException("Failed to get Mule response: " + e.getMessage(), e);
         }
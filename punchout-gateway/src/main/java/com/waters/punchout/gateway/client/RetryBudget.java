@@ -0,0 +1,50 @@
+package com.waters.punchout.gateway.client;
+
+import com.waters.punchout.gateway.config.RetryProperties;
+
+/**
+ * Token bucket shared by all calls to one downstream. Each call deposits ratio tokens,
+ * time adds minPerSecond, and each retry needs a whole token; when a downstream is
+ * failing the bucket drains and further retries are refused instead of multiplying load.
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxBalance;
+
+    private double balance;
+    private long lastRefillNanos = System.nanoTime();
+
+    RetryBudget(RetryProperties.Budget budget) {
+        this.ratio = budget.getRatio();
+        this.minPerSecond = budget.getMinPerSecond();
+        this.maxBalance = budget.getMaxBalance();
+        this.balance = Math.min(maxBalance, minPerSecond);
+    }
+
+    synchronized void deposit() {
+        refill();
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        refill();
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+
+    synchronized double getBalance() {
+        refill();
+        return balance;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        balance = Math.min(maxBalance, balance + (now - lastRefillNanos) / 1e9 * minPerSecond);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,303 @@
+package com.waters.punchout.gateway.coherence;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.waters.punchout.gateway.config.CacheCoherenceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps in-process caches of MongoDB collections coherent across replicas.
+ *
+ * One daemon thread per watched collection follows its change stream and passes every
+ * insert, update, replace and delete to the collection's {@link CacheInvalidationListener}s.
+ * The resume token of the last event is kept, so a stream that fails is reopened where it
+ * left off; if that position is no longer in the oplog the caches are reset instead.
+ * Where change streams are unavailable (standalone MongoDB, or repeated failures) the
+ * thread polls the collection instead and reports documents whose content changed.
+ */
+@Component
+@Slf4j
+public class CacheCoherenceWatcher {
+
+    private static final int CHANGE_STREAM_UNSUPPORTED = 40573;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final CacheCoherenceProperties properties;
+    private final Map<String, List<CacheInvalidationListener>> listeners = new TreeMap<>();
+    private final Map<String, BsonDocument> resumeTokens = new ConcurrentHashMap<>();
+    private final Set<String> opened = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicBoolean> streaming = new HashMap<>();
+    private final Map<String, Counter> streamEvents = new HashMap<>();
+    private final Map<String, Counter> pollEvents = new HashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public CacheCoherenceWatcher(MongoTemplate mongoTemplate, CacheCoherenceProperties properties,
+                                 List<CacheInvalidationListener> cacheListeners, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        for (CacheInvalidationListener listener : cacheListeners) {
+            listeners.computeIfAbsent(listener.collection(), c -> new ArrayList<>()).add(listener);
+        }
+        for (String collection : listeners.keySet()) {
+            AtomicBoolean mode = new AtomicBoolean();
+            streaming.put(collection, mode);
+            Gauge.builder("punchout.cache.coherence.streaming", mode, m -> m.get() ? 1 : 0)
+                    .tag("collection", collection)
+                    .description("1 while the collection is followed by a change stream, 0 while polled")
+                    .register(meterRegistry);
+            streamEvents.put(collection, changeCounter(meterRegistry, collection, "stream"));
+            pollEvents.put(collection, changeCounter(meterRegistry, collection, "poll"));
+        }
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(0)
+    public synchronized void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        for (String collection : listeners.keySet()) {
+            Thread thread = new Thread(() -> follow(collection), "cache-coherence-" + collection);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        log.info("Cache coherence started for {}", listeners.keySet());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        threads.clear();
+    }
+
+    private void follow(String collection) {
+        boolean useStreams = properties.isChangeStreams();
+        int failures = 0;
+        Map<String, Integer> lastPoll = null;
+        while (running) {
+            if (useStreams) {
+                try {
+                    watch(collection);
+                } catch (RuntimeException e) {
+                    if (streaming.get(collection).getAndSet(false)) {
+                        // The stream had been open; count failures from here
+                        failures = 0;
+                    }
+                    int code = e instanceof MongoCommandException ? ((MongoCommandException) e).getErrorCode() : 0;
+                    if (code == CHANGE_STREAM_UNSUPPORTED) {
+                        log.info("Change streams unavailable for {}, polling every {}", collection,
+                                properties.getPollInterval());
+                        useStreams = false;
+                    } else if (code == CHANGE_STREAM_HISTORY_LOST) {
+                        log.warn("Resume point of {} is no longer in the oplog, resetting its caches", collection);
+                        resumeTokens.remove(collection);
+                        reset(collection);
+                    } else {
+                        failures = streamFailed(collection, ++failures, e);
+                        useStreams = failures < properties.getMaxStreamFailures();
+                    }
+                }
+                if (!useStreams) {
+                    lastPoll = null;
+                }
+                continue;
+            }
+
+            try {
+                lastPoll = poll(collection, lastPoll);
+            } catch (RuntimeException e) {
+                log.debug("Could not poll {} for cache invalidation: {}", collection, e.getMessage());
+            }
+            if (!sleep(properties.getPollInterval().toMillis())) {
+                return;
+            }
+            if (failures > 0 && properties.isChangeStreams()) {
+                // Fell back after stream failures rather than lack of support; try streams again
+                failures = 0;
+                useStreams = true;
+            }
+        }
+    }
+
+    private void watch(String collection) {
+        MongoCollection<Document> mongoCollection = mongoTemplate.getCollection(collection);
+        BsonDocument resumeToken = resumeTokens.get(collection);
+        var stream = mongoCollection.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            if (resumeToken == null && !opened.add(collection)) {
+                // Reopened without a resume point: anything may have changed meanwhile
+                reset(collection);
+            }
+            streaming.get(collection).set(true);
+            log.info("Watching {} for cache invalidation{}", collection, resumeToken != null ? " (resumed)" : "");
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    dispatch(collection, change);
+                }
+                BsonDocument token = change != null ? change.getResumeToken() : cursor.getResumeToken();
+                if (token != null) {
+                    resumeTokens.put(collection, token);
+                }
+            }
+        }
+    }
+
+    private void dispatch(String collection, ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case INSERT:
+            case UPDATE:
+            case REPLACE:
+            case DELETE:
+                streamEvents.get(collection).increment();
+                String id = idOf(change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null);
+                notifyChange(collection, id, change.getFullDocument());
+                break;
+            case INVALIDATE:
+                // Collection dropped or renamed; the stream is closed after this event
+                resumeTokens.remove(collection);
+                reset(collection);
+                break;
+            default:
+                reset(collection);
+        }
+    }
+
+    /**
+     * Compares every document with its hash from the previous poll and reports the ones
+     * that were added, changed or removed. The first poll only records the baseline and
+     * resets the caches, since changes before it cannot be told apart.
+     */
+    private Map<String, Integer> poll(String collection, Map<String, Integer> previous) {
+        Map<String, Integer> current = new HashMap<>();
+        Map<String, Document> documents = new HashMap<>();
+        for (Document document : mongoTemplate.getCollection(collection).find()) {
+            String id = idOf(document.get("_id"));
+            current.put(id, document.hashCode());
+            documents.put(id, document);
+        }
+        if (previous == null) {
+            reset(collection);
+            return current;
+        }
+        for (Map.Entry<String, Integer> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                pollEvents.get(collection).increment();
+                notifyChange(collection, entry.getKey(), documents.get(entry.getKey()));
+            }
+        }
+        for (String id : previous.keySet()) {
+            if (!current.containsKey(id)) {
+                pollEvents.get(collection).increment();
+                notifyChange(collection, id, null);
+            }
+        }
+        return current;
+    }
+
+    private void notifyChange(String collection, String id, Document document) {
+        log.debug("Invalidating cached {} {}", collection, id);
+        for (CacheInvalidationListener listener : listeners.get(collection)) {
+            try {
+                listener.onChange(id, document);
+            } catch (RuntimeException e) {
+                log.warn("Cache listener for {} failed on {}: {}", collection, id, e.getMessage());
+            }
+        }
+    }
+
+    private void reset(String collection) {
+        log.info("Resetting caches of {}", collection);
+        for (CacheInvalidationListener listener : listeners.get(collection)) {
+            try {
+                listener.onReset();
+            } catch (RuntimeException e) {
+                log.warn("Cache listener for {} failed to reset: {}", collection, e.getMessage());
+            }
+        }
+    }
+
+    private int streamFailed(String collection, int failures, RuntimeException e) {
+        if (!running) {
+            return failures;
+        }
+        log.warn("Change stream of {} failed ({} of {}): {}", collection, failures,
+                properties.getMaxStreamFailures(), e.getMessage());
+        if (failures >= properties.getMaxStreamFailures()) {
+            log.warn("Polling {} every {} until its change stream recovers", collection, properties.getPollInterval());
+        } else {
+            sleep(properties.getRetryDelay().toMillis());
+        }
+        return failures;
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String idOf(Object id) {
+        if (id instanceof BsonValue) {
+            BsonValue value = (BsonValue) id;
+            if (value.isObjectId()) {
+                return value.asObjectId().getValue().toHexString();
+            }
+            if (value.isString()) {
+                return value.asString().getValue();
+            }
+        }
+        if (id instanceof ObjectId) {
+            return ((ObjectId) id).toHexString();
+        }
+        return String.valueOf(id);
+    }
+
+    private static Counter changeCounter(MeterRegistry meterRegistry, String collection, String source) {
+        return Counter.builder("punchout.cache.coherence.changes")
+                .tag("collection", collection)
+                .tag("source", source)
+                .description("Document changes passed to cache listeners")
+                .register(meterRegistry);
+    }
+}
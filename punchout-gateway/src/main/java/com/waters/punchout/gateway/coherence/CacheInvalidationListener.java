@@ -0,0 +1,28 @@
+package com.waters.punchout.gateway.coherence;
+
+import org.bson.Document;
+
+/**
+ * An in-process cache of one MongoDB collection, kept coherent by {@link CacheCoherenceWatcher}.
+ */
+public interface CacheInvalidationListener {
+
+    /**
+     * Collection whose documents back the cache.
+     */
+    String collection();
+
+    /**
+     * A document was inserted, updated, replaced or deleted, here or on another replica.
+     *
+     * @param id       the document _id as a string
+     * @param document the document after the change, or null when it was deleted or is
+     *                 not known (e.g. detected by polling)
+     */
+    void onChange(String id, Document document);
+
+    /**
+     * Changes may have been missed; drop everything cached from the collection.
+     */
+    void onReset();
+}
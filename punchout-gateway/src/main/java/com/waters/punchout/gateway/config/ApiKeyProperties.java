@@ -0,0 +1,32 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * API key checks on /punchout/* and the caches behind them.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.api-key")
+@Data
+public class ApiKeyProperties {
+
+    /** Validate keys sent in {@link #header} on POST /punchout/* requests. */
+    private boolean enabled = true;
+
+    /** Reject requests without a key; when false only keys that are sent are checked. */
+    private boolean required = false;
+
+    private String header = "X-API-Key";
+
+    /** How long a validated key is trusted without reading MongoDB. */
+    private Duration cacheTtl = Duration.ofMinutes(5);
+
+    /** How long an unknown key is remembered as unknown. */
+    private Duration negativeCacheTtl = Duration.ofSeconds(30);
+
+    private long cacheMaxSize = 10_000;
+}
@@ -0,0 +1,34 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Lifetime of Waters auth tokens and the refresh lease that lets one replica renew a
+ * token while the others keep using it.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.auth-token")
+@Data
+public class AuthTokenProperties {
+
+    /** How long a token is used after it was issued. */
+    private Duration ttl = Duration.ofMinutes(30);
+
+    /** A token is renewed this long before it expires. */
+    private Duration refreshAhead = Duration.ofMinutes(5);
+
+    /** Share tokens through MongoDB; when false every replica keeps its own. */
+    private boolean shared = true;
+
+    /** How long a replica may hold the refresh lease before another can take over. */
+    private Duration leaseDuration = Duration.ofSeconds(30);
+
+    /** How long a replica without any token waits for the lease holder to publish one. */
+    private Duration waitForRefresh = Duration.ofSeconds(5);
+
+    private Duration pollInterval = Duration.ofMillis(100);
+}
@@ -0,0 +1,71 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Concurrency limits for setup and order processing. Every request takes a slot in the
+ * bulkhead of its size class and in the bulkhead of its normalised environment.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.bulkhead")
+@Data
+public class BulkheadProperties {
+
+    private boolean enabled = true;
+
+    /** Limits per environment; environments without an entry use "default". */
+    private Map<String, Limit> environments = new LinkedHashMap<>(Map.of(
+            "default", new Limit(50, 50, Duration.ofMillis(500))));
+
+    /** Size classes, matched in order of maxBytes; a class without maxBytes takes the rest. */
+    private Map<String, SizeClass> sizeClasses = new LinkedHashMap<>(Map.of(
+            "small", new SizeClass(64 * 1024L, 100, 100, Duration.ofMillis(500)),
+            "medium", new SizeClass(1024 * 1024L, 20, 20, Duration.ofSeconds(1)),
+            "large", new SizeClass(null, 4, 4, Duration.ofSeconds(2))));
+
+    /** Retry-After sent with rejections. */
+    private int retryAfterSeconds = 1;
+
+    public Limit environmentLimit(String environment) {
+        Limit limit = environments.get(environment);
+        return limit != null ? limit : environments.getOrDefault("default", new Limit());
+    }
+
+    @Data
+    public static class Limit {
+        private int maxConcurrent = 50;
+        /** Requests allowed to wait for a slot; any more are rejected at once. */
+        private int maxWaiting = 50;
+        private Duration maxWait = Duration.ofMillis(500);
+
+        public Limit() {
+        }
+
+        public Limit(int maxConcurrent, int maxWaiting, Duration maxWait) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxWaiting = maxWaiting;
+            this.maxWait = maxWait;
+        }
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class SizeClass extends Limit {
+        private Long maxBytes;
+
+        public SizeClass() {
+        }
+
+        public SizeClass(Long maxBytes, int maxConcurrent, int maxWaiting, Duration maxWait) {
+            super(maxConcurrent, maxWaiting, maxWait);
+            this.maxBytes = maxBytes;
+        }
+    }
+}
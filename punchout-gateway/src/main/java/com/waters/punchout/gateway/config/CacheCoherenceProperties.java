@@ -0,0 +1,30 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Cross-replica invalidation of in-process caches of MongoDB collections.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.cache-coherence")
+@Data
+public class CacheCoherenceProperties {
+
+    private boolean enabled = true;
+
+    /** Watch change streams; when false, or on a standalone MongoDB, collections are polled. */
+    private boolean changeStreams = true;
+
+    /** How often collections are compared with their last known state when polling. */
+    private Duration pollInterval = Duration.ofSeconds(30);
+
+    /** Wait before reopening a failed change stream. */
+    private Duration retryDelay = Duration.ofSeconds(5);
+
+    /** Consecutive change stream failures before falling back to polling. */
+    private int maxStreamFailures = 3;
+}
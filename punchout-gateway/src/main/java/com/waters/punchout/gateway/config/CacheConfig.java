@@ -15,10 +15,10 @@ public class CacheConfig {
     
     @Bean
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("environmentConfig", "authTokens");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager("environmentConfig");
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(100)
-                .expireAfterWrite(30, TimeUnit.MINUTES)); // Auth tokens cached for 30 min
+                .expireAfterWrite(30, TimeUnit.MINUTES));
         return cacheManager;
     }
 }
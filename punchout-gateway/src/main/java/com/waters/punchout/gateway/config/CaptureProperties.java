@@ -0,0 +1,21 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Capture policy used where no capture_policies document matches.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.capture")
+@Data
+public class CaptureProperties {
+
+    private boolean captureFailures = true;
+
+    /** 0 = off. */
+    private long slowThresholdMs = 0;
+
+    private double successSamplePercent = 100.0;
+}
@@ -0,0 +1,46 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adaptive concurrency limit for the setup and order pipelines. Each path and environment
+ * gets its own limit, moved between minLimit and maxLimit by comparing recent latency to
+ * the long-term baseline.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.concurrency-limit")
+@Data
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Request paths that are limited, each separately per environment. */
+    private List<String> paths = new ArrayList<>(List.of("/punchout/setup", "/punchout/order"));
+
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+
+    /** How much slower than the baseline recent requests may get before the limit shrinks. */
+    private double rttTolerance = 1.5;
+
+    /** Weight of each new limit estimate, between 0 and 1. */
+    private double smoothing = 0.2;
+
+    /** Samples averaged into the recent latency. */
+    private int shortWindow = 10;
+
+    /** Samples averaged into the baseline latency. */
+    private int longWindow = 600;
+
+    /** Factor applied to the limit when a request ends in a 503 not from a bulkhead, or throws. */
+    private double backoffRatio = 0.9;
+
+    /** Retry-After sent with shed requests. */
+    private int retryAfterSeconds = 1;
+}
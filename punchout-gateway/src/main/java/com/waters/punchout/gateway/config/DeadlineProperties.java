@@ -0,0 +1,31 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * End-to-end deadlines for setup and order requests. The budget comes from the request
+ * header when present, otherwise defaultBudget, and is narrowed further by the
+ * requestDeadlineMs of the request's environment config.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.deadline")
+@Data
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+
+    /** Header carrying the caller's remaining budget in milliseconds. */
+    private String header = "X-Request-Timeout-Ms";
+
+    private Duration defaultBudget = Duration.ofSeconds(25);
+
+    /** Upper bound for budgets taken from the header. */
+    private Duration maxBudget = Duration.ofSeconds(60);
+
+    /** Kept back from every budget for writing the response. */
+    private Duration responseMargin = Duration.ofMillis(250);
+}
@@ -0,0 +1,28 @@
+package com.waters.punchout.gateway.config;
+
+import com.waters.punchout.gateway.filter.ApiKeyAuthFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.servlet.DispatcherType;
+
+/**
+ * Filters that must also see forward dispatches; the rest are registered from their
+ * {@code @Component} and {@code @Order} with request dispatch only.
+ */
+@Configuration
+public class FilterRegistrationConfig {
+
+    /**
+     * CxmlSniffingFilter forwards documents posted to the wrong path, so the API key is
+     * checked again against the permission of the path it is forwarded to.
+     */
+    @Bean
+    public FilterRegistrationBean<ApiKeyAuthFilter> apiKeyAuthFilterRegistration(ApiKeyAuthFilter filter) {
+        FilterRegistrationBean<ApiKeyAuthFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.FORWARD);
+        registration.setOrder(2);
+        return registration;
+    }
+}
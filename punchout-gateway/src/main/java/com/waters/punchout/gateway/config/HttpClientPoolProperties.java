@@ -0,0 +1,82 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pools for the downstream services. Every environment and service pair
+ * ("prod.mule", "dev.auth", ...) gets its own pool built from {@link #defaults},
+ * with any values set under {@link #pools} for that pair taking precedence.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.http-client")
+@Data
+public class HttpClientPoolProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(30);
+    private Duration responseTimeout = Duration.ofSeconds(30);
+
+    private Pool defaults = Pool.withDefaults();
+
+    /** Overrides keyed by "environment.service", e.g. "prod.mule". */
+    private Map<String, Pool> pools = new HashMap<>();
+
+    private Preconnect preconnect = new Preconnect();
+
+    public Pool resolve(String environment, String service) {
+        Pool override = pools.get(environment + "." + service);
+        if (override == null) {
+            return defaults;
+        }
+        Pool pool = new Pool();
+        pool.setMaxConnections(override.getMaxConnections() != null ? override.getMaxConnections() : defaults.getMaxConnections());
+        pool.setPendingAcquireMaxCount(override.getPendingAcquireMaxCount() != null ? override.getPendingAcquireMaxCount() : defaults.getPendingAcquireMaxCount());
+        pool.setPendingAcquireTimeout(override.getPendingAcquireTimeout() != null ? override.getPendingAcquireTimeout() : defaults.getPendingAcquireTimeout());
+        pool.setMaxIdleTime(override.getMaxIdleTime() != null ? override.getMaxIdleTime() : defaults.getMaxIdleTime());
+        pool.setMaxLifeTime(override.getMaxLifeTime() != null ? override.getMaxLifeTime() : defaults.getMaxLifeTime());
+        pool.setEvictInBackground(override.getEvictInBackground() != null ? override.getEvictInBackground() : defaults.getEvictInBackground());
+        pool.setHttp2(override.getHttp2() != null ? override.getHttp2() : defaults.getHttp2());
+        pool.setPreconnectConnections(override.getPreconnectConnections() != null ? override.getPreconnectConnections() : defaults.getPreconnectConnections());
+        return pool;
+    }
+
+    @Data
+    public static class Pool {
+        private Integer maxConnections;
+        /** Requests allowed to wait for a connection; beyond this they fail immediately. */
+        private Integer pendingAcquireMaxCount;
+        private Duration pendingAcquireTimeout;
+        private Duration maxIdleTime;
+        private Duration maxLifeTime;
+        private Duration evictInBackground;
+        /** Negotiate HTTP/2 over TLS (ALPN); plain http URLs always use HTTP/1.1. */
+        private Boolean http2;
+        /** Connections opened at startup. */
+        private Integer preconnectConnections;
+
+        static Pool withDefaults() {
+            Pool pool = new Pool();
+            pool.setMaxConnections(50);
+            pool.setPendingAcquireMaxCount(100);
+            pool.setPendingAcquireTimeout(Duration.ofSeconds(5));
+            pool.setMaxIdleTime(Duration.ofSeconds(30));
+            pool.setMaxLifeTime(Duration.ofMinutes(5));
+            pool.setEvictInBackground(Duration.ofSeconds(30));
+            pool.setHttp2(true);
+            pool.setPreconnectConnections(4);
+            return pool;
+        }
+    }
+
+    @Data
+    public static class Preconnect {
+        private boolean enabled = true;
+        /** How long startup waits for pre-connecting; the rest finishes in the background. */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,40 @@
+package com.waters.punchout.gateway.config;
+
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class OrchestrationExecutorConfig {
+
+    /**
+     * Runs the independent PunchOut setup stages (inbound logging, auth token, session
+     * save) alongside the request thread, under the request's deadline. There is no queue
+     * by default: a pool only grows past its core size once the queue is full, so a queue
+     * would park stages behind slow auth calls instead of starting threads up to max-size.
+     * When all threads are busy the request thread runs the stage itself, so overload
+     * degrades to sequential execution.
+     */
+    @Bean(name = "setupStageExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor setupStageExecutor(
+            @Value("${punchout.orchestration.executor.core-size:16}") int coreSize,
+            @Value("${punchout.orchestration.executor.max-size:64}") int maxSize,
+            @Value("${punchout.orchestration.executor.queue-capacity:0}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("setup-stage-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(DeadlineContext.TASK_DECORATOR);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,29 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Buffering of captured network requests and the local journal they spill into.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.request-log")
+@Data
+public class RequestLogProperties {
+
+    /** Requests waiting for the next bulk insert; beyond this they go to the journal. */
+    private int maxBufferedRequests = 5_000;
+
+    /** Requests per insert, live or replayed. */
+    private int batchSize = 200;
+
+    /** Directory of the journal segment files and checkpoint; must survive restarts. */
+    private String journalDirectory = "/var/lib/punchout/request-journal";
+
+    /** Size of each memory-mapped segment file. */
+    private int journalSegmentBytes = 64 * 1024 * 1024;
+
+    /** Disk the unreplayed journal may use, in whole segments; beyond it requests are dropped. */
+    private long maxJournalBytes = 1024L * 1024 * 1024;
+}
@@ -0,0 +1,35 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Retries of Auth and Mule calls. Backoff before attempt n is drawn uniformly from
+ * [0, min(maxBackoff, baseBackoff * 2^(n-1))] ("full jitter"). Every downstream
+ * ("{service}-{environment}") has its own {@link Budget}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.retry")
+@Data
+public class RetryProperties {
+
+    /** Attempts including the first; 1 disables retries. */
+    private int maxAttempts = 3;
+    private Duration baseBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    private Budget budget = new Budget();
+
+    @Data
+    public static class Budget {
+        /** Retries earned per call, i.e. the share of live traffic that may be retries. */
+        private double ratio = 0.2;
+        /** Retries allowed per second regardless of traffic, so quiet downstreams can still retry. */
+        private double minPerSecond = 1;
+        /** Retries that can be saved up. */
+        private double maxBalance = 20;
+    }
+}
@@ -0,0 +1,51 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+@Configuration
+@Slf4j
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    /**
+     * Runs the @Scheduled jobs (request log, security audit and API key usage flushes,
+     * capture policy refresh, session cache tick). Sized in {@link #configureTasks} to one
+     * thread per registered job, so a slow MongoDB flush never delays another job and a
+     * new job needs no configuration change.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("punchout-scheduling-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Runs the dependency health prober, which blocks on MongoDB and downstream calls for
+     * up to its probe timeouts, apart from the @Scheduled jobs.
+     */
+    @Bean(name = "healthProbeScheduler", destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler healthProbeScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("health-probe-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        // Called once every bean's @Scheduled methods are registered and before any is scheduled
+        int jobs = registrar.getTriggerTaskList().size() + registrar.getCronTaskList().size()
+                + registrar.getFixedRateTaskList().size() + registrar.getFixedDelayTaskList().size();
+        ThreadPoolTaskScheduler scheduler = taskScheduler();
+        scheduler.setPoolSize(Math.max(1, jobs));
+        registrar.setTaskScheduler(scheduler);
+        log.info("Scheduling {} jobs, one thread each", jobs);
+    }
+}
@@ -0,0 +1,23 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Buffering of security audit events and hourly security counters.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.security-audit")
+@Data
+public class SecurityAuditProperties {
+
+    /**
+     * Events waiting to be written. Beyond it AUTH_SUCCESS events are dropped and counted;
+     * other events are inserted by the thread that submits them.
+     */
+    private int maxBufferedEvents = 10_000;
+
+    /** Events per insert. */
+    private int batchSize = 500;
+}
@@ -0,0 +1,27 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * In-memory store of active PunchOut sessions used to correlate orders with sessions.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "punchout.session-cache")
+@Data
+public class SessionCacheProperties {
+
+    private boolean enabled = true;
+
+    /** How long after setup a session is kept for order correlation. */
+    private Duration ttl = Duration.ofHours(8);
+
+    /** Sessions beyond this are still saved but not cached. */
+    private int maxEntries = 100_000;
+
+    /** Slots of the expiry timer wheel; one turn covers wheelSlots x tick-ms. */
+    private int wheelSlots = 512;
+}
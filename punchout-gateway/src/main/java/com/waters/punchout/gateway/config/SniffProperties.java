@@ -0,0 +1,37 @@
+package com.waters.punchout.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "punchout.sniff")
+@Data
+public class SniffProperties {
+    
+    private boolean enabled = true;
+    
+    /** Number of body bytes read ahead of the full parse. */
+    private int maxBytes = 8192;
+    
+    /** Reject documents whose sender does not match a configured customer. */
+    private boolean rejectUnknownSenders = false;
+    
+    /** Pipeline path per document type; types without a route are rejected. */
+    private Map<String, String> routes = new LinkedHashMap<>(Map.of(
+            "PUNCHOUT_SETUP", "/punchout/setup",
+            "ORDER", "/punchout/order"));
+    
+    private RateLimit rateLimit = new RateLimit();
+    
+    @Data
+    public static class RateLimit {
+        /** Requests per second per customer, 0 disables the limit. */
+        private int defaultPerSecond = 0;
+        private Map<String, Integer> customers = new HashMap<>();
+    }
+}
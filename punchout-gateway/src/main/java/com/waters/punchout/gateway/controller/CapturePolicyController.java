@@ -0,0 +1,83 @@
+package com.waters.punchout.gateway.controller;
+
+import com.waters.punchout.gateway.entity.CapturePolicy;
+import com.waters.punchout.gateway.service.CapturePolicyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/capture-policies")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class CapturePolicyController {
+
+    private final CapturePolicyService capturePolicyService;
+
+    @GetMapping
+    public ResponseEntity<List<CapturePolicy>> getAllPolicies() {
+        log.info("GET /api/capture-policies - Fetching all capture policies");
+        return ResponseEntity.ok(capturePolicyService.getAllPolicies());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CapturePolicy> getPolicy(@PathVariable String id) {
+        log.info("GET /api/capture-policies/{} - Fetching capture policy", id);
+        return capturePolicyService.getPolicy(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The policy in effect for an environment and customer, including the built-in default.
+     */
+    @GetMapping("/effective")
+    public ResponseEntity<CapturePolicy> getEffectivePolicy(
+            @RequestParam(required = false) String environment,
+            @RequestParam(required = false) String customer) {
+        log.info("GET /api/capture-policies/effective - environment: {}, customer: {}", environment, customer);
+        return ResponseEntity.ok(capturePolicyService.resolve(
+                environment != null ? environment.toLowerCase() : null, customer));
+    }
+
+    @PostMapping
+    public ResponseEntity<CapturePolicy> createPolicy(@RequestBody CapturePolicy policy) {
+        log.info("POST /api/capture-policies - Creating capture policy for environment: {}, customer: {}",
+                policy.getEnvironment(), policy.getCustomer());
+        policy.setId(null);
+        try {
+            return ResponseEntity.ok(capturePolicyService.savePolicy(policy));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid capture policy: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<CapturePolicy> updatePolicy(@PathVariable String id, @RequestBody CapturePolicy policy) {
+        log.info("PUT /api/capture-policies/{} - Updating capture policy", id);
+        return capturePolicyService.getPolicy(id)
+                .map(existing -> {
+                    policy.setId(id);
+                    policy.setCreatedAt(existing.getCreatedAt());
+                    try {
+                        return ResponseEntity.ok(capturePolicyService.savePolicy(policy));
+                    } catch (IllegalArgumentException e) {
+                        log.error("Invalid capture policy: {}", e.getMessage());
+                        return ResponseEntity.badRequest().<CapturePolicy>build();
+                    }
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deletePolicy(@PathVariable String id) {
+        log.info("DELETE /api/capture-policies/{} - Deleting capture policy", id);
+        capturePolicyService.deletePolicy(id);
+        return ResponseEntity.noContent().build();
+    }
+}
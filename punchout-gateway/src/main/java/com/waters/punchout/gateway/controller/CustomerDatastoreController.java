@@ -75,7 +75,20 @@ public class CustomerDatastoreController {
         }
         return ResponseEntity.notFound().build();
     }
-    
+
+    @GetMapping("/customer/{customer}/environment/{environment}/values")
+    public ResponseEntity<Map<String, String>> getValues(
+            @PathVariable String customer,
+            @PathVariable String environment,
+            @RequestParam(required = false) List<String> keys) {
+        String normalizedEnv = EnvironmentUtil.normalize(environment);
+        log.info("GET /api/datastore/customer/{}/environment/{} (normalized: {})/values - Fetching {} keys",
+                customer, environment, normalizedEnv, keys != null ? keys.size() : "all");
+        return ResponseEntity.ok(keys != null
+                ? datastoreService.getValues(customer, normalizedEnv, keys)
+                : datastoreService.getValues(customer, normalizedEnv));
+    }
+
     @PostMapping
     public ResponseEntity<CustomerDatastore> createDatastore(@RequestBody CustomerDatastore datastore) {
         log.info("POST /api/datastore - Creating datastore for customer: {} and environment: {}", 
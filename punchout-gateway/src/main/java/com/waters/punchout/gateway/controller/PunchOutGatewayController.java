@@ -1,15 +1,22 @@
 package com.waters.punchout.gateway.controller;
 
 import com.waters.punchout.common.dto.OrderResponse;
+import com.waters.punchout.gateway.config.BulkheadProperties;
+import com.waters.punchout.gateway.converter.CxmlResponseBuilder;
+import com.waters.punchout.gateway.exception.BulkheadFullException;
+import com.waters.punchout.gateway.exception.DeadlineExceededException;
+import com.waters.punchout.gateway.filter.AdaptiveConcurrencyFilter;
 import com.waters.punchout.gateway.service.OrderOrchestrationService;
 import com.waters.punchout.gateway.service.PunchOutOrchestrationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.Map;
 
 @RestController
@@ -21,17 +28,19 @@ public class PunchOutGatewayController {
     
     private final PunchOutOrchestrationService orchestrationService;
     private final OrderOrchestrationService orderOrchestrationService;
+    private final CxmlResponseBuilder responseBuilder;
+    private final BulkheadProperties bulkheadProperties;
     
     @PostMapping(value = "/setup", 
                  consumes = {MediaType.TEXT_XML_VALUE, MediaType.APPLICATION_XML_VALUE}, 
                  produces = MediaType.TEXT_XML_VALUE)
-    public ResponseEntity<String> handlePunchOutSetup(@RequestBody String cxmlContent) {
+    public ResponseEntity<String> handlePunchOutSetup(@RequestBody String cxmlContent, HttpServletRequest request) {
         log.info("Received PunchOut setup request, content length: {}", cxmlContent != null ? cxmlContent.length() : 0);
         
         if (cxmlContent == null || cxmlContent.trim().isEmpty()) {
             log.error("Empty cXML content received");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(buildCxmlErrorResponse("Empty cXML content"));
+                    .body(responseBuilder.buildErrorResponse("Empty cXML content"));
         }
         
         log.debug("cXML Content preview: {}", cxmlContent.substring(0, Math.min(100, cxmlContent.length())));
@@ -43,43 +52,66 @@ public class PunchOutGatewayController {
             String catalogUrl = (String) result.get("catalogUrl");
             
             // Build cXML response
-            String cxmlResponse = buildCxmlSetupResponse(sessionKey, catalogUrl);
+            String cxmlResponse = responseBuilder.buildSetupResponse(sessionKey, catalogUrl);
             
             log.info("Returning PunchOut setup response for session: {}", sessionKey);
             return ResponseEntity.ok()
                     .contentType(MediaType.TEXT_XML)
                     .body(cxmlResponse);
                     
+        } catch (BulkheadFullException e) {
+            return serviceUnavailable(request, e);
+        } catch (DeadlineExceededException e) {
+            return gatewayTimeout(e);
         } catch (Exception e) {
             log.error("Error processing PunchOut setup request", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(buildCxmlErrorResponse(e.getMessage()));
+                    .body(responseBuilder.buildErrorResponse(e.getMessage()));
         }
     }
     
     @PostMapping(value = "/order", 
                  consumes = {MediaType.TEXT_XML_VALUE, MediaType.APPLICATION_XML_VALUE},
                  produces = MediaType.TEXT_XML_VALUE)
-    public ResponseEntity<String> handleOrderRequest(@RequestBody String cxmlContent) {
+    public ResponseEntity<String> handleOrderRequest(@RequestBody String cxmlContent, HttpServletRequest request) {
         log.info("Received Order request, content length: {}", cxmlContent != null ? cxmlContent.length() : 0);
         
         try {
             OrderResponse response = orderOrchestrationService.processOrder(cxmlContent);
             
-            String cxmlResponse = buildCxmlOrderResponse(response);
+            String cxmlResponse = responseBuilder.buildOrderResponse(response);
             
             log.info("Order processed successfully: orderId={}", response.getOrderId());
             return ResponseEntity.ok()
                     .contentType(MediaType.TEXT_XML)
                     .body(cxmlResponse);
                     
+        } catch (BulkheadFullException e) {
+            return serviceUnavailable(request, e);
+        } catch (DeadlineExceededException e) {
+            return gatewayTimeout(e);
         } catch (Exception e) {
             log.error("Error processing order request", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(buildCxmlErrorResponse(e.getMessage()));
+                    .body(responseBuilder.buildErrorResponse(e.getMessage()));
         }
     }
     
+    private ResponseEntity<String> serviceUnavailable(HttpServletRequest request, BulkheadFullException e) {
+        // A full environment bulkhead is not overload of the path as a whole
+        request.setAttribute(AdaptiveConcurrencyFilter.SHED_ATTRIBUTE, e.getBulkhead());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(bulkheadProperties.getRetryAfterSeconds()))
+                .contentType(MediaType.TEXT_XML)
+                .body(responseBuilder.buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+    
+    private ResponseEntity<String> gatewayTimeout(DeadlineExceededException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .contentType(MediaType.TEXT_XML)
+                .body(responseBuilder.buildErrorResponse(HttpStatus.GATEWAY_TIMEOUT.value(), e.getMessage()));
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of(
@@ -88,63 +120,4 @@ public class PunchOutGatewayController {
             "timestamp", java.time.LocalDateTime.now().toString()
         ));
     }
-    
-    private String buildCxmlSetupResponse(String sessionKey, String catalogUrl) {
-        return String.format(
-            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-            "<cXML>\n" +
-            "  <Response>\n" +
-            "    <Status code=\"200\" text=\"success\"/>\n" +
-            "    <PunchOutSetupResponse>\n" +
-            "      <BuyerCookie>%s</BuyerCookie>\n" +
-            "      <StartPage>\n" +
-            "        <URL>%s</URL>\n" +
-            "      </StartPage>\n" +
-            "    </PunchOutSetupResponse>\n" +
-            "  </Response>\n" +
-            "</cXML>",
-            sessionKey,
-            catalogUrl
-        );
-    }
-    
-    private String buildCxmlSuccessResponse() {
-        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-               "<cXML>\n" +
-               "  <Response>\n" +
-               "    <Status code=\"200\" text=\"success\"/>\n" +
-               "  </Response>\n" +
-               "</cXML>";
-    }
-    
-    private String buildCxmlOrderResponse(OrderResponse orderResponse) {
-        return String.format(
-            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-            "<cXML>\n" +
-            "  <Response>\n" +
-            "    <Status code=\"200\" text=\"success\"/>\n" +
-            "    <ConfirmationRequest>\n" +
-            "      <ConfirmationHeader>\n" +
-            "        <confirmID>%s</confirmID>\n" +
-            "        <muleOrderID>%s</muleOrderID>\n" +
-            "      </ConfirmationHeader>\n" +
-            "    </ConfirmationRequest>\n" +
-            "  </Response>\n" +
-            "</cXML>",
-            orderResponse.getOrderId(),
-            orderResponse.getMuleOrderId()
-        );
-    }
-    
-    private String buildCxmlErrorResponse(String errorMessage) {
-        return String.format(
-            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-            "<cXML>\n" +
-            "  <Response>\n" +
-            "    <Status code=\"500\" text=\"error\">%s</Status>\n" +
-            "  </Response>\n" +
-            "</cXML>",
-            errorMessage
-        );
-    }
 }
@@ -9,6 +9,7 @@ import com.waters.punchout.gateway.converter.resolve.ConversionKey;
 import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
 import com.waters.punchout.gateway.converter.strategy.ConverterRegistry;
 import com.waters.punchout.gateway.converter.strategy.PunchOutConverterStrategy;
+import com.waters.punchout.gateway.converter.validation.CxmlDtdValidator;
 import com.waters.punchout.gateway.model.PunchOutRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,13 +24,16 @@ public class CxmlConversionService {
     private final DialectDetector dialectDetector;
     private final CustomerResolver customerResolver;
     private final ConverterRegistry converterRegistry;
+    private final CxmlDtdValidator dtdValidator;
     
     public PunchOutRequest convertCxmlToRequest(String cxmlContent) throws Exception {
         log.info("Starting cXML conversion");
         
         try {
             // Step 1: Parse cXML to JsonNode
-            JsonNode root = xmlMapper.readTree(cxmlContent);
+            JsonNode root = dtdValidator.isEnabled(cxmlContent)
+                    ? dtdValidator.readTree(xmlMapper, cxmlContent)
+                    : xmlMapper.readTree(cxmlContent);
             log.debug("Parsed cXML to JsonNode");
             
             // Step 2: Detect dialect
@@ -2,9 +2,11 @@ package com.waters.punchout.gateway.converter;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.waters.punchout.gateway.converter.validation.CxmlDtdValidator;
 import com.waters.punchout.gateway.entity.OrderAddress;
 import com.waters.punchout.gateway.entity.OrderDocument;
 import com.waters.punchout.gateway.entity.OrderItem;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -18,14 +20,18 @@ import java.util.Map;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class CxmlOrderConverter {
     
     private final XmlMapper xmlMapper = new XmlMapper();
+    private final CxmlDtdValidator dtdValidator;
     
     public OrderDocument convertCxmlToOrder(String cxmlContent) throws Exception {
         log.debug("Converting cXML to OrderDocument");
         
-        JsonNode root = xmlMapper.readTree(cxmlContent);
+        JsonNode root = dtdValidator.isEnabled(cxmlContent)
+                ? dtdValidator.readTree(xmlMapper, cxmlContent)
+                : xmlMapper.readTree(cxmlContent);
         JsonNode orderNode = root.path("Request").path("OrderRequest");
         JsonNode headerNode = orderNode.path("OrderRequestHeader");
         
@@ -0,0 +1,75 @@
+package com.waters.punchout.gateway.converter;
+
+import com.waters.punchout.common.dto.OrderResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the cXML response documents returned by the gateway endpoints and filters.
+ */
+@Component
+public class CxmlResponseBuilder {
+
+    public String buildSetupResponse(String sessionKey, String catalogUrl) {
+        return String.format(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<cXML>\n" +
+            "  <Response>\n" +
+            "    <Status code=\"200\" text=\"success\"/>\n" +
+            "    <PunchOutSetupResponse>\n" +
+            "      <BuyerCookie>%s</BuyerCookie>\n" +
+            "      <StartPage>\n" +
+            "        <URL>%s</URL>\n" +
+            "      </StartPage>\n" +
+            "    </PunchOutSetupResponse>\n" +
+            "  </Response>\n" +
+            "</cXML>",
+            sessionKey,
+            catalogUrl
+        );
+    }
+
+    public String buildSuccessResponse() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+               "<cXML>\n" +
+               "  <Response>\n" +
+               "    <Status code=\"200\" text=\"success\"/>\n" +
+               "  </Response>\n" +
+               "</cXML>";
+    }
+
+    public String buildOrderResponse(OrderResponse orderResponse) {
+        return String.format(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<cXML>\n" +
+            "  <Response>\n" +
+            "    <Status code=\"200\" text=\"success\"/>\n" +
+            "    <ConfirmationRequest>\n" +
+            "      <ConfirmationHeader>\n" +
+            "        <confirmID>%s</confirmID>\n" +
+            "        <muleOrderID>%s</muleOrderID>\n" +
+            "      </ConfirmationHeader>\n" +
+            "    </ConfirmationRequest>\n" +
+            "  </Response>\n" +
+            "</cXML>",
+            orderResponse.getOrderId(),
+            orderResponse.getMuleOrderId()
+        );
+    }
+
+    public String buildErrorResponse(String errorMessage) {
+        return buildErrorResponse(500, errorMessage);
+    }
+
+    public String buildErrorResponse(int statusCode, String errorMessage) {
+        return String.format(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<cXML>\n" +
+            "  <Response>\n" +
+            "    <Status code=\"%d\" text=\"error\">%s</Status>\n" +
+            "  </Response>\n" +
+            "</cXML>",
+            statusCode,
+            errorMessage
+        );
+    }
+}
@@ -4,13 +4,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.waters.punchout.gateway.model.PunchOutRequest;
+import com.waters.punchout.gateway.util.IdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @Component
 @Slf4j
@@ -81,6 +81,6 @@ public class CxmlToJsonConverter {
     }
     
     private String generateSessionKey() {
-        return "SESSION_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return IdGenerator.nextId("SESSION_");
     }
 }
@@ -6,7 +6,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @ConfigurationProperties(prefix = "punchout.conversion")
@@ -14,4 +16,16 @@ import java.util.List;
 public class PunchoutConversionProperties {
     
     private List<CustomerConfig> customers = new ArrayList<>();
+    
+    private DtdValidation dtdValidation = new DtdValidation();
+    
+    @Data
+    public static class DtdValidation {
+        /** Global default; overridden per environment, then per customer (CustomerConfig.validateDtd). */
+        private boolean enabled = false;
+        /** Keyed by the document's normalised Environment extrinsic; documents without one are dev. */
+        private Map<String, Boolean> environments = new HashMap<>();
+        /** Problems collected before validation of a document stops. */
+        private int maxErrors = 10;
+    }
 }
@@ -19,4 +19,5 @@ public class CustomerConfig {
     private Boolean forceNewSessionKey;
     private List<String> requiredExtrinsics;
     private List<String> allowedCredentialDomains;
+    private Boolean validateDtd;
 }
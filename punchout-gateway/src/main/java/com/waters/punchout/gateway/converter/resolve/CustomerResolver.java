@@ -21,6 +21,10 @@ public class CustomerResolver {
         String toIdentity = headerNode.path("To").path("Credential").path("Identity").asText(null);
         String userAgent = headerNode.path("Sender").path("UserAgent").asText(null);
         
+        return resolve(fromDomain, fromIdentity, toIdentity, userAgent);
+    }
+    
+    public ConversionKey resolve(String fromDomain, String fromIdentity, String toIdentity, String userAgent) {
         log.debug("Resolving customer from: fromDomain={}, fromIdentity={}, toIdentity={}, userAgent={}", 
                 fromDomain, fromIdentity, toIdentity, userAgent);
         
@@ -0,0 +1,27 @@
+package com.waters.punchout.gateway.converter.sniff;
+
+public enum CxmlDocumentType {
+    PUNCHOUT_SETUP("PunchOutSetupRequest"),
+    ORDER("OrderRequest"),
+    INVOICE("InvoiceDetailRequest"),
+    UNKNOWN(null);
+    
+    private final String elementName;
+    
+    CxmlDocumentType(String elementName) {
+        this.elementName = elementName;
+    }
+    
+    public String getElementName() {
+        return elementName;
+    }
+    
+    public static CxmlDocumentType fromElement(String localName) {
+        for (CxmlDocumentType type : values()) {
+            if (type.elementName != null && type.elementName.equals(localName)) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+}
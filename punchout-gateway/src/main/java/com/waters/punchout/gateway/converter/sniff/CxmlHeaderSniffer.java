@@ -0,0 +1,140 @@
+package com.waters.punchout.gateway.converter.sniff;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the cXML Header, the name of the request element and its Environment extrinsic
+ * from a body prefix. Inside the request element only header-level extrinsics are
+ * looked at, and parsing stops at the Environment extrinsic or the first line item, so
+ * only the envelope is read; a prefix that ends before that point simply yields
+ * whatever was found so far.
+ */
+@Component
+@Slf4j
+public class CxmlHeaderSniffer {
+    
+    private static final Set<String> LINE_ITEMS = Set.of("ItemOut", "ItemIn", "InvoiceDetailItem",
+            "InvoiceDetailOrder");
+    
+    private final XMLInputFactory inputFactory;
+    
+    public CxmlHeaderSniffer() {
+        this.inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+    
+    public SniffedHeader sniff(byte[] prefix, int length) {
+        try {
+            return sniff(inputFactory.createXMLStreamReader(new ByteArrayInputStream(prefix, 0, length)));
+        } catch (XMLStreamException e) {
+            log.debug("Could not start sniffing cXML header: {}", e.getMessage());
+            return new SniffedHeader();
+        }
+    }
+    
+    public SniffedHeader sniff(String cxmlContent) {
+        try {
+            return sniff(inputFactory.createXMLStreamReader(new StringReader(cxmlContent)));
+        } catch (XMLStreamException e) {
+            log.debug("Could not start sniffing cXML header: {}", e.getMessage());
+            return new SniffedHeader();
+        }
+    }
+    
+    private SniffedHeader sniff(XMLStreamReader xml) {
+        SniffedHeader header = new SniffedHeader();
+        List<String> path = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        
+        boolean environmentExtrinsic = false;
+        
+        try {
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if (header.getDocumentType() == CxmlDocumentType.UNKNOWN) {
+                        header.setDocumentType(CxmlDocumentType.fromElement(name));
+                    } else if (LINE_ITEMS.contains(name)) {
+                        break;
+                    }
+                    path.add(name);
+                    text.setLength(0);
+                    if ("cXML".equals(name)) {
+                        header.setPayloadId(xml.getAttributeValue(null, "payloadID"));
+                    } else if ("Credential".equals(name) && "From".equals(parent(path, 2))) {
+                        header.setFromDomain(xml.getAttributeValue(null, "domain"));
+                    } else if ("Extrinsic".equals(name) && isRequestLevel(header, parent(path, 2))) {
+                        environmentExtrinsic = "Environment".equals(xml.getAttributeValue(null, "name"));
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    text.append(xml.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = path.remove(path.size() - 1);
+                    if (environmentExtrinsic) {
+                        header.setEnvironment(text.toString().trim());
+                        break;
+                    }
+                    if (name.equals(header.getDocumentType().getElementName())) {
+                        break;
+                    }
+                    endElement(header, path, xml.getLocalName(), text.toString().trim());
+                    text.setLength(0);
+                }
+            }
+        } catch (XMLStreamException e) {
+            // Expected when the prefix cuts the document before the request element
+            log.debug("Stopped sniffing cXML header: {}", e.getMessage());
+        } finally {
+            try {
+                xml.close();
+            } catch (XMLStreamException e) {
+                log.debug("Failed to close sniffing reader: {}", e.getMessage());
+            }
+        }
+        
+        return header;
+    }
+    
+    private void endElement(SniffedHeader header, List<String> path, String name, String value) {
+        if ("Identity".equals(name) && "Credential".equals(parent(path, 1))) {
+            String party = parent(path, 2);
+            if ("From".equals(party) && header.getFromIdentity() == null) {
+                header.setFromIdentity(value);
+            } else if ("To".equals(party) && header.getToIdentity() == null) {
+                header.setToIdentity(value);
+            } else if ("Sender".equals(party) && header.getSenderIdentity() == null) {
+                header.setSenderIdentity(value);
+            }
+        } else if ("UserAgent".equals(name) && "Sender".equals(parent(path, 1))) {
+            header.setUserAgent(value);
+        }
+    }
+    
+    /**
+     * Whether an element under this parent holds the request's own extrinsics.
+     */
+    private boolean isRequestLevel(SniffedHeader header, String parent) {
+        CxmlDocumentType type = header.getDocumentType();
+        return type != CxmlDocumentType.UNKNOWN
+                && (type.getElementName().equals(parent) || "OrderRequestHeader".equals(parent));
+    }
+    
+    private String parent(List<String> path, int depth) {
+        int index = path.size() - depth;
+        return index >= 0 ? path.get(index) : null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.waters.punchout.gateway.converter.sniff;
+
+import lombok.Data;
+
+/**
+ * cXML envelope fields read from the start of a document, before the full parse.
+ */
+@Data
+public class SniffedHeader {
+    
+    public static final String REQUEST_ATTRIBUTE = SniffedHeader.class.getName();
+    
+    private CxmlDocumentType documentType = CxmlDocumentType.UNKNOWN;
+    private String payloadId;
+    private String fromDomain;
+    private String fromIdentity;
+    private String toIdentity;
+    private String senderIdentity;
+    private String userAgent;
+    /** Environment extrinsic as sent, not normalised */
+    private String environment;
+    private String customerId;
+}
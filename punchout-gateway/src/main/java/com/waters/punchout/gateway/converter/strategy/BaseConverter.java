@@ -6,12 +6,12 @@ import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.waters.punchout.gateway.converter.resolve.ConversionContext;
 import com.waters.punchout.gateway.converter.resolve.CustomerConfig;
 import com.waters.punchout.gateway.model.PunchOutRequest;
+import com.waters.punchout.gateway.util.IdGenerator;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @Slf4j
 public abstract class BaseConverter implements PunchOutConverterStrategy {
@@ -148,6 +148,6 @@ public abstract class BaseConverter implements PunchOutConverterStrategy {
     }
     
     protected String generateSessionKey() {
-        return "SESSION_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return IdGenerator.nextId("SESSION_");
     }
 }
@@ -0,0 +1,258 @@
+package com.waters.punchout.gateway.converter.validation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.waters.punchout.gateway.converter.config.PunchoutConversionProperties;
+import com.waters.punchout.gateway.converter.resolve.CustomerConfig;
+import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
+import com.waters.punchout.gateway.converter.sniff.CxmlHeaderSniffer;
+import com.waters.punchout.gateway.converter.sniff.SniffedHeader;
+import com.waters.punchout.gateway.exception.CxmlParsingException;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.stax2.XMLInputFactory2;
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.validation.XMLValidationException;
+import org.codehaus.stax2.validation.XMLValidationSchema;
+import org.codehaus.stax2.validation.XMLValidationSchemaFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Validates cXML against DTDs bundled on the classpath.
+ * Each DTD in the catalog is compiled once at startup; the compiled grammars are
+ * immutable and shared by all requests. The document's DOCTYPE is never resolved.
+ * Validation runs on the same StAX pass that builds the JsonNode tree. Documents whose
+ * transaction the selected grammar does not cover are parsed without validation.
+ */
+@Component
+@Slf4j
+public class CxmlDtdValidator {
+    
+    private static final String CATALOG = "cxml/dtd/catalog.properties";
+    private static final String DEFAULT_VERSION = "default";
+    private static final String COVERS_PREFIX = "covers.";
+    private static final Set<String> TRANSACTION_PARENTS = Set.of("Request", "Message", "Response");
+    private static final int VERSION_SCAN_CHARS = 1024;
+    private static final Pattern VERSION_PATTERN =
+            Pattern.compile("cXML/(\\d+\\.\\d+\\.\\d+)/|<cXML[^>]*\\sversion=\"(\\d+\\.\\d+\\.\\d+)\"");
+    
+    private final PunchoutConversionProperties.DtdValidation settings;
+    private final CxmlHeaderSniffer headerSniffer;
+    private final CustomerResolver customerResolver;
+    private final boolean hasOverrides;
+    private final XMLInputFactory2 inputFactory;
+    private final Map<String, XMLValidationSchema> grammars;
+    /** Transactions each catalog entry declares; entries without one cover everything */
+    private final Map<String, Set<String>> coverage = new HashMap<>();
+    
+    public CxmlDtdValidator(PunchoutConversionProperties properties,
+                            CxmlHeaderSniffer headerSniffer,
+                            CustomerResolver customerResolver) {
+        this.settings = properties.getDtdValidation();
+        this.headerSniffer = headerSniffer;
+        this.customerResolver = customerResolver;
+        this.hasOverrides = !settings.getEnvironments().isEmpty() || properties.getCustomers().stream()
+                .anyMatch(customer -> customer.getValidateDtd() != null);
+        
+        // Through the StAX lookup (Woodstox on this classpath): naming the implementation class
+        // drags its bnd annotations into javac and warns on every build
+        this.inputFactory = (XMLInputFactory2) XMLInputFactory.newFactory();
+        inputFactory.configureForSpeed();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        
+        this.grammars = loadCatalog();
+    }
+    
+    /**
+     * Customer setting wins over the setting of the document's environment, which wins over
+     * the global default. The environment is the document's Environment extrinsic, as the
+     * request is routed; documents without a valid one are served as dev. The envelope is
+     * only sniffed when some environment or customer overrides the default.
+     */
+    public boolean isEnabled(String cxmlContent) {
+        if (!hasOverrides) {
+            return settings.isEnabled();
+        }
+        SniffedHeader header = headerSniffer.sniff(cxmlContent);
+        CustomerConfig customer = customerResolver.resolve(header.getFromDomain(), header.getFromIdentity(),
+                header.getToIdentity(), header.getUserAgent()).getCustomerConfig();
+        if (customer != null && customer.getValidateDtd() != null) {
+            return customer.getValidateDtd();
+        }
+        String environment = EnvironmentUtil.isValid(header.getEnvironment())
+                ? EnvironmentUtil.normalize(header.getEnvironment()) : "dev";
+        return settings.getEnvironments().getOrDefault(environment, settings.isEnabled());
+    }
+    
+    /**
+     * Parses the document into a tree while validating it, failing with the collected
+     * DTD problems if any were reported.
+     */
+    public JsonNode readTree(XmlMapper xmlMapper, String cxmlContent) {
+        long startTime = System.nanoTime();
+        String version = detectVersion(cxmlContent);
+        String entry = grammars.containsKey(version) ? version : DEFAULT_VERSION;
+        XMLValidationSchema grammar = grammars.get(entry);
+        if (grammar == null) {
+            throw new CxmlParsingException("No bundled cXML DTD for version " + version);
+        }
+        Set<String> covered = coverage.get(entry);
+        String transaction = covered != null ? detectTransaction(cxmlContent) : null;
+        if (transaction != null && !covered.contains(transaction)) {
+            // The bundled grammar would reject valid cXML it does not declare
+            log.debug("Skipping DTD validation: {} is not covered by the {} grammar", transaction, entry);
+            return readUnvalidated(xmlMapper, cxmlContent);
+        }
+        
+        List<String> problems = new ArrayList<>();
+        JsonNode root = null;
+        Exception failure = null;
+        try {
+            XMLStreamReader2 reader = (XMLStreamReader2) inputFactory.createXMLStreamReader(new StringReader(cxmlContent));
+            reader.setValidationProblemHandler(problem -> {
+                problems.add(problem.getMessage() + " (line " + problem.getLocation().getLineNumber() + ")");
+                if (problems.size() >= settings.getMaxErrors()) {
+                    throw XMLValidationException.createException(problem);
+                }
+            });
+            reader.validateAgainst(grammar);
+            
+            try (JsonParser parser = xmlMapper.getFactory().createParser(reader)) {
+                root = xmlMapper.readTree(parser);
+            }
+        } catch (XMLStreamException | IOException e) {
+            failure = e;
+        }
+        
+        // Below maxErrors the failure is a well-formedness error, not our validation cut-off
+        if (failure != null && problems.size() < settings.getMaxErrors()) {
+            throw new CxmlParsingException("Malformed cXML: " + failure.getMessage(), failure);
+        }
+        long durationMicros = (System.nanoTime() - startTime) / 1000;
+        if (!problems.isEmpty()) {
+            log.warn("cXML failed DTD validation (version {}): {} problem(s) in {}us", version, problems.size(), durationMicros);
+            throw new CxmlParsingException("cXML failed DTD validation: " + String.join("; ", problems));
+        }
+        log.debug("Parsed and validated cXML (version {}) in {}us", version, durationMicros);
+        return root;
+    }
+    
+    /**
+     * First element under Request, Message or Response other than Status, or null when the
+     * document has none (a bare status Response) or cannot be read that far.
+     */
+    private String detectTransaction(String cxmlContent) {
+        XMLStreamReader2 reader = null;
+        try {
+            reader = (XMLStreamReader2) inputFactory.createXMLStreamReader(new StringReader(cxmlContent));
+            String envelope = null;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 2) {
+                        envelope = name;
+                    } else if (depth == 3 && TRANSACTION_PARENTS.contains(envelope) && !"Status".equals(name)) {
+                        return name;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        } catch (XMLStreamException e) {
+            // Left to the validating pass to report
+            log.debug("Could not detect cXML transaction: {}", e.getMessage());
+        } finally {
+            closeQuietly(reader);
+        }
+        return null;
+    }
+    
+    private JsonNode readUnvalidated(XmlMapper xmlMapper, String cxmlContent) {
+        try {
+            return xmlMapper.readTree(cxmlContent);
+        } catch (IOException e) {
+            throw new CxmlParsingException("Malformed cXML: " + e.getMessage(), e);
+        }
+    }
+    
+    private void closeQuietly(XMLStreamReader2 reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.closeCompletely();
+        } catch (XMLStreamException e) {
+            log.debug("Failed to close cXML reader: {}", e.getMessage());
+        }
+    }
+    
+    private String detectVersion(String cxmlContent) {
+        Matcher matcher = VERSION_PATTERN.matcher(
+                cxmlContent.substring(0, Math.min(cxmlContent.length(), VERSION_SCAN_CHARS)));
+        if (matcher.find()) {
+            return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+        }
+        return DEFAULT_VERSION;
+    }
+    
+    private Map<String, XMLValidationSchema> loadCatalog() {
+        Properties catalog = new Properties();
+        try (InputStream in = new ClassPathResource(CATALOG).getInputStream()) {
+            catalog.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load cXML DTD catalog " + CATALOG, e);
+        }
+        
+        XMLValidationSchemaFactory schemaFactory =
+                XMLValidationSchemaFactory.newInstance(XMLValidationSchema.SCHEMA_ID_DTD);
+        Map<String, XMLValidationSchema> byResource = new HashMap<>();
+        Map<String, XMLValidationSchema> byVersion = new HashMap<>();
+        
+        for (String version : catalog.stringPropertyNames()) {
+            if (version.startsWith(COVERS_PREFIX)) {
+                coverage.put(version.substring(COVERS_PREFIX.length()),
+                        Set.of(catalog.getProperty(version).trim().split("\\s*,\\s*")));
+                continue;
+            }
+            String resource = catalog.getProperty(version).trim();
+            XMLValidationSchema grammar = byResource.get(resource);
+            if (grammar == null) {
+                grammar = compile(schemaFactory, resource);
+                byResource.put(resource, grammar);
+            }
+            byVersion.put(version, grammar);
+        }
+        
+        log.info("Loaded cXML DTD catalog: {} version(s), {} compiled grammar(s)", byVersion.size(), byResource.size());
+        return byVersion;
+    }
+    
+    private XMLValidationSchema compile(XMLValidationSchemaFactory schemaFactory, String resource) {
+        try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+            return schemaFactory.createSchema(in, "UTF-8", null, resource);
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("Failed to compile cXML DTD " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.waters.punchout.gateway.deadline;
+
+import com.waters.punchout.gateway.exception.DeadlineExceededException;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a request must be answered. Immutable; {@link #NONE} never
+ * expires and leaves calls unbounded.
+ */
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(0, Long.MAX_VALUE);
+
+    private final long startNanos;
+    private final long budgetNanos;
+
+    private Deadline(long startNanos, long budgetNanos) {
+        this.startNanos = startNanos;
+        this.budgetNanos = budgetNanos;
+    }
+
+    public static Deadline of(long startNanos, Duration budget) {
+        return new Deadline(startNanos, Math.max(0, budget.toNanos()));
+    }
+
+    /**
+     * The earlier of this deadline and one the given budget after the same start.
+     */
+    public Deadline narrow(Duration budget) {
+        if (this == NONE || budget.toNanos() >= budgetNanos) {
+            return this;
+        }
+        return of(startNanos, budget);
+    }
+
+    public boolean isBounded() {
+        return this != NONE;
+    }
+
+    public Duration getBudget() {
+        return Duration.ofNanos(budgetNanos);
+    }
+
+    public Duration remaining() {
+        if (this == NONE) {
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+        return Duration.ofNanos(Math.max(0, budgetNanos - (System.nanoTime() - startNanos)));
+    }
+
+    public boolean isExpired() {
+        return this != NONE && System.nanoTime() - startNanos >= budgetNanos;
+    }
+
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage);
+        }
+    }
+
+    /**
+     * Fails the call with {@link DeadlineExceededException} and cancels it (closing the
+     * underlying HTTP exchange) once the deadline passes.
+     */
+    public <T> Mono<T> bound(Mono<T> call, String stage) {
+        if (this == NONE) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            Duration remaining = remaining();
+            if (remaining.isZero()) {
+                return Mono.error(new DeadlineExceededException(stage));
+            }
+            return call.timeout(remaining, Mono.error(() -> new DeadlineExceededException(stage)));
+        });
+    }
+
+    /**
+     * Lets MongoDB abort the query server-side once the deadline passes.
+     */
+    public Query bound(Query query, String stage) {
+        if (this == NONE) {
+            return query;
+        }
+        check(stage);
+        return query.maxTime(remaining());
+    }
+
+    @Override
+    public String toString() {
+        return this == NONE ? "none" : remaining().toMillis() + "ms of " + getBudget().toMillis() + "ms left";
+    }
+}
@@ -0,0 +1,45 @@
+package com.waters.punchout.gateway.deadline;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Holds the deadline of the request being served by the current thread. Executors that
+ * run request stages copy it to their worker threads with {@link #TASK_DECORATOR}.
+ */
+public final class DeadlineContext {
+
+    public static final TaskDecorator TASK_DECORATOR = task -> {
+        Deadline deadline = current();
+        return () -> {
+            Deadline previous = current();
+            set(deadline);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    };
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private DeadlineContext() {
+    }
+
+    public static Deadline current() {
+        Deadline deadline = CURRENT.get();
+        return deadline != null ? deadline : Deadline.NONE;
+    }
+
+    public static void set(Deadline deadline) {
+        if (deadline == null || deadline == Deadline.NONE) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,61 @@
+package com.waters.punchout.gateway.deadline;
+
+import com.waters.punchout.gateway.config.DeadlineProperties;
+import com.waters.punchout.gateway.service.EnvironmentConfigService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Works out request deadlines: {@link #start} when the request arrives, from the caller's
+ * header or the default budget, and {@link #narrowToEnvironment} once the environment is
+ * known, applying that environment's requestDeadlineMs SLO.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RequestDeadlines {
+
+    private final DeadlineProperties properties;
+    private final EnvironmentConfigService environmentConfigService;
+
+    public Deadline start(long arrivalNanos, String headerValue) {
+        if (!properties.isEnabled()) {
+            return Deadline.NONE;
+        }
+        Duration budget = properties.getDefaultBudget();
+        if (headerValue != null && !headerValue.isBlank()) {
+            try {
+                budget = Duration.ofMillis(Long.parseLong(headerValue.trim()));
+                if (budget.compareTo(properties.getMaxBudget()) > 0) {
+                    budget = properties.getMaxBudget();
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring invalid {} header: {}", properties.getHeader(), headerValue);
+            }
+        }
+        return Deadline.of(arrivalNanos, budget.minus(properties.getResponseMargin()));
+    }
+
+    /**
+     * Narrows the current thread's deadline to the SLO of the given environment, if it has one.
+     */
+    public Deadline narrowToEnvironment(String environment) {
+        Deadline deadline = DeadlineContext.current();
+        if (!deadline.isBounded()) {
+            return deadline;
+        }
+        try {
+            Integer slo = environmentConfigService.getRequestDeadlineMs(environment);
+            if (slo != null && slo > 0) {
+                deadline = deadline.narrow(Duration.ofMillis(slo).minus(properties.getResponseMargin()));
+                DeadlineContext.set(deadline);
+            }
+        } catch (Exception e) {
+            log.debug("Keeping request deadline, environment config {} unavailable: {}", environment, e.getMessage());
+        }
+        return deadline;
+    }
+}
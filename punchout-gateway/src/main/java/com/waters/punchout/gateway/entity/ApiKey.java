@@ -20,7 +20,13 @@ public class ApiKey {
     private String id;
     
     @Field("keyValue")
-    private String keyValue;
+    private String keyValue; // plaintext, only returned when generated; older documents may still store it
+    
+    @Field("keyHash")
+    private String keyHash; // SHA-256 of the key, used for lookups
+    
+    @Field("keyPrefix")
+    private String keyPrefix;
     
     @Field("customerName")
     private String customerName;
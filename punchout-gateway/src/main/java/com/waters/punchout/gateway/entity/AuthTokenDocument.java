@@ -0,0 +1,51 @@
+package com.waters.punchout.gateway.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * Auth token shared by all gateway replicas, one per environment and auth email, plus
+ * the lease of the replica currently allowed to refresh it.
+ */
+@Document(collection = "auth_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthTokenDocument {
+    
+    @Id
+    private String id; // environment:email
+    
+    @Field("environment")
+    private String environment;
+    
+    @Field("email")
+    private String email;
+    
+    @Field("token")
+    private String token; // Jasypt-encrypted when an encryptor is configured
+    
+    @Field("encrypted")
+    private Boolean encrypted;
+    
+    @Field("issuedAt")
+    private Instant issuedAt;
+    
+    @Field("refreshAt")
+    private Instant refreshAt;
+    
+    @Field("expiresAt")
+    private Instant expiresAt;
+    
+    @Field("leaseOwner")
+    private String leaseOwner;
+    
+    @Field("leaseUntil")
+    private Instant leaseUntil;
+}
@@ -0,0 +1,56 @@
+package com.waters.punchout.gateway.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * How much of each captured network request is stored. Requests not captured in full
+ * keep their metadata (ids, url, status, duration) without headers and bodies.
+ */
+@Document(collection = "capture_policies")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapturePolicy {
+
+    public static final String ANY = "*";
+
+    @Id
+    private String id;
+
+    @Field("environment")
+    private String environment; // dev, stage, prod, s4-dev or * for all
+
+    @Field("customer")
+    private String customer; // CustomerName extrinsic or From identity (order: customer name), or * for all
+
+    @Field("captureFailures")
+    private Boolean captureFailures = true; // failed requests in full regardless of sampling
+
+    @Field("slowThresholdMs")
+    private Long slowThresholdMs; // requests at least this slow in full, unset = off
+
+    @Field("successSamplePercent")
+    private Double successSamplePercent = 100.0; // share of other requests stored in full, by session
+
+    @Field("enabled")
+    private Boolean enabled = true;
+
+    @Field("description")
+    private String description;
+
+    @Field("createdAt")
+    private LocalDateTime createdAt;
+
+    @Field("updatedAt")
+    private LocalDateTime updatedAt;
+
+    @Field("updatedBy")
+    private String updatedBy;
+}
@@ -45,4 +45,7 @@ public class CustomerDatastore {
     
     @Field("updatedBy")
     private String updatedBy;
+    
+    @Field("version")
+    private Long version; // bumped by every write; in-memory snapshots are checked against it
 }
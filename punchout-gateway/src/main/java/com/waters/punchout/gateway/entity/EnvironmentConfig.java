@@ -42,6 +42,9 @@ public class EnvironmentConfig {
     @Field("retryAttempts")
     private Integer retryAttempts;
     
+    @Field("requestDeadlineMs")
+    private Integer requestDeadlineMs; // end-to-end SLO for setup/order requests, unset = gateway default
+    
     @Field("healthCheckUrl")
     private String healthCheckUrl;
     
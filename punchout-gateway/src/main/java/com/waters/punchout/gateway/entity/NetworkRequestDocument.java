@@ -28,6 +28,12 @@ public class NetworkRequestDocument {
     @Field("requestId")
     private String requestId;
     
+    @Field("environment")
+    private String environment; // normalised, null when not known
+    
+    @Field("customer")
+    private String customer;
+    
     @Field("timestamp")
     private LocalDateTime timestamp;
     
@@ -72,4 +78,7 @@ public class NetworkRequestDocument {
     
     @Field("errorMessage")
     private String errorMessage;
+    
+    @Field("payloadCaptured")
+    private Boolean payloadCaptured; // false when the capture policy kept only metadata
 }
@@ -0,0 +1,39 @@
+package com.waters.punchout.gateway.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Security event counts for one customer and one hour, maintained with $inc as
+ * events are audited.
+ */
+@Document(collection = "security_stats_hourly")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SecurityStatsBucket {
+    
+    @Id
+    private String id; // customerName|hour
+    
+    @Field("customerName")
+    private String customerName;
+    
+    @Field("hour")
+    private LocalDateTime hour;
+    
+    @Field("authSuccesses")
+    private Long authSuccesses;
+    
+    @Field("authFailures")
+    private Long authFailures;
+    
+    @Field("events")
+    private Long events; // all security events, including the above
+}
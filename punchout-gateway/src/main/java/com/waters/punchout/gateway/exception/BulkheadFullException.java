@@ -0,0 +1,17 @@
+package com.waters.punchout.gateway.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request cannot get a slot in its environment or size-class bulkhead.
+ */
+@Getter
+public class BulkheadFullException extends RuntimeException {
+
+    private final String bulkhead;
+
+    public BulkheadFullException(String bulkhead) {
+        super(String.format("Bulkhead '%s' is full, try again later", bulkhead));
+        this.bulkhead = bulkhead;
+    }
+}
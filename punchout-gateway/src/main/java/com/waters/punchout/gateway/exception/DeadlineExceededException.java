@@ -0,0 +1,22 @@
+package com.waters.punchout.gateway.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request's deadline passes before a stage could start or finish.
+ */
+@Getter
+public class DeadlineExceededException extends RuntimeException {
+
+    private final String stage;
+
+    public DeadlineExceededException(String stage) {
+        super(String.format("Request deadline exceeded during %s", stage));
+        this.stage = stage;
+    }
+
+    public DeadlineExceededException(String stage, Throwable cause) {
+        super(String.format("Request deadline exceeded during %s", stage), cause);
+        this.stage = stage;
+    }
+}
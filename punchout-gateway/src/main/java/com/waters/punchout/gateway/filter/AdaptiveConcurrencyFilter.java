@@ -0,0 +1,137 @@
+package com.waters.punchout.gateway.filter;
+
+import com.waters.punchout.gateway.config.ConcurrencyLimitProperties;
+import com.waters.punchout.gateway.config.SniffProperties;
+import com.waters.punchout.gateway.converter.CxmlResponseBuilder;
+import com.waters.punchout.gateway.converter.sniff.CxmlHeaderSniffer;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sheds setup and order requests beyond the adaptive concurrency limit of their path and
+ * environment with a cXML 503 and Retry-After, before the body is parsed. The environment
+ * comes from the Environment extrinsic sniffed from the first punchout.sniff.max-bytes
+ * of the body, so a hung environment only shrinks its own limit. The limit follows the
+ * latency of the requests let through (see {@link AdaptiveConcurrencyLimit}), so excess
+ * load is turned away instead of queueing in front of slow dependencies.
+ */
+@Slf4j
+@Component
+@Order(1)
+public class AdaptiveConcurrencyFilter implements Filter {
+
+    /**
+     * Set on requests turned away by a bulkhead, whose 503 says the request's environment
+     * is full rather than that this path is overloaded.
+     */
+    public static final String SHED_ATTRIBUTE = AdaptiveConcurrencyFilter.class.getName() + ".shed";
+
+    private final ConcurrencyLimitProperties properties;
+    private final SniffProperties sniffProperties;
+    private final CxmlHeaderSniffer sniffer;
+    private final CxmlResponseBuilder responseBuilder;
+    private final MeterRegistry meterRegistry;
+    /** path|environment -> limit */
+    private final Map<String, PathLimit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyFilter(ConcurrencyLimitProperties properties, SniffProperties sniffProperties,
+                                     CxmlHeaderSniffer sniffer, CxmlResponseBuilder responseBuilder,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.sniffProperties = sniffProperties;
+        this.sniffer = sniffer;
+        this.responseBuilder = responseBuilder;
+        this.meterRegistry = meterRegistry;
+        log.info("Adaptive concurrency limit enabled={}, paths={}, initial={}, min={}, max={}",
+                properties.isEnabled(), properties.getPaths(), properties.getInitialLimit(),
+                properties.getMinLimit(), properties.getMaxLimit());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+
+        if (!properties.isEnabled() || !properties.getPaths().contains(path) || !"POST".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PrefixReplayRequestWrapper wrapped = new PrefixReplayRequestWrapper(httpRequest, sniffProperties.getMaxBytes());
+        String environment = sniffer.sniff(wrapped.getPrefix(), wrapped.getPrefixLength()).getEnvironment();
+        // Unknown or missing environments are served as the default environment
+        PathLimit pathLimit = limit(path, EnvironmentUtil.isValid(environment) ? EnvironmentUtil.normalize(environment) : "dev");
+        AdaptiveConcurrencyLimit limit = pathLimit.limit;
+
+        if (!limit.tryAcquire()) {
+            pathLimit.rejected.increment();
+            log.debug("Shedding {} for {}: {} in flight, limit {}", path, environment, limit.getInFlight(), limit.getLimit());
+            httpResponse.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            httpResponse.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+            httpResponse.setContentType("text/xml");
+            httpResponse.getWriter().write(responseBuilder.buildErrorResponse(
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service temporarily overloaded, please retry"));
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            chain.doFilter(wrapped, response);
+            // A 504 is a request that ran out of deadline, already seen in the latency; only
+            // a 503 from a dependency refusing work is taken as overload
+            dropped = httpResponse.getStatus() == HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                    && request.getAttribute(SHED_ATTRIBUTE) == null;
+        } finally {
+            limit.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    private PathLimit limit(String path, String environment) {
+        return limits.computeIfAbsent(path + "|" + environment, key -> {
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+            Gauge.builder("punchout.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("path", path)
+                    .tag("environment", environment)
+                    .description("Current adaptive concurrency limit")
+                    .register(meterRegistry);
+            Gauge.builder("punchout.concurrency.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("path", path)
+                    .tag("environment", environment)
+                    .description("Requests holding a concurrency slot")
+                    .register(meterRegistry);
+            Counter rejected = Counter.builder("punchout.concurrency.rejected")
+                    .tag("path", path)
+                    .tag("environment", environment)
+                    .description("Requests shed by the adaptive concurrency limit")
+                    .register(meterRegistry);
+            return new PathLimit(limit, rejected);
+        });
+    }
+
+    private static final class PathLimit {
+        private final AdaptiveConcurrencyLimit limit;
+        private final Counter rejected;
+
+        private PathLimit(AdaptiveConcurrencyLimit limit, Counter rejected) {
+            this.limit = limit;
+            this.rejected = rejected;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.waters.punchout.gateway.filter;
+
+import com.waters.punchout.gateway.config.ConcurrencyLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient concurrency limit. Keeps a short and a long exponential average of request
+ * latency; while recent requests are no slower than the baseline times rttTolerance the
+ * limit grows by about its square root per update, and once they are slower it shrinks
+ * in proportion (at most halving). Requests that fail with overload shrink it by
+ * backoffRatio. Updates are skipped while fewer than half the slots are in use, so an
+ * idle period cannot inflate the limit.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private final ConcurrencyLimitProperties properties;
+    private final double shortAlpha;
+    private final double longAlpha;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+
+    AdaptiveConcurrencyLimit(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.shortAlpha = 2.0 / (properties.getShortWindow() + 1);
+        this.longAlpha = 2.0 / (properties.getLongWindow() + 1);
+        this.estimatedLimit = clamp(properties.getInitialLimit());
+        this.limit = (int) estimatedLimit;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos time the request held its slot
+     * @param dropped  whether it ended in a way that signals overload
+     */
+    void release(long rttNanos, boolean dropped) {
+        int inFlightAtEnd = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtEnd, dropped);
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtEnd, boolean dropped) {
+        if (dropped) {
+            estimatedLimit = clamp(estimatedLimit * properties.getBackoffRatio());
+            limit = (int) estimatedLimit;
+            return;
+        }
+
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        } else {
+            shortRtt += shortAlpha * (rttNanos - shortRtt);
+            longRtt += longAlpha * (rttNanos - longRtt);
+        }
+        // Latency fell well below the baseline (e.g. a dependency recovered); let the baseline follow
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (inFlightAtEnd < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = clamp(estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing());
+        limit = (int) estimatedLimit;
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+}
@@ -0,0 +1,111 @@
+package com.waters.punchout.gateway.filter;
+
+import com.waters.punchout.gateway.config.ApiKeyProperties;
+import com.waters.punchout.gateway.converter.CxmlResponseBuilder;
+import com.waters.punchout.gateway.entity.ApiKey;
+import com.waters.punchout.gateway.service.SecurityService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Checks the API key on POST /punchout/* before the body is sniffed or read. A key
+ * that is sent must be valid and carry the permission for the path; requests without
+ * a key pass unless punchout.api-key.required is set. The filter also runs on forward
+ * dispatch, so a document that {@link CxmlSniffingFilter} routes to another path is
+ * checked against that path's permission too.
+ */
+@Slf4j
+@Component
+@Order(2)
+@RequiredArgsConstructor
+public class ApiKeyAuthFilter implements Filter {
+
+    private static final Map<String, String> REQUIRED_PERMISSIONS = Map.of(
+            "/punchout/setup", "PUNCHOUT",
+            "/punchout/order", "ORDER");
+
+    /** The key authenticated on the original request, for the check on forward dispatch */
+    private static final String API_KEY_ATTRIBUTE = ApiKeyAuthFilter.class.getName() + ".apiKey";
+
+    private final ApiKeyProperties properties;
+    private final SecurityService securityService;
+    private final CxmlResponseBuilder responseBuilder;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+
+        if (!properties.isEnabled() || !"POST".equals(httpRequest.getMethod()) || !path.startsWith("/punchout/")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (httpRequest.getDispatcherType() == DispatcherType.FORWARD) {
+            ApiKey authenticated = (ApiKey) httpRequest.getAttribute(API_KEY_ATTRIBUTE);
+            if (authenticated == null || permitted(authenticated, path, httpResponse)) {
+                chain.doFilter(request, response);
+            }
+            return;
+        }
+
+        String keyValue = httpRequest.getHeader(properties.getHeader());
+        if (keyValue == null || keyValue.isBlank()) {
+            if (properties.isRequired()) {
+                reject(httpResponse, HttpServletResponse.SC_UNAUTHORIZED, "API key required");
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Optional<ApiKey> apiKey;
+        try {
+            apiKey = securityService.authenticate(keyValue.trim(), httpRequest.getRemoteAddr());
+        } catch (DataAccessException e) {
+            log.warn("API key lookup failed for {}: {}", path, e.getMessage());
+            reject(httpResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "API key validation unavailable");
+            return;
+        }
+        if (apiKey.isEmpty()) {
+            reject(httpResponse, HttpServletResponse.SC_UNAUTHORIZED, "Invalid API key");
+            return;
+        }
+
+        if (permitted(apiKey.get(), path, httpResponse)) {
+            httpRequest.setAttribute(API_KEY_ATTRIBUTE, apiKey.get());
+            chain.doFilter(request, response);
+        }
+    }
+
+    private boolean permitted(ApiKey apiKey, String path, HttpServletResponse response) throws IOException {
+        String permission = REQUIRED_PERMISSIONS.get(path);
+        List<String> granted = apiKey.getPermissions();
+        if (permission != null && granted != null && !granted.contains(permission)) {
+            log.warn("API key id={} lacks {} permission for {}", apiKey.getId(), permission, path);
+            reject(response, HttpServletResponse.SC_FORBIDDEN, "API key not permitted for " + path);
+            return false;
+        }
+        return true;
+    }
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/xml");
+        response.getWriter().write(responseBuilder.buildErrorResponse(status, message));
+    }
+}
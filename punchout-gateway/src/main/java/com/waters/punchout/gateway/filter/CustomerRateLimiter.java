@@ -0,0 +1,51 @@
+package com.waters.punchout.gateway.filter;
+
+import com.waters.punchout.gateway.config.SniffProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket per resolved customer id. Buckets are keyed by configured customers
+ * only (plus "default"), so the map stays bounded.
+ */
+@Component
+@RequiredArgsConstructor
+public class CustomerRateLimiter {
+    
+    private final SniffProperties properties;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    
+    public boolean tryAcquire(String customerId) {
+        SniffProperties.RateLimit rateLimit = properties.getRateLimit();
+        int perSecond = rateLimit.getCustomers().getOrDefault(customerId, rateLimit.getDefaultPerSecond());
+        if (perSecond <= 0) {
+            return true;
+        }
+        return buckets.computeIfAbsent(customerId, id -> new TokenBucket())
+                .tryAcquire(perSecond, System.nanoTime());
+    }
+    
+    private static final class TokenBucket {
+        
+        private double tokens = -1;
+        private long lastRefillNanos;
+        
+        synchronized boolean tryAcquire(int perSecond, long now) {
+            if (tokens < 0) {
+                tokens = perSecond;
+            } else {
+                tokens = Math.min(perSecond, tokens + (now - lastRefillNanos) * perSecond / 1_000_000_000d);
+            }
+            lastRefillNanos = now;
+            
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.waters.punchout.gateway.filter;
+
+import com.waters.punchout.gateway.config.SniffProperties;
+import com.waters.punchout.gateway.converter.CxmlResponseBuilder;
+import com.waters.punchout.gateway.converter.resolve.ConversionKey;
+import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
+import com.waters.punchout.gateway.converter.sniff.CxmlDocumentType;
+import com.waters.punchout.gateway.converter.sniff.CxmlHeaderSniffer;
+import com.waters.punchout.gateway.converter.sniff.SniffedHeader;
+import com.waters.punchout.gateway.metrics.MetricsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Pre-parse stage for inbound cXML. Identifies document type and sender from the
+ * first few KB of the body, then routes, rate limits or rejects before the controller
+ * reads the full payload.
+ */
+@Slf4j
+@Component
+@Order(3)
+@RequiredArgsConstructor
+public class CxmlSniffingFilter implements Filter {
+    
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    
+    private final SniffProperties properties;
+    private final CxmlHeaderSniffer sniffer;
+    private final CustomerResolver customerResolver;
+    private final CustomerRateLimiter rateLimiter;
+    private final MetricsService metricsService;
+    private final CxmlResponseBuilder responseBuilder;
+    
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        
+        if (!properties.isEnabled() || !"POST".equals(httpRequest.getMethod())
+                || !properties.getRoutes().containsValue(path)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        // AdaptiveConcurrencyFilter has usually read the prefix already
+        PrefixReplayRequestWrapper wrapped = request instanceof PrefixReplayRequestWrapper
+                ? (PrefixReplayRequestWrapper) request
+                : new PrefixReplayRequestWrapper(httpRequest, properties.getMaxBytes());
+        SniffedHeader header = sniffer.sniff(wrapped.getPrefix(), wrapped.getPrefixLength());
+        CxmlDocumentType documentType = header.getDocumentType();
+        
+        if (documentType == CxmlDocumentType.UNKNOWN && wrapped.isTruncated()) {
+            // The request element may lie past the prefix; leave it to the full parse
+            log.debug("No cXML request element in the first {} bytes on {}, passing through", wrapped.getPrefixLength(), path);
+            metricsService.recordSniffResult(documentType.name(), "unresolved", "truncated");
+            chain.doFilter(wrapped, response);
+            return;
+        }
+        
+        if (documentType == CxmlDocumentType.UNKNOWN) {
+            reject(httpResponse, header, HttpServletResponse.SC_BAD_REQUEST, "unknown-type",
+                    "Unrecognized cXML document type");
+            return;
+        }
+        
+        String route = properties.getRoutes().get(documentType.name());
+        if (route == null) {
+            reject(httpResponse, header, HttpServletResponse.SC_BAD_REQUEST, "no-route",
+                    documentType.getElementName() + " is not accepted by this gateway");
+            return;
+        }
+        
+        ConversionKey key = customerResolver.resolve(header.getFromDomain(), header.getFromIdentity(),
+                header.getToIdentity(), header.getUserAgent());
+        header.setCustomerId(key.getCustomerId());
+        
+        if (properties.isRejectUnknownSenders() && key.getCustomerConfig() == null) {
+            log.warn("Rejecting {} from unknown sender: fromDomain={}, fromIdentity={}, userAgent={}",
+                    documentType, header.getFromDomain(), header.getFromIdentity(), header.getUserAgent());
+            reject(httpResponse, header, HttpServletResponse.SC_FORBIDDEN, "unknown-sender", "Unknown sender");
+            return;
+        }
+        
+        if (!rateLimiter.tryAcquire(key.getCustomerId())) {
+            log.warn("Customer rate limit exceeded: customerId={}, documentType={}", key.getCustomerId(), documentType);
+            httpResponse.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            reject(httpResponse, header, SC_TOO_MANY_REQUESTS, "rate-limited", "Too many requests");
+            return;
+        }
+        
+        metricsService.recordSniffResult(documentType.name(), key.getCustomerId(), "accepted");
+        wrapped.setAttribute(SniffedHeader.REQUEST_ATTRIBUTE, header);
+        
+        if (!route.equals(path)) {
+            log.info("Routing {} received on {} to {}", documentType.getElementName(), path, route);
+            wrapped.getRequestDispatcher(route).forward(wrapped, response);
+            return;
+        }
+        
+        chain.doFilter(wrapped, response);
+    }
+    
+    private void reject(HttpServletResponse response, SniffedHeader header, int status, String reason,
+                        String message) throws IOException {
+        String customerId = header.getCustomerId() != null ? header.getCustomerId() : "unresolved";
+        metricsService.recordSniffResult(header.getDocumentType().name(), customerId, reason);
+        
+        response.setStatus(status);
+        response.setContentType("text/xml");
+        response.getWriter().write(responseBuilder.buildErrorResponse(status, message));
+    }
+}
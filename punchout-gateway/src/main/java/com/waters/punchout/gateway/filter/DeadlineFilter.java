@@ -0,0 +1,46 @@
+package com.waters.punchout.gateway.filter;
+
+import com.waters.punchout.gateway.config.DeadlineProperties;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.deadline.RequestDeadlines;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Starts the deadline of setup and order requests at arrival, ahead of the other
+ * filters, and binds it to the serving thread until the response is written.
+ */
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class DeadlineFilter implements Filter {
+
+    private final DeadlineProperties properties;
+    private final RequestDeadlines requestDeadlines;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        long arrival = System.nanoTime();
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+
+        if (!properties.isEnabled() || !"POST".equals(httpRequest.getMethod()) || !path.startsWith("/punchout/")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        DeadlineContext.set(requestDeadlines.start(arrival, httpRequest.getHeader(properties.getHeader())));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DeadlineContext.clear();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.waters.punchout.gateway.filter;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a bounded prefix of the request body up front and replays it ahead of
+ * the unread remainder, so the body is still consumed exactly once downstream.
+ */
+class PrefixReplayRequestWrapper extends HttpServletRequestWrapper {
+    
+    private final byte[] prefix;
+    private final int prefixLength;
+    private ServletInputStream inputStream;
+    
+    PrefixReplayRequestWrapper(HttpServletRequest request, int maxBytes) throws IOException {
+        super(request);
+        this.prefix = new byte[maxBytes];
+        
+        ServletInputStream in = request.getInputStream();
+        int total = 0;
+        int read;
+        while (total < maxBytes && (read = in.read(prefix, total, maxBytes - total)) != -1) {
+            total += read;
+        }
+        this.prefixLength = total;
+    }
+    
+    byte[] getPrefix() {
+        return prefix;
+    }
+    
+    int getPrefixLength() {
+        return prefixLength;
+    }
+    
+    /**
+     * Whether the prefix may stop short of the end of the body.
+     */
+    boolean isTruncated() {
+        return prefixLength == prefix.length;
+    }
+    
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new ReplayInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+    
+    @Override
+    public BufferedReader getReader() throws IOException {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+    
+    private class ReplayInputStream extends ServletInputStream {
+        
+        private final ServletInputStream remainder;
+        private int position;
+        
+        private ReplayInputStream(ServletInputStream remainder) {
+            this.remainder = remainder;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (position < prefixLength) {
+                return prefix[position++] & 0xff;
+            }
+            return remainder.read();
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position < prefixLength) {
+                int count = Math.min(len, prefixLength - position);
+                System.arraycopy(prefix, position, b, off, count);
+                position += count;
+                return count;
+            }
+            return remainder.read(b, off, len);
+        }
+        
+        @Override
+        public boolean isFinished() {
+            return position >= prefixLength && remainder.isFinished();
+        }
+        
+        @Override
+        public boolean isReady() {
+            return position < prefixLength || remainder.isReady();
+        }
+        
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            remainder.setReadListener(readListener);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.waters.punchout.gateway.health;
+
+import com.waters.punchout.gateway.client.DownstreamWebClients;
+import com.waters.punchout.gateway.entity.EnvironmentConfig;
+import com.waters.punchout.gateway.service.EnvironmentConfigService;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Probes MongoDB and the Auth and Mule services of every enabled environment on a
+ * fixed delay and keeps the last result of each in memory, so health checks never
+ * wait on a dependency. Probes run concurrently, at most punchout.health.max-concurrency
+ * at a time, each bounded by punchout.health.probe-timeout-ms. A round blocks until its
+ * probes finish, so rounds run on their own scheduler rather than the @Scheduled pool.
+ */
+@Component
+@Slf4j
+public class DependencyHealthProber {
+
+    public static final String AUTH_SERVICE = "authService";
+    public static final String MULE_SERVICE = "muleService";
+
+    private final DownstreamWebClients webClients;
+    private final EnvironmentConfigService environmentConfigService;
+    private final MongoTemplate mongoTemplate;
+    private final TaskScheduler probeScheduler;
+
+    private final String currentEnvironment;
+    private final Duration probeTimeout;
+    private final int maxConcurrency;
+    private final Duration initialDelay;
+    private final Duration probeInterval;
+
+    /** environment -> service -> last result */
+    private final Map<String, Map<String, ProbeResult>> results = new ConcurrentHashMap<>();
+    private volatile ProbeResult mongoResult;
+    private volatile Set<String> environments;
+    /** "environment.service" -> URL last read from the environment config */
+    private final Map<String, String> urls = new ConcurrentHashMap<>();
+
+    public DependencyHealthProber(
+            DownstreamWebClients webClients,
+            EnvironmentConfigService environmentConfigService,
+            MongoTemplate mongoTemplate,
+            @Qualifier("healthProbeScheduler") TaskScheduler probeScheduler,
+            @Value("${app.environment:dev}") String currentEnvironment,
+            @Value("${punchout.health.probe-timeout-ms:5000}") long probeTimeoutMs,
+            @Value("${punchout.health.max-concurrency:4}") int maxConcurrency,
+            @Value("${punchout.health.initial-delay-ms:0}") long initialDelayMs,
+            @Value("${punchout.health.probe-interval-ms:15000}") long probeIntervalMs
+    ) {
+        this.webClients = webClients;
+        this.environmentConfigService = environmentConfigService;
+        this.mongoTemplate = mongoTemplate;
+        this.probeScheduler = probeScheduler;
+        this.currentEnvironment = EnvironmentUtil.normalize(currentEnvironment);
+        this.probeTimeout = Duration.ofMillis(probeTimeoutMs);
+        this.maxConcurrency = maxConcurrency;
+        this.initialDelay = Duration.ofMillis(initialDelayMs);
+        this.probeInterval = Duration.ofMillis(probeIntervalMs);
+        this.environments = Collections.singleton(this.currentEnvironment);
+    }
+
+    @PostConstruct
+    public void start() {
+        probeScheduler.scheduleWithFixedDelay(this::probeAll, Instant.now().plus(initialDelay), probeInterval);
+    }
+
+    public void probeAll() {
+        mongoResult = timed(Mono.fromCallable(() -> mongoTemplate.executeCommand("{ ping: 1 }"))
+                .subscribeOn(Schedulers.boundedElastic()))
+                .block();
+        boolean configReadable = mongoResult.isReachable();
+        if (configReadable) {
+            refreshEnvironments();
+        }
+
+        List<Mono<Void>> probes = new ArrayList<>();
+        for (String environment : environments) {
+            probes.add(probeService(environment, AUTH_SERVICE, configReadable));
+            probes.add(probeService(environment, MULE_SERVICE, configReadable));
+        }
+        Flux.fromIterable(probes)
+                .flatMap(probe -> probe, maxConcurrency)
+                .then()
+                .block(probeTimeout.multipliedBy(probes.size()).plusSeconds(1));
+    }
+
+    public ProbeResult getMongoResult() {
+        return mongoResult;
+    }
+
+    public String getCurrentEnvironment() {
+        return currentEnvironment;
+    }
+
+    /**
+     * Last result per service for each probed environment.
+     */
+    public Map<String, Map<String, ProbeResult>> getResults() {
+        return results;
+    }
+
+    private Mono<Void> probeService(String environment, String service, boolean configReadable) {
+        String key = environment + "." + service;
+        String url = urls.get(key);
+        if (configReadable) {
+            try {
+                url = AUTH_SERVICE.equals(service)
+                        ? environmentConfigService.getAuthServiceUrl(environment)
+                        : environmentConfigService.getMuleServiceUrl(environment);
+                if (url != null) {
+                    urls.put(key, url);
+                } else {
+                    urls.remove(key);
+                }
+            } catch (Exception e) {
+                log.debug("Using last known {} URL for {}: {}", service, environment, e.getMessage());
+            }
+        } else if (url == null) {
+            // MongoDB is down and this URL was never loaded; nothing to probe
+            store(environment, service, new ProbeResult(ProbeResult.Status.UNREACHABLE, 0, Instant.now(),
+                    "configuration unavailable"));
+            return Mono.empty();
+        }
+        if (url == null) {
+            store(environment, service, new ProbeResult(ProbeResult.Status.NOT_CONFIGURED, 0, Instant.now(), null));
+            return Mono.empty();
+        }
+
+        String pool = AUTH_SERVICE.equals(service) ? DownstreamWebClients.AUTH : DownstreamWebClients.MULE;
+        // Any HTTP answer below 500 proves the service is up; the URLs are POST endpoints
+        return timed(webClients.get(environment, pool).method(HttpMethod.GET)
+                .uri(url)
+                .exchangeToMono(response -> response.releaseBody().then(Mono.fromCallable(() -> {
+                    if (response.statusCode().is5xxServerError()) {
+                        throw new IllegalStateException("HTTP " + response.rawStatusCode());
+                    }
+                    return response.rawStatusCode();
+                }))))
+                .doOnNext(result -> store(environment, service, result))
+                .then();
+    }
+
+    private Mono<ProbeResult> timed(Mono<?> probe) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return probe
+                    .timeout(probeTimeout)
+                    .map(ok -> new ProbeResult(ProbeResult.Status.REACHABLE, elapsedMs(start), Instant.now(), null))
+                    .onErrorResume(e -> Mono.just(new ProbeResult(ProbeResult.Status.UNREACHABLE, elapsedMs(start),
+                            Instant.now(), e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName())));
+        });
+    }
+
+    private void store(String environment, String service, ProbeResult result) {
+        ProbeResult previous = results.computeIfAbsent(environment, e -> new ConcurrentHashMap<>()).put(service, result);
+        if (!result.isReachable() && (previous == null || previous.isReachable())) {
+            log.warn("{} in {} is {}: {}", service, environment, result.getStatus(), result.getDetail());
+        } else if (result.isReachable() && previous != null && !previous.isReachable()) {
+            log.info("{} in {} is reachable again", service, environment);
+        }
+    }
+
+    private void refreshEnvironments() {
+        try {
+            Set<String> probed = new LinkedHashSet<>();
+            probed.add(currentEnvironment);
+            for (EnvironmentConfig config : environmentConfigService.getAllConfigs()) {
+                if (Boolean.TRUE.equals(config.getEnabled()) && EnvironmentUtil.isValid(config.getEnvironment())) {
+                    probed.add(EnvironmentUtil.normalize(config.getEnvironment()));
+                }
+            }
+            results.keySet().retainAll(probed);
+            environments = probed;
+        } catch (Exception e) {
+            log.debug("Keeping probed environments {}: {}", environments, e.getMessage());
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
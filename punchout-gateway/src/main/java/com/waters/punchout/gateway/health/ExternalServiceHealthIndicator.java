@@ -1,116 +1,84 @@
 package com.waters.punchout.gateway.health;
 
-import com.waters.punchout.gateway.service.EnvironmentConfigService;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
- * Health check for external services (Auth Service, Mule Service).
- * Reports detailed status for each dependency.
+ * Health check for external services (Auth Service, Mule Service, MongoDB).
+ * Reports the last result of the background {@link DependencyHealthProber} for each
+ * dependency and makes no calls itself. The gateway is DOWN when MongoDB or the
+ * services of the current environment are unreachable, or when their last probe is
+ * older than punchout.health.stale-after-ms; other environments are reported only.
  */
 @Component
-@Slf4j
 public class ExternalServiceHealthIndicator implements HealthIndicator {
 
-    private final WebClient webClient;
-    private final EnvironmentConfigService environmentConfigService;
-    
-    private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(5);
+    private final DependencyHealthProber prober;
+    private final Duration staleAfter;
 
     public ExternalServiceHealthIndicator(
-            WebClient.Builder webClientBuilder,
-            EnvironmentConfigService environmentConfigService
+            DependencyHealthProber prober,
+            @Value("${punchout.health.stale-after-ms:60000}") long staleAfterMs
     ) {
-        this.webClient = webClientBuilder.build();
-        this.environmentConfigService = environmentConfigService;
+        this.prober = prober;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
     }
 
     @Override
     public Health health() {
-        Health.Builder healthBuilder = Health.up();
-        boolean allHealthy = true;
-
-        // Check auth service for dev environment
-        String authServiceStatus = checkAuthService();
-        healthBuilder.withDetail("authService", authServiceStatus);
-        if (!"reachable".equals(authServiceStatus)) {
-            allHealthy = false;
+        ProbeResult mongo = prober.getMongoResult();
+        if (mongo == null) {
+            return Health.unknown().withDetail("reason", "dependencies not probed yet").build();
         }
 
-        // Check mule service for dev environment
-        String muleServiceStatus = checkMuleService();
-        healthBuilder.withDetail("muleService", muleServiceStatus);
-        if (!"reachable".equals(muleServiceStatus)) {
-            allHealthy = false;
-        }
+        Instant staleBefore = Instant.now().minus(staleAfter);
+        boolean allHealthy = isHealthy(mongo, staleBefore);
 
-        // Check MongoDB
-        String mongoStatus = checkMongoDB();
-        healthBuilder.withDetail("mongodb", mongoStatus);
-        if (!"reachable".equals(mongoStatus)) {
-            allHealthy = false;
+        Map<String, Object> environments = new TreeMap<>();
+        Map<String, Map<String, ProbeResult>> results = prober.getResults();
+        for (Map.Entry<String, Map<String, ProbeResult>> environment : results.entrySet()) {
+            Map<String, Object> services = new TreeMap<>();
+            environment.getValue().forEach((service, result) -> services.put(service, describe(result, staleBefore)));
+            environments.put(environment.getKey(), services);
         }
 
-        return allHealthy ? healthBuilder.build() : healthBuilder.down().build();
-    }
-
-    private String checkAuthService() {
-        try {
-            String authUrl = environmentConfigService.getAuthServiceUrl("dev");
-            if (authUrl == null) {
-                return "not_configured";
+        Map<String, ProbeResult> current = results.get(prober.getCurrentEnvironment());
+        for (String service : new String[]{DependencyHealthProber.AUTH_SERVICE, DependencyHealthProber.MULE_SERVICE}) {
+            ProbeResult result = current != null ? current.get(service) : null;
+            if (result == null || !isHealthy(result, staleBefore)) {
+                allHealthy = false;
             }
-            
-            // Try to reach the service (doesn't need to be a valid endpoint, just check connectivity)
-            webClient.get()
-                    .uri(authUrl)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .timeout(HEALTH_CHECK_TIMEOUT)
-                    .block();
-            
-            return "reachable";
-        } catch (Exception e) {
-            log.warn("Auth service health check failed: {}", e.getMessage());
-            return "unreachable: " + e.getMessage();
         }
+
+        Health.Builder healthBuilder = allHealthy ? Health.up() : Health.down();
+        return healthBuilder
+                .withDetail("environment", prober.getCurrentEnvironment())
+                .withDetail("mongodb", describe(mongo, staleBefore))
+                .withDetail("environments", environments)
+                .build();
     }
 
-    private String checkMuleService() {
-        try {
-            String muleUrl = environmentConfigService.getMuleServiceUrl("dev");
-            if (muleUrl == null) {
-                return "not_configured";
-            }
-            
-            // Try to reach the service
-            webClient.get()
-                    .uri(muleUrl)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .timeout(HEALTH_CHECK_TIMEOUT)
-                    .block();
-            
-            return "reachable";
-        } catch (Exception e) {
-            log.warn("Mule service health check failed: {}", e.getMessage());
-            return "unreachable: " + e.getMessage();
-        }
+    private boolean isHealthy(ProbeResult result, Instant staleBefore) {
+        return result.isReachable() && !result.getCheckedAt().isBefore(staleBefore);
     }
 
-    private String checkMongoDB() {
-        try {
-            // Try to get environment config (this will fail if MongoDB is down)
-            environmentConfigService.getConfig("dev");
-            return "reachable";
-        } catch (Exception e) {
-            log.warn("MongoDB health check failed: {}", e.getMessage());
-            return "unreachable: " + e.getMessage();
+    private Map<String, Object> describe(ProbeResult result, Instant staleBefore) {
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("status", result.getCheckedAt().isBefore(staleBefore)
+                ? "stale" : result.getStatus().name().toLowerCase());
+        detail.put("latencyMs", result.getLatencyMs());
+        detail.put("checkedAt", result.getCheckedAt().toString());
+        if (result.getDetail() != null) {
+            detail.put("error", result.getDetail());
         }
+        return detail;
     }
 }
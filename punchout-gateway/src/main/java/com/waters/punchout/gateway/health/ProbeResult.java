@@ -0,0 +1,25 @@
+package com.waters.punchout.gateway.health;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Outcome of one background probe of a dependency.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProbeResult {
+
+    public enum Status { REACHABLE, UNREACHABLE, NOT_CONFIGURED }
+
+    private final Status status;
+    private final long latencyMs;
+    private final Instant checkedAt;
+    private final String detail;
+
+    public boolean isReachable() {
+        return status == Status.REACHABLE;
+    }
+}
@@ -2,26 +2,40 @@ package com.waters.punchout.gateway.logging;
 
 import com.waters.punchout.gateway.repository.NetworkRequestRepository;
 import com.waters.punchout.gateway.entity.NetworkRequestDocument;
+import com.waters.punchout.gateway.service.CapturePolicyService;
 import com.waters.punchout.gateway.service.EnvironmentConfigService;
+import com.waters.punchout.gateway.util.IdGenerator;
 import com.waters.punchout.gateway.util.SecurityUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.Map;
-import java.util.UUID;
 
+/**
+ * Captures network requests into network_requests. Documents are handed to
+ * {@link RequestLogWriter}, so callers never wait on the insert. Headers and bodies are
+ * kept only where {@link CapturePolicyService} says so; metadata is kept for every request.
+ * Inbound requests are logged before their outcome is known, so they are held with their
+ * payload until {@link #completeInbound} decides what to keep and writes them once.
+ */
 @Service
 @Slf4j
 public class NetworkRequestLogger {
 
     private final NetworkRequestRepository networkRequestRepository;
     private final EnvironmentConfigService environmentConfigService;
+    private final RequestLogWriter requestLogWriter;
+    private final CapturePolicyService capturePolicyService;
 
     public NetworkRequestLogger(NetworkRequestRepository networkRequestRepository,
-                                EnvironmentConfigService environmentConfigService) {
+                                EnvironmentConfigService environmentConfigService,
+                                RequestLogWriter requestLogWriter,
+                                CapturePolicyService capturePolicyService) {
         this.networkRequestRepository = networkRequestRepository;
         this.environmentConfigService = environmentConfigService;
+        this.requestLogWriter = requestLogWriter;
+        this.capturePolicyService = capturePolicyService;
     }
     
     private String maskIfRequired(String body, String environment) {
@@ -38,17 +52,34 @@ public class NetworkRequestLogger {
         return SecurityUtil.maskHeaders(headers);
     }
     
-    private String extractEnvironmentFromSessionKey(String sessionKey) {
-        if (sessionKey == null || !sessionKey.startsWith("SESSION_")) {
-            return null;
+    /**
+     * Applies the capture policy: records the decision on the document and, when only
+     * metadata is kept, how many payload bytes were left out.
+     */
+    private boolean capturePayload(NetworkRequestDocument document, Boolean success,
+                                   Integer statusCode, Long duration, long payloadBytes) {
+        String sessionKey = document.getSessionKey();
+        boolean full = capturePolicyService.captureFull(document.getEnvironment(), document.getCustomer(),
+                sessionKey != null ? sessionKey : document.getRequestId(), success, statusCode, duration);
+        document.setPayloadCaptured(full);
+        if (!full) {
+            capturePolicyService.recordSkipped(document.getEnvironment(), payloadBytes);
         }
-        // Format: SESSION_{ENV}_{customer}_{env}_{id}_{timestamp}
-        // e.g., SESSION_PROD_tradecentric_prod_IC692112fbc6691_1765630061164
-        String[] parts = sessionKey.split("_");
-        if (parts.length >= 2) {
-            return parts[1].toLowerCase();
+        return full;
+    }
+    
+    private static long sizeOf(String body) {
+        return body != null ? body.length() : 0;
+    }
+    
+    private static long sizeOf(Map<String, String> headers) {
+        long size = 0;
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                size += sizeOf(header.getKey()) + sizeOf(header.getValue());
+            }
         }
-        return null;
+        return size;
     }
     
     public static class OrderContext {
@@ -65,6 +96,8 @@ public class NetworkRequestLogger {
 
     public NetworkRequestDocument logInboundRequest(
             String sessionKey,
+            String environment,
+            String customer,
             String source,
             String destination,
             String method,
@@ -74,29 +107,54 @@ public class NetworkRequestLogger {
             String requestType
     ) {
         log.debug("Logging inbound request for sessionKey={}", sessionKey);
-        
-        String environment = extractEnvironmentFromSessionKey(sessionKey);
+
 
         NetworkRequestDocument document = new NetworkRequestDocument();
         document.setRequestId(generateRequestId());
         document.setSessionKey(sessionKey);
+        document.setEnvironment(environment);
+        document.setCustomer(customer);
         document.setTimestamp(LocalDateTime.now());
         document.setDirection("INBOUND");
         document.setSource(source);
         document.setDestination(destination);
         document.setMethod(method);
         document.setUrl(url);
+        document.setRequestType(requestType);
+        // Provisional until completeInbound knows the outcome the capture policy needs
         document.setHeaders(maskHeadersIfRequired(headers, environment));
         document.setRequestBody(maskIfRequired(requestBody, environment));
-        document.setRequestType(requestType);
 
-        NetworkRequestDocument saved = networkRequestRepository.save(document);
-        log.info("Logged inbound request: requestId={}, sessionKey={}", saved.getRequestId(), sessionKey);
-        return saved;
+        log.info("Logged inbound request: requestId={}, sessionKey={}", document.getRequestId(), sessionKey);
+        return document;
+    }
+
+    /**
+     * Writes an inbound request returned by {@link #logInboundRequest} or
+     * {@link #logInboundOrderRequest} once the request has finished. The capture policy
+     * sees the outcome, so a failed or slow request keeps its payload whether or not its
+     * session was sampled; otherwise only metadata is written.
+     */
+    public void completeInbound(NetworkRequestDocument document, Integer statusCode, Long duration,
+                                Boolean success, String errorMessage) {
+        document.setStatusCode(statusCode);
+        document.setDuration(duration);
+        document.setSuccess(success);
+        document.setErrorMessage(errorMessage);
+        if (!capturePayload(document, success, statusCode, duration,
+                sizeOf(document.getHeaders()) + sizeOf(document.getRequestBody()))) {
+            document.setHeaders(null);
+            document.setRequestBody(null);
+        }
+        
+        requestLogWriter.submit(document);
+        log.debug("Completed inbound request: requestId={}, success={}", document.getRequestId(), success);
     }
 
     public NetworkRequestDocument logOutboundRequest(
             String sessionKey,
+            String environment,
+            String customer,
             String source,
             String destination,
             String method,
@@ -112,32 +170,36 @@ public class NetworkRequestLogger {
             String errorMessage
     ) {
         log.debug("Logging outbound request for sessionKey={}", sessionKey);
-        
-        String environment = extractEnvironmentFromSessionKey(sessionKey);
+
 
         NetworkRequestDocument document = new NetworkRequestDocument();
         document.setRequestId(generateRequestId());
         document.setSessionKey(sessionKey);
+        document.setEnvironment(environment);
+        document.setCustomer(customer);
         document.setTimestamp(LocalDateTime.now());
         document.setDirection("OUTBOUND");
         document.setSource(source);
         document.setDestination(destination);
         document.setMethod(method);
         document.setUrl(url);
-        document.setHeaders(maskHeadersIfRequired(headers, environment));
-        document.setRequestBody(maskIfRequired(requestBody, environment));
         document.setStatusCode(statusCode);
-        document.setResponseHeaders(maskHeadersIfRequired(responseHeaders, environment));
-        document.setResponseBody(maskIfRequired(responseBody, environment));
         document.setDuration(duration);
         document.setRequestType(requestType);
         document.setSuccess(success);
         document.setErrorMessage(errorMessage);
+        if (capturePayload(document, success, statusCode, duration,
+                sizeOf(headers) + sizeOf(requestBody) + sizeOf(responseHeaders) + sizeOf(responseBody))) {
+            document.setHeaders(maskHeadersIfRequired(headers, environment));
+            document.setRequestBody(maskIfRequired(requestBody, environment));
+            document.setResponseHeaders(maskHeadersIfRequired(responseHeaders, environment));
+            document.setResponseBody(maskIfRequired(responseBody, environment));
+        }
 
-        NetworkRequestDocument saved = networkRequestRepository.save(document);
+        requestLogWriter.submit(document);
         log.info("Logged outbound request: requestId={}, sessionKey={}, success={}", 
-                saved.getRequestId(), sessionKey, success);
-        return saved;
+                document.getRequestId(), sessionKey, success);
+        return document;
     }
 
     public void updateRequestResponse(
@@ -150,13 +212,16 @@ public class NetworkRequestLogger {
             String errorMessage
     ) {
         networkRequestRepository.findById(requestId).ifPresent(document -> {
-            String environment = extractEnvironmentFromSessionKey(document.getSessionKey());
+            String environment = document.getEnvironment();
             document.setStatusCode(statusCode);
-            document.setResponseHeaders(maskHeadersIfRequired(responseHeaders, environment));
-            document.setResponseBody(maskIfRequired(responseBody, environment));
             document.setDuration(duration);
             document.setSuccess(success);
             document.setErrorMessage(errorMessage);
+            if (capturePayload(document, success, statusCode, duration,
+                    sizeOf(responseHeaders) + sizeOf(responseBody))) {
+                document.setResponseHeaders(maskHeadersIfRequired(responseHeaders, environment));
+                document.setResponseBody(maskIfRequired(responseBody, environment));
+            }
             networkRequestRepository.save(document);
             log.debug("Updated request response: requestId={}", requestId);
         });
@@ -164,6 +229,8 @@ public class NetworkRequestLogger {
 
     public NetworkRequestDocument logInboundOrderRequest(
             String sessionKey,
+            String environment,
+            String customer,
             String orderId,
             String source,
             String destination,
@@ -174,12 +241,13 @@ public class NetworkRequestLogger {
             String requestType
     ) {
         log.debug("Logging inbound order request for orderId={}", orderId);
-        
-        String environment = extractEnvironmentFromSessionKey(sessionKey);
+
 
         NetworkRequestDocument document = new NetworkRequestDocument();
         document.setRequestId(generateRequestId());
         document.setSessionKey(sessionKey);
+        document.setEnvironment(environment);
+        document.setCustomer(customer);
         document.setOrderId(orderId);
         document.setTimestamp(LocalDateTime.now());
         document.setDirection("INBOUND");
@@ -187,16 +255,16 @@ public class NetworkRequestLogger {
         document.setDestination(destination);
         document.setMethod(method);
         document.setUrl(url);
+        document.setRequestType(requestType);
+        // Provisional until completeInbound knows the outcome the capture policy needs
         document.setHeaders(maskHeadersIfRequired(headers, environment));
         document.setRequestBody(maskIfRequired(requestBody, environment));
-        document.setRequestType(requestType);
 
-        NetworkRequestDocument saved = networkRequestRepository.save(document);
-        log.info("Logged inbound order request: requestId={}, orderId={}", saved.getRequestId(), orderId);
-        return saved;
+        log.info("Logged inbound order request: requestId={}, orderId={}", document.getRequestId(), orderId);
+        return document;
     }
     
     private String generateRequestId() {
-        return "REQ_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
+        return IdGenerator.nextId("REQ_");
     }
 }
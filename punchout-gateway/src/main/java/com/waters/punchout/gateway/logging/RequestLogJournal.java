@@ -0,0 +1,267 @@
+package com.waters.punchout.gateway.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of fixed-size, memory-mapped segment files. Each record is
+ * [length][crc32][payload]; a zero length or a checksum mismatch marks the end of the
+ * written part of a segment, so a record torn by a crash is ignored. The read position
+ * is kept in a checkpoint file that is replaced atomically once the records before it
+ * have been stored elsewhere; segments wholly before the checkpoint are deleted. The
+ * segments not yet read are capped at maxBytes, after which appends are refused.
+ *
+ * Records may be appended from any thread; reading and committing is done by one.
+ */
+final class RequestLogJournal implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxSegments;
+    private final Path checkpointFile;
+
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private long readSegment;
+    private int readOffset;
+    private long mappedReadSegment = -1;
+    private ByteBuffer readBuffer;
+    private volatile long pending;
+
+    RequestLogJournal(Path directory, int segmentBytes, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxBytes / segmentBytes);
+        this.checkpointFile = directory.resolve("checkpoint");
+        Files.createDirectories(directory);
+
+        List<Long> segments = segments();
+        if (Files.exists(checkpointFile)) {
+            String[] checkpoint = Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim().split(" ");
+            readSegment = Long.parseLong(checkpoint[0]);
+            readOffset = Integer.parseInt(checkpoint[1]);
+        }
+        if (segments.isEmpty() || segments.get(segments.size() - 1) < readSegment) {
+            writeSegment = Math.max(readSegment, 1);
+            writeBuffer = map(writeSegment, FileChannel.MapMode.READ_WRITE);
+        } else {
+            writeSegment = segments.get(segments.size() - 1);
+            writeBuffer = map(writeSegment, FileChannel.MapMode.READ_WRITE);
+            writeBuffer.position(end(writeBuffer, 0, segmentBytes));
+        }
+        if (readSegment < segments.stream().findFirst().orElse(writeSegment)) {
+            readSegment = segments.stream().findFirst().orElse(writeSegment);
+            readOffset = 0;
+        }
+
+        long count = 0;
+        for (long segment : segments) {
+            if (segment >= readSegment) {
+                ByteBuffer buffer = segment == writeSegment ? writeBuffer : map(segment, FileChannel.MapMode.READ_ONLY);
+                int offset = segment == readSegment ? readOffset : 0;
+                int limit = segment == writeSegment ? writeBuffer.position() : segmentBytes;
+                while ((offset = next(buffer, offset, limit)) > 0) {
+                    count++;
+                }
+            }
+        }
+        pending = count;
+    }
+
+    /**
+     * Appends a record; false if it is larger than a segment or the journal is full.
+     */
+    synchronized boolean append(byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            return false;
+        }
+        if (writeBuffer.remaining() < size) {
+            if (writeSegment - readSegment + 1 >= maxSegments) {
+                return false;
+            }
+            if (writeBuffer.remaining() >= Integer.BYTES) {
+                writeBuffer.putInt(writeBuffer.position(), 0);
+            }
+            writeSegment++;
+            writeBuffer = map(writeSegment, FileChannel.MapMode.READ_WRITE);
+        }
+        int position = writeBuffer.position();
+        ByteBuffer data = writeBuffer.duplicate();
+        data.position(position + HEADER_BYTES);
+        data.put(payload);
+        writeBuffer.putInt(position + Integer.BYTES, checksum(ByteBuffer.wrap(payload)));
+        // Length last, so a record is only visible once complete
+        writeBuffer.putInt(position, payload.length);
+        writeBuffer.position(position + size);
+        pending++;
+        return true;
+    }
+
+    /**
+     * Up to max records from the read position, without moving it.
+     */
+    synchronized Batch read(int max) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long segment = readSegment;
+        int offset = readOffset;
+        while (records.size() < max) {
+            ByteBuffer buffer = segment == writeSegment ? writeBuffer : readBuffer(segment);
+            int limit = segment == writeSegment ? writeBuffer.position() : segmentBytes;
+            int next = next(buffer, offset, limit);
+            if (next > 0) {
+                byte[] payload = new byte[next - offset - HEADER_BYTES];
+                ByteBuffer record = buffer.duplicate();
+                record.position(offset + HEADER_BYTES);
+                record.get(payload);
+                records.add(payload);
+                offset = next;
+            } else if (segment < writeSegment) {
+                segment++;
+                offset = 0;
+            } else {
+                break;
+            }
+        }
+        return new Batch(records, segment, offset);
+    }
+
+    /**
+     * Moves the read position past the batch and persists it.
+     */
+    synchronized void commit(Batch batch) throws IOException {
+        if (batch.segment == readSegment && batch.offset == readOffset) {
+            return;
+        }
+        Path temporary = directory.resolve("checkpoint.tmp");
+        Files.writeString(temporary, batch.segment + " " + batch.offset, StandardCharsets.US_ASCII);
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        readSegment = batch.segment;
+        readOffset = batch.offset;
+        pending -= batch.records.size();
+        for (long segment : segments()) {
+            if (segment < readSegment) {
+                Files.deleteIfExists(segmentFile(segment));
+            }
+        }
+        if (mappedReadSegment < readSegment) {
+            mappedReadSegment = -1;
+            readBuffer = null;
+        }
+    }
+
+    long pending() {
+        return pending;
+    }
+
+    synchronized void sync() {
+        writeBuffer.force();
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+
+    private ByteBuffer readBuffer(long segment) throws IOException {
+        if (segment != mappedReadSegment) {
+            readBuffer = Files.exists(segmentFile(segment))
+                    ? map(segment, FileChannel.MapMode.READ_ONLY)
+                    : ByteBuffer.allocate(0);
+            mappedReadSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private MappedByteBuffer map(long segment, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(segmentFile(segment), options)) {
+            return channel.map(mode, 0, mode == FileChannel.MapMode.READ_ONLY ? channel.size() : segmentBytes);
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentFile(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * End of the valid records from offset on.
+     */
+    private static int end(ByteBuffer buffer, int offset, int limit) {
+        int next;
+        while ((next = next(buffer, offset, limit)) > 0) {
+            offset = next;
+        }
+        return offset;
+    }
+
+    /**
+     * Offset after the complete record at offset, or -1 if there is none.
+     */
+    private static int next(ByteBuffer buffer, int offset, int limit) {
+        limit = Math.min(limit, buffer.capacity());
+        if (offset + HEADER_BYTES > limit) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > limit - offset - HEADER_BYTES) {
+            return -1;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length);
+        if (checksum(payload) != buffer.getInt(offset + Integer.BYTES)) {
+            return -1;
+        }
+        return offset + HEADER_BYTES + length;
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static final class Batch {
+        private final List<byte[]> records;
+        private final long segment;
+        private final int offset;
+
+        private Batch(List<byte[]> records, long segment, int offset) {
+            this.records = records;
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        List<byte[]> records() {
+            return records;
+        }
+    }
+}
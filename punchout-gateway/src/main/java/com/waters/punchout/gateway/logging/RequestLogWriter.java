@@ -0,0 +1,203 @@
+package com.waters.punchout.gateway.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waters.punchout.gateway.config.RequestLogProperties;
+import com.waters.punchout.gateway.entity.NetworkRequestDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Stores captured network requests without making the request thread wait on MongoDB.
+ *
+ * Requests are queued and bulk-inserted on a fixed delay. When the queue is full, or
+ * while MongoDB is failing, they are appended to a local {@link RequestLogJournal}
+ * instead, and each flush replays the journal in batches once inserts succeed again.
+ * Once the journal holds max-journal-bytes, further requests are dropped and counted.
+ * Every document gets its id when captured, so a batch that was partly inserted before
+ * failing can be replayed in full: the duplicates it produces are ignored.
+ */
+@Component
+@Slf4j
+public class RequestLogWriter {
+
+    private static final int MAX_REPLAY_BATCHES_PER_FLUSH = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final RequestLogProperties properties;
+    private final BlockingQueue<NetworkRequestDocument> queue;
+    private final RequestLogJournal journal;
+    private final Counter journaled;
+    private final Counter replayed;
+    private final Counter dropped;
+    private volatile boolean mongoAvailable = true;
+
+    public RequestLogWriter(MongoTemplate mongoTemplate, ObjectMapper objectMapper,
+                            RequestLogProperties properties, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getMaxBufferedRequests());
+        this.journal = openJournal(properties);
+        Gauge.builder("punchout.request-log.buffered", queue, BlockingQueue::size)
+                .description("Captured requests waiting to be inserted")
+                .register(meterRegistry);
+        if (journal != null) {
+            Gauge.builder("punchout.request-log.journal.pending", journal, RequestLogJournal::pending)
+                    .description("Captured requests in the local journal not yet replayed into MongoDB")
+                    .register(meterRegistry);
+        }
+        this.journaled = Counter.builder("punchout.request-log.journaled")
+                .description("Captured requests written to the local journal")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("punchout.request-log.replayed")
+                .description("Captured requests replayed from the local journal into MongoDB")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("punchout.request-log.dropped")
+                .description("Captured requests lost because neither MongoDB nor the journal (missing or full) took them")
+                .register(meterRegistry);
+    }
+
+    public void submit(NetworkRequestDocument document) {
+        if (document.getId() == null) {
+            document.setId(new ObjectId().toHexString());
+        }
+        if (!mongoAvailable || !queue.offer(document)) {
+            append(List.of(document));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${punchout.request-log.flush-interval-ms:1000}",
+            fixedDelayString = "${punchout.request-log.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        drainQueue();
+        if (journal != null) {
+            replay();
+            journal.sync();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        drainQueue();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void drainQueue() {
+        List<NetworkRequestDocument> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            if (!mongoAvailable || !insert(batch)) {
+                append(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void replay() {
+        try {
+            for (int i = 0; i < MAX_REPLAY_BATCHES_PER_FLUSH; i++) {
+                RequestLogJournal.Batch batch = journal.read(properties.getBatchSize());
+                List<NetworkRequestDocument> documents = new ArrayList<>(batch.records().size());
+                for (byte[] record : batch.records()) {
+                    try {
+                        documents.add(objectMapper.readValue(record, NetworkRequestDocument.class));
+                    } catch (IOException e) {
+                        dropped.increment();
+                        log.warn("Skipping unreadable journal record: {}", e.getMessage());
+                    }
+                }
+                if (!documents.isEmpty() && !insert(documents)) {
+                    return;
+                }
+                journal.commit(batch);
+                replayed.increment(documents.size());
+                if (batch.records().size() < properties.getBatchSize()) {
+                    if (!mongoAvailable) {
+                        log.info("Request log journal replayed, writing to MongoDB again");
+                    }
+                    mongoAvailable = true;
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not replay request log journal: {}", e.getMessage());
+        }
+    }
+
+    private boolean insert(List<NetworkRequestDocument> documents) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NetworkRequestDocument.class);
+            bulk.insert(documents);
+            bulk.execute();
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Already inserted by an attempt that failed part-way; the rest went in
+            return true;
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().allMatch(error -> error.getCode() == 11000)) {
+                return true;
+            }
+            return failed(documents, e);
+        } catch (DataAccessException e) {
+            return failed(documents, e);
+        }
+    }
+
+    private boolean failed(List<NetworkRequestDocument> documents, DataAccessException e) {
+        if (journal == null) {
+            log.warn("Could not insert {} captured requests: {}", documents.size(), e.getMessage());
+            return false;
+        }
+        if (mongoAvailable) {
+            log.warn("Could not insert {} captured requests, journaling until MongoDB recovers: {}",
+                    documents.size(), e.getMessage());
+        }
+        mongoAvailable = false;
+        return false;
+    }
+
+    private void append(List<NetworkRequestDocument> documents) {
+        for (NetworkRequestDocument document : documents) {
+            try {
+                if (journal != null && journal.append(objectMapper.writeValueAsBytes(document))) {
+                    journaled.increment();
+                    continue;
+                }
+            } catch (IOException e) {
+                log.warn("Could not journal captured request {}: {}", document.getRequestId(), e.getMessage());
+            }
+            dropped.increment();
+        }
+    }
+
+    private static RequestLogJournal openJournal(RequestLogProperties properties) {
+        try {
+            return new RequestLogJournal(Paths.get(properties.getJournalDirectory()), properties.getJournalSegmentBytes(),
+                    properties.getMaxJournalBytes());
+        } catch (IOException | RuntimeException e) {
+            log.error("Request log journal unavailable in {}, requests that cannot be inserted will be dropped: {}",
+                    properties.getJournalDirectory(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -114,4 +114,28 @@ public class MetricsService {
                 .register(meterRegistry)
                 .increment();
     }
+
+    /**
+     * Record the outcome of the pre-parse header sniffing stage.
+     */
+    public void recordSniffResult(String documentType, String customerId, String outcome) {
+        Counter.builder("punchout.sniff.requests.total")
+                .tag("documentType", documentType)
+                .tag("customer", customerId)
+                .tag("outcome", outcome)
+                .description("Inbound cXML requests by pre-parse outcome")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Record the duration of a startup warm-up phase.
+     */
+    public void recordWarmupPhase(String phase, long durationMs) {
+        Timer.builder("punchout.warmup.duration")
+                .tag("phase", phase)
+                .description("Startup warm-up phase duration")
+                .register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+    }
 }
@@ -24,4 +24,17 @@ public class PunchOutRequest {
     
     // Customer-specific extrinsics (e.g., CostCenter, Department, Region)
     private Map<String, String> extrinsics;
+    
+    /**
+     * The CustomerName extrinsic, else the From identity, else UNKNOWN.
+     */
+    public String customerIdentifier() {
+        if (extrinsics != null) {
+            String customerName = extrinsics.get("CustomerName");
+            if (customerName != null && !customerName.isEmpty()) {
+                return customerName;
+            }
+        }
+        return fromIdentity != null ? fromIdentity : "UNKNOWN";
+    }
 }
@@ -10,6 +10,7 @@ import java.util.Optional;
 @Repository
 public interface ApiKeyRepository extends MongoRepository<ApiKey, String> {
     Optional<ApiKey> findByKeyValue(String keyValue);
+    Optional<ApiKey> findByKeyHash(String keyHash);
     List<ApiKey> findByCustomerName(String customerName);
     List<ApiKey> findByEnvironment(String environment);
     List<ApiKey> findByEnabled(Boolean enabled);
@@ -0,0 +1,15 @@
+package com.waters.punchout.gateway.repository;
+
+import com.waters.punchout.gateway.entity.CapturePolicy;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CapturePolicyRepository extends MongoRepository<CapturePolicy, String> {
+
+    List<CapturePolicy> findByEnabledTrue();
+
+    List<CapturePolicy> findByEnvironmentAndCustomer(String environment, String customer);
+}
@@ -0,0 +1,92 @@
+package com.waters.punchout.gateway.service;
+
+import com.waters.punchout.gateway.entity.ApiKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates API key usage in memory and writes it on a fixed delay as one bulk of
+ * $inc usageCount / $max lastUsedAt updates. Counts from a failed flush are kept for
+ * the next one.
+ */
+@Component
+@Slf4j
+public class ApiKeyUsageRecorder {
+
+    private final MongoTemplate mongoTemplate;
+
+    /** key id -> usage not yet written; bounded by the number of keys in use */
+    private final Map<String, Usage> pending = new ConcurrentHashMap<>();
+
+    public ApiKeyUsageRecorder(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void recordUse(ApiKey apiKey) {
+        pending.computeIfAbsent(apiKey.getId(), id -> new Usage()).record(System.currentTimeMillis());
+    }
+
+    @Scheduled(initialDelayString = "${punchout.api-key.flush-interval-ms:10000}",
+            fixedDelayString = "${punchout.api-key.flush-interval-ms:10000}")
+    @PreDestroy
+    public void flush() {
+        List<String> ids = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        BulkOperations bulk = null;
+        for (Map.Entry<String, Usage> entry : pending.entrySet()) {
+            long count = entry.getValue().count.sumThenReset();
+            if (count == 0) {
+                continue;
+            }
+            long lastUsed = entry.getValue().lastUsed.get();
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ApiKey.class);
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(entry.getKey())), new Update()
+                    .inc("usageCount", count)
+                    .max("lastUsedAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(lastUsed), ZoneId.systemDefault())));
+            ids.add(entry.getKey());
+            counts.add(count);
+        }
+        if (bulk == null) {
+            return;
+        }
+        try {
+            bulk.execute();
+            log.debug("Flushed usage of {} API keys", ids.size());
+        } catch (DataAccessException e) {
+            for (int i = 0; i < ids.size(); i++) {
+                pending.computeIfAbsent(ids.get(i), id -> new Usage()).count.add(counts.get(i));
+            }
+            log.warn("Could not flush usage of {} API keys, retrying next time: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private static final class Usage {
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong lastUsed = new AtomicLong();
+
+        private void record(long now) {
+            count.increment();
+            lastUsed.accumulateAndGet(now, Math::max);
+        }
+    }
+}
@@ -1,69 +1,320 @@
 package com.waters.punchout.gateway.service;
 
+import com.waters.punchout.gateway.config.AuthTokenProperties;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.entity.AuthTokenDocument;
+import com.waters.punchout.gateway.metrics.MetricsService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.jasypt.encryption.StringEncryptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
 /**
- * Caches auth tokens to reduce calls to the auth service.
- * Tokens are cached by environment and credentials combination.
+ * Two-tier store for Waters auth tokens, keyed by environment and auth email.
+ *
+ * Reads are served from memory. When the local token is due for refresh the replica
+ * looks in the shared auth_tokens collection first; only the replica holding the
+ * refresh lease logs in, and the others keep using the current token or, if they
+ * have none, wait up to punchout.auth-token.wait-for-refresh for the new one. If
+ * MongoDB is unavailable each replica falls back to logging in on its own.
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class AuthTokenCacheService {
 
+    private final MongoTemplate mongoTemplate;
+    private final AuthTokenProperties properties;
+    private final MetricsService metricsService;
+
+    @Autowired(required = false)
+    @Qualifier("jasyptStringEncryptor")
+    private StringEncryptor stringEncryptor;
+
+    private final String owner = ownerId();
+    private final Map<String, CachedToken> local = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> refreshLocks = new ConcurrentHashMap<>();
+
     /**
-     * Get cached token or return null if not cached.
-     * Cache key is based on environment + email combination.
-     * TTL is 30 minutes (configured in application.yml).
-     * 
-     * @param environment The environment (dev, stage, prod)
-     * @param email The auth email
-     * @return Cached token or null
+     * Returns a valid token, calling login only when this replica is the one to refresh it.
      */
-    @Cacheable(value = "authTokens", key = "#environment + ':' + #email", unless = "#result == null")
-    public String getCachedToken(String environment, String email) {
-        // Cache miss - return null
-        log.debug("Token cache miss for environment={}, email={}", environment, email);
-        return null;
+    public String getToken(String environment, String email, Supplier<String> login) {
+        String key = environment + ":" + email;
+        CachedToken cached = local.get(key);
+        if (cached != null && cached.isFresh(Instant.now())) {
+            metricsService.recordCacheAccess("authTokens", true);
+            return cached.token;
+        }
+        metricsService.recordCacheAccess("authTokens", false);
+
+        ReentrantLock lock = refreshLocks.computeIfAbsent(key, k -> new ReentrantLock());
+        if (cached != null && cached.isValid(Instant.now())) {
+            // Due for refresh but still usable: let one thread refresh, the rest carry on
+            if (!lock.tryLock()) {
+                return cached.token;
+            }
+        } else {
+            lock.lock();
+        }
+        try {
+            cached = local.get(key);
+            if (cached != null && cached.isFresh(Instant.now())) {
+                return cached.token;
+            }
+            if (!properties.isShared()) {
+                return storeLocal(key, login.get()).token;
+            }
+            return refreshShared(key, environment, email, cached, login);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String refreshShared(String key, String environment, String email, CachedToken cached,
+                                 Supplier<String> login) {
+        CachedToken shared;
+        try {
+            shared = toCached(mongoTemplate.findById(key, AuthTokenDocument.class));
+        } catch (DataAccessException e) {
+            log.warn("Shared auth token store unavailable, logging in locally for environment={}: {}",
+                    environment, e.getMessage());
+            return storeLocal(key, login.get()).token;
+        }
+        Instant now = Instant.now();
+        if (shared != null && shared.isFresh(now)) {
+            metricsService.recordCacheAccess("authTokens.shared", true);
+            local.put(key, shared);
+            return shared.token;
+        }
+        metricsService.recordCacheAccess("authTokens.shared", false);
+
+        CachedToken usable = newestValid(now, cached, shared);
+        if (tryAcquireLease(key, environment, email, now)) {
+            try {
+                CachedToken fresh = storeLocal(key, login.get());
+                publish(key, environment, email, fresh, true);
+                log.info("Refreshed shared auth token for environment={}, email={}", environment, email);
+                return fresh.token;
+            } catch (RuntimeException e) {
+                releaseLease(key);
+                if (usable != null) {
+                    log.warn("Auth token refresh failed for environment={}, using current token until {}: {}",
+                            environment, usable.expiresAt, e.getMessage());
+                    local.put(key, usable);
+                    return usable.token;
+                }
+                throw e;
+            }
+        }
+
+        if (usable != null) {
+            // Another replica is refreshing; the current token is still good
+            local.put(key, usable);
+            return usable.token;
+        }
+        CachedToken published = awaitPublished(key);
+        if (published != null) {
+            local.put(key, published);
+            return published.token;
+        }
+        log.warn("No auth token published for environment={} within {}, logging in without the lease",
+                environment, properties.getWaitForRefresh());
+        CachedToken fresh = storeLocal(key, login.get());
+        publish(key, environment, email, fresh, false);
+        return fresh.token;
     }
 
     /**
-     * Cache a token for the given environment and email.
-     * 
-     * @param environment The environment
-     * @param email The auth email
-     * @param token The auth token to cache
+     * Takes the refresh lease if nobody holds it, it has run out, or this replica holds it.
+     * The upsert conflicts on _id when another replica holds a live lease.
      */
-    public void cacheToken(String environment, String email, String token) {
-        // The @Cacheable annotation on getCachedToken will handle caching
-        // We need to manually put the value in the cache
-        log.info("Caching auth token for environment={}, email={}", environment, email);
-        // Spring Cache doesn't provide a direct @CachePut without invoking the method
-        // We'll use a workaround via a cacheable method that returns the token
-        putTokenInCache(environment, email, token);
+    private boolean tryAcquireLease(String key, String environment, String email, Instant now) {
+        Query query = Query.query(Criteria.where("_id").is(key).orOperator(
+                Criteria.where("leaseUntil").is(null),
+                Criteria.where("leaseUntil").lt(now),
+                Criteria.where("leaseOwner").is(owner)));
+        Update update = new Update()
+                .set("leaseOwner", owner)
+                .set("leaseUntil", now.plus(properties.getLeaseDuration()))
+                .setOnInsert("environment", environment)
+                .setOnInsert("email", email);
+        try {
+            mongoTemplate.upsert(query, update, AuthTokenDocument.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataAccessException e) {
+            log.warn("Could not take auth token refresh lease for environment={}: {}", environment, e.getMessage());
+            return true;
+        }
+    }
+
+    private void releaseLease(String key) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key).and("leaseOwner").is(owner)),
+                    new Update().unset("leaseOwner").unset("leaseUntil"), AuthTokenDocument.class);
+        } catch (DataAccessException e) {
+            log.debug("Could not release auth token refresh lease {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void publish(String key, String environment, String email, CachedToken token, boolean holdsLease) {
+        boolean encrypt = stringEncryptor != null;
+        Update update = new Update()
+                .set("environment", environment)
+                .set("email", email)
+                .set("token", encrypt ? stringEncryptor.encrypt(token.token) : token.token)
+                .set("encrypted", encrypt)
+                .set("issuedAt", token.issuedAt)
+                .set("refreshAt", token.refreshAt)
+                .set("expiresAt", token.expiresAt);
+        try {
+            if (holdsLease) {
+                update.unset("leaseOwner").unset("leaseUntil");
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key).and("leaseOwner").is(owner)),
+                        update, AuthTokenDocument.class);
+            } else {
+                mongoTemplate.upsert(Query.query(Criteria.where("_id").is(key)), update, AuthTokenDocument.class);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not publish auth token for environment={}: {}", environment, e.getMessage());
+        }
     }
 
-    @Cacheable(value = "authTokens", key = "#environment + ':' + #email")
-    protected String putTokenInCache(String environment, String email, String token) {
-        return token;
+    private CachedToken awaitPublished(String key) {
+        Duration remaining = DeadlineContext.current().remaining();
+        Duration wait = remaining.compareTo(properties.getWaitForRefresh()) < 0 ? remaining : properties.getWaitForRefresh();
+        long until = System.nanoTime() + wait.toNanos();
+        while (System.nanoTime() < until) {
+            try {
+                Thread.sleep(properties.getPollInterval().toMillis());
+                CachedToken shared = toCached(mongoTemplate.findById(key, AuthTokenDocument.class));
+                if (shared != null && shared.isValid(Instant.now())) {
+                    return shared;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (DataAccessException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private CachedToken storeLocal(String key, String token) {
+        Instant issuedAt = Instant.now();
+        Instant expiresAt = issuedAt.plus(properties.getTtl());
+        CachedToken cached = new CachedToken(token, issuedAt, expiresAt.minus(properties.getRefreshAhead()), expiresAt);
+        local.put(key, cached);
+        return cached;
+    }
+
+    private CachedToken toCached(AuthTokenDocument document) {
+        if (document == null || document.getToken() == null || document.getExpiresAt() == null) {
+            return null;
+        }
+        String token = document.getToken();
+        if (Boolean.TRUE.equals(document.getEncrypted())) {
+            if (stringEncryptor == null) {
+                return null;
+            }
+            try {
+                token = stringEncryptor.decrypt(token);
+            } catch (Exception e) {
+                log.warn("Could not decrypt shared auth token {}, ignoring it", document.getId());
+                return null;
+            }
+        }
+        Instant refreshAt = document.getRefreshAt() != null ? document.getRefreshAt() : document.getExpiresAt();
+        return new CachedToken(token, document.getIssuedAt(), refreshAt, document.getExpiresAt());
+    }
+
+    private static CachedToken newestValid(Instant now, CachedToken a, CachedToken b) {
+        CachedToken best = null;
+        for (CachedToken candidate : new CachedToken[]{a, b}) {
+            if (candidate != null && candidate.isValid(now)
+                    && (best == null || candidate.expiresAt.isAfter(best.expiresAt))) {
+                best = candidate;
+            }
+        }
+        return best;
     }
 
     /**
-     * Evict cached token for a specific environment/email combination.
+     * Evict the token for a specific environment/email combination from both tiers.
      * Use when token is known to be invalid.
      */
-    @CacheEvict(value = "authTokens", key = "#environment + ':' + #email")
     public void evictToken(String environment, String email) {
-        log.info("Evicting cached token for environment={}, email={}", environment, email);
+        log.info("Evicting auth token for environment={}, email={}", environment, email);
+        String key = environment + ":" + email;
+        local.remove(key);
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(key)), AuthTokenDocument.class);
+        } catch (DataAccessException e) {
+            log.warn("Could not evict shared auth token {}: {}", key, e.getMessage());
+        }
     }
 
     /**
-     * Evict all cached tokens.
+     * Evict all auth tokens from both tiers.
      */
-    @CacheEvict(value = "authTokens", allEntries = true)
     public void evictAllTokens() {
-        log.info("Evicting all cached auth tokens");
+        log.info("Evicting all auth tokens");
+        local.clear();
+        try {
+            mongoTemplate.remove(new Query(), AuthTokenDocument.class);
+        } catch (DataAccessException e) {
+            log.warn("Could not evict shared auth tokens: {}", e.getMessage());
+        }
+    }
+
+    private static String ownerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "gateway";
+        }
+        return host + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static final class CachedToken {
+        private final String token;
+        private final Instant issuedAt;
+        private final Instant refreshAt;
+        private final Instant expiresAt;
+
+        private CachedToken(String token, Instant issuedAt, Instant refreshAt, Instant expiresAt) {
+            this.token = token;
+            this.issuedAt = issuedAt;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isFresh(Instant now) {
+            return now.isBefore(refreshAt);
+        }
+
+        private boolean isValid(Instant now) {
+            return now.isBefore(expiresAt);
+        }
     }
 }
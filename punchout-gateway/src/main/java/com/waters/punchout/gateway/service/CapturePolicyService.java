@@ -0,0 +1,270 @@
+package com.waters.punchout.gateway.service;
+
+import com.waters.punchout.gateway.coherence.CacheInvalidationListener;
+import com.waters.punchout.gateway.config.CaptureProperties;
+import com.waters.punchout.gateway.entity.CapturePolicy;
+import com.waters.punchout.gateway.repository.CapturePolicyRepository;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Decides which captured network requests are stored with headers and bodies.
+ *
+ * Policies come from capture_policies, most specific first: environment and customer,
+ * environment, customer, then the * / * policy, else punchout.capture. They are held in
+ * memory, reloaded when the collection changes on any replica and on a fixed delay.
+ * Failed and slow requests are stored in full when the policy says so; the rest are
+ * sampled by session key, so a sampled session keeps all of its requests.
+ */
+@Service
+@Slf4j
+public class CapturePolicyService implements CacheInvalidationListener {
+
+    private final CapturePolicyRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final CapturePolicy defaultPolicy;
+    private final Map<String, Counter> decisions = new ConcurrentHashMap<>();
+    private final Map<String, Counter> skippedBytes = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter>> policyGauges = new HashMap<>();
+
+    /** environment|customer -> enabled policy */
+    private volatile Map<String, CapturePolicy> policies = Map.of();
+
+    public CapturePolicyService(CapturePolicyRepository repository, CaptureProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.defaultPolicy = new CapturePolicy();
+        defaultPolicy.setEnvironment(CapturePolicy.ANY);
+        defaultPolicy.setCustomer(CapturePolicy.ANY);
+        defaultPolicy.setCaptureFailures(properties.isCaptureFailures());
+        defaultPolicy.setSlowThresholdMs(properties.getSlowThresholdMs() > 0 ? properties.getSlowThresholdMs() : null);
+        defaultPolicy.setSuccessSamplePercent(properties.getSuccessSamplePercent());
+    }
+
+    public List<CapturePolicy> getAllPolicies() {
+        return repository.findAll();
+    }
+
+    public Optional<CapturePolicy> getPolicy(String id) {
+        return repository.findById(id);
+    }
+
+    public CapturePolicy savePolicy(CapturePolicy policy) {
+        policy.setEnvironment(policy.getEnvironment() == null || CapturePolicy.ANY.equals(policy.getEnvironment())
+                ? CapturePolicy.ANY : EnvironmentUtil.normalize(policy.getEnvironment()));
+        policy.setCustomer(policy.getCustomer() == null || policy.getCustomer().isBlank()
+                ? CapturePolicy.ANY : policy.getCustomer());
+        Double percent = policy.getSuccessSamplePercent();
+        if (percent != null && (percent < 0 || percent > 100)) {
+            throw new IllegalArgumentException("successSamplePercent must be between 0 and 100: " + percent);
+        }
+        for (CapturePolicy existing : repository.findByEnvironmentAndCustomer(policy.getEnvironment(), policy.getCustomer())) {
+            if (!existing.getId().equals(policy.getId())) {
+                throw new IllegalArgumentException("A capture policy for environment " + policy.getEnvironment()
+                        + " and customer " + policy.getCustomer() + " already exists: " + existing.getId());
+            }
+        }
+        if (policy.getCreatedAt() == null) {
+            policy.setCreatedAt(LocalDateTime.now());
+        }
+        policy.setUpdatedAt(LocalDateTime.now());
+        log.info("Saving capture policy for environment: {}, customer: {}", policy.getEnvironment(), policy.getCustomer());
+        CapturePolicy saved = repository.save(policy);
+        refresh();
+        return saved;
+    }
+
+    public void deletePolicy(String id) {
+        log.info("Deleting capture policy: {}", id);
+        repository.deleteById(id);
+        refresh();
+    }
+
+    /**
+     * The policy that applies to requests of this environment and customer; either may be null.
+     */
+    public CapturePolicy resolve(String environment, String customer) {
+        Map<String, CapturePolicy> current = policies;
+        String env = environment != null ? environment : CapturePolicy.ANY;
+        String cust = customer != null ? customer : CapturePolicy.ANY;
+        CapturePolicy policy = current.get(policyKey(env, cust));
+        if (policy == null) {
+            policy = current.get(policyKey(env, CapturePolicy.ANY));
+        }
+        if (policy == null) {
+            policy = current.get(policyKey(CapturePolicy.ANY, cust));
+        }
+        if (policy == null) {
+            policy = current.get(policyKey(CapturePolicy.ANY, CapturePolicy.ANY));
+        }
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    /**
+     * Whether to store headers and bodies of a request. Outcome fields are null for
+     * requests logged before they complete.
+     */
+    public boolean captureFull(String environment, String customer, String sampleKey,
+                               Boolean success, Integer statusCode, Long durationMs) {
+        CapturePolicy policy = resolve(environment, customer);
+        String reason;
+        if (isFailure(success, statusCode) && !Boolean.FALSE.equals(policy.getCaptureFailures())) {
+            reason = "failure";
+        } else if (durationMs != null && policy.getSlowThresholdMs() != null && durationMs >= policy.getSlowThresholdMs()) {
+            reason = "slow";
+        } else if (sampled(sampleKey, policy.getSuccessSamplePercent())) {
+            reason = "sampled";
+        } else {
+            reason = "metadata";
+        }
+        decisionCounter(environment, reason).increment();
+        return !"metadata".equals(reason);
+    }
+
+    /**
+     * Counts the header and body bytes a metadata-only capture left out.
+     */
+    public void recordSkipped(String environment, long bytes) {
+        if (bytes > 0) {
+            skippedBytes.computeIfAbsent(meterEnvironment(environment), env ->
+                    Counter.builder("punchout.capture.skipped.bytes")
+                            .tag("environment", env)
+                            .description("Header and body bytes not stored because of capture sampling")
+                            .baseUnit("bytes")
+                            .register(meterRegistry))
+                    .increment(bytes);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${punchout.capture.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        List<CapturePolicy> enabled;
+        try {
+            enabled = repository.findByEnabledTrue();
+        } catch (DataAccessException e) {
+            log.warn("Could not load capture policies, keeping {} loaded: {}", policies.size(), e.getMessage());
+            return;
+        }
+        Map<String, CapturePolicy> loaded = new HashMap<>();
+        for (CapturePolicy policy : enabled) {
+            policy.setEnvironment(policy.getEnvironment() != null ? policy.getEnvironment() : CapturePolicy.ANY);
+            policy.setCustomer(policy.getCustomer() != null ? policy.getCustomer() : CapturePolicy.ANY);
+            loaded.put(policyKey(policy.getEnvironment(), policy.getCustomer()), policy);
+        }
+        policies = Map.copyOf(loaded);
+        registerPolicyGauges(loaded);
+    }
+
+    @Override
+    public String collection() {
+        return "capture_policies";
+    }
+
+    @Override
+    public void onChange(String id, Document document) {
+        log.info("Capture policy {} changed, reloading policies", id);
+        refresh();
+    }
+
+    @Override
+    public void onReset() {
+        refresh();
+    }
+
+    /**
+     * One sample-percent and slow-threshold gauge per policy, removed with the policy.
+     */
+    private void registerPolicyGauges(Map<String, CapturePolicy> loaded) {
+        for (String key : new ArrayList<>(policyGauges.keySet())) {
+            if (!loaded.containsKey(key)) {
+                policyGauges.remove(key).forEach(meterRegistry::remove);
+            }
+        }
+        for (Map.Entry<String, CapturePolicy> entry : loaded.entrySet()) {
+            String key = entry.getKey();
+            if (policyGauges.containsKey(key)) {
+                continue;
+            }
+            CapturePolicy policy = entry.getValue();
+            List<Meter> gauges = new ArrayList<>();
+            gauges.add(Gauge.builder("punchout.capture.policy.sample.percent", this,
+                            s -> s.policyValue(key, p -> p.getSuccessSamplePercent()))
+                    .tag("environment", policy.getEnvironment())
+                    .tag("customer", policy.getCustomer())
+                    .description("Share of successful requests stored with headers and bodies")
+                    .register(meterRegistry));
+            gauges.add(Gauge.builder("punchout.capture.policy.slow.threshold", this,
+                            s -> s.policyValue(key, p -> p.getSlowThresholdMs() != null ? p.getSlowThresholdMs().doubleValue() : null))
+                    .tag("environment", policy.getEnvironment())
+                    .tag("customer", policy.getCustomer())
+                    .description("Duration from which requests are stored in full; NaN when off")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry));
+            policyGauges.put(key, gauges);
+        }
+    }
+
+    private double policyValue(String key, Function<CapturePolicy, Double> value) {
+        CapturePolicy policy = policies.get(key);
+        Double result = policy != null ? value.apply(policy) : null;
+        return result != null ? result : Double.NaN;
+    }
+
+    private Counter decisionCounter(String environment, String reason) {
+        String env = meterEnvironment(environment);
+        return decisions.computeIfAbsent(env + "|" + reason, k -> Counter.builder("punchout.capture.decisions")
+                .tag("environment", env)
+                .tag("reason", reason)
+                .description("Captured requests by why they were stored in full, or metadata when not")
+                .register(meterRegistry));
+    }
+
+    /**
+     * Environment tag value; anything but a known environment is reported as unknown so
+     * the number of meters stays bounded.
+     */
+    private static String meterEnvironment(String environment) {
+        return EnvironmentUtil.isValid(environment) ? environment.trim().toLowerCase() : "unknown";
+    }
+
+    private static boolean isFailure(Boolean success, Integer statusCode) {
+        return Boolean.FALSE.equals(success) || (statusCode != null && statusCode >= 400);
+    }
+
+    private static boolean sampled(String sampleKey, Double percent) {
+        if (percent == null || percent >= 100) {
+            return true;
+        }
+        if (percent <= 0) {
+            return false;
+        }
+        if (sampleKey == null) {
+            return true;
+        }
+        // Spread String.hashCode before taking the bucket, so similar keys do not cluster
+        int hash = sampleKey.hashCode() * 0x9E3779B9;
+        return (hash >>> 1) % 10_000 < percent * 100;
+    }
+
+    private static String policyKey(String environment, String customer) {
+        return environment + "|" + customer;
+    }
+}
@@ -1,117 +1,294 @@
 package com.waters.punchout.gateway.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.waters.punchout.gateway.coherence.CacheInvalidationListener;
 import com.waters.punchout.gateway.entity.CustomerDatastore;
 import com.waters.punchout.gateway.repository.CustomerDatastoreRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Customer datastores and the key-value lookups converters and templates make on the
+ * hot path. Lookups are served from an immutable in-memory snapshot per customer and
+ * environment. Every write bumps the document's version so a concurrent load cannot
+ * replace a newer snapshot; changes made on other replicas arrive through
+ * {@link com.waters.punchout.gateway.coherence.CacheCoherenceWatcher}. Snapshots are
+ * bounded in number, and those of datastores that do not exist expire after a short TTL.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class CustomerDatastoreService {
-    
+public class CustomerDatastoreService implements CacheInvalidationListener {
+
     private final CustomerDatastoreRepository repository;
-    
+    private final MongoTemplate mongoTemplate;
+
+    /** customer|environment -> snapshot, including snapshots of datastores that do not exist */
+    private final Map<String, Snapshot> snapshots;
+
+    public CustomerDatastoreService(
+            CustomerDatastoreRepository repository,
+            MongoTemplate mongoTemplate,
+            @Value("${punchout.datastore.cache-max-size:10000}") long cacheMaxSize,
+            @Value("${punchout.datastore.negative-cache-ttl-ms:30000}") long negativeCacheTtlMs
+    ) {
+        this.repository = repository;
+        this.mongoTemplate = mongoTemplate;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new SnapshotExpiry(Duration.ofMillis(negativeCacheTtlMs).toNanos()))
+                .<String, Snapshot>build()
+                .asMap();
+    }
+
     public List<CustomerDatastore> getAllDatastores() {
         log.info("Fetching all customer datastores");
         return repository.findAll();
     }
-    
+
     public Optional<CustomerDatastore> getDatastoreById(String id) {
         log.info("Fetching datastore by id: {}", id);
         return repository.findById(id);
     }
-    
+
     public List<CustomerDatastore> getDatastoresByCustomer(String customer) {
         log.info("Fetching datastores for customer: {}", customer);
         return repository.findByCustomer(customer);
     }
-    
+
     public List<CustomerDatastore> getDatastoresByEnvironment(String environment) {
         log.info("Fetching datastores for environment: {}", environment);
         return repository.findByEnvironment(environment);
     }
-    
+
     public Optional<CustomerDatastore> getDatastoreByCustomerAndEnvironment(String customer, String environment) {
         log.info("Fetching datastore for customer: {} and environment: {}", customer, environment);
         return repository.findByCustomerAndEnvironment(customer, environment);
     }
-    
+
     public String getValue(String customer, String environment, String key) {
-        log.info("Getting value for customer: {}, environment: {}, key: {}", customer, environment, key);
-        return repository.findByCustomerAndEnvironment(customer, environment)
-                .map(CustomerDatastore::getKeyValuePairs)
-                .map(kvp -> kvp.get(key))
-                .orElse(null);
+        log.debug("Getting value for customer: {}, environment: {}, key: {}", customer, environment, key);
+        return snapshot(customer, environment).values.get(key);
     }
-    
+
+    /**
+     * Values of the given keys that are set, from one snapshot so they are mutually consistent.
+     */
+    public Map<String, String> getValues(String customer, String environment, Collection<String> keys) {
+        Map<String, String> values = snapshot(customer, environment).values;
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            String value = values.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All key-value pairs of the datastore, read-only.
+     */
+    public Map<String, String> getValues(String customer, String environment) {
+        return snapshot(customer, environment).values;
+    }
+
     public CustomerDatastore createDatastore(CustomerDatastore datastore) {
-        log.info("Creating new datastore for customer: {} and environment: {}", 
+        log.info("Creating new datastore for customer: {} and environment: {}",
                 datastore.getCustomer(), datastore.getEnvironment());
-        
+
         datastore.setCreatedAt(LocalDateTime.now());
         datastore.setUpdatedAt(LocalDateTime.now());
-        
+        datastore.setVersion(1L);
+
         if (datastore.getEnabled() == null) {
             datastore.setEnabled(true);
         }
-        
-        return repository.save(datastore);
+
+        CustomerDatastore saved = repository.save(datastore);
+        cache(saved);
+        return saved;
     }
-    
+
     public CustomerDatastore updateDatastore(String id, CustomerDatastore updatedDatastore) {
         log.info("Updating datastore with id: {}", id);
-        
-        return repository.findById(id)
-                .map(existing -> {
-                    existing.setCustomer(updatedDatastore.getCustomer());
-                    existing.setEnvironment(updatedDatastore.getEnvironment());
-                    existing.setKeyValuePairs(updatedDatastore.getKeyValuePairs());
-                    existing.setDescription(updatedDatastore.getDescription());
-                    existing.setEnabled(updatedDatastore.getEnabled());
-                    existing.setUpdatedAt(LocalDateTime.now());
-                    existing.setUpdatedBy(updatedDatastore.getUpdatedBy());
-                    return repository.save(existing);
-                })
+
+        CustomerDatastore previous = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Datastore not found with id: " + id));
+        CustomerDatastore updated = modify(id, new Update()
+                .set("customer", updatedDatastore.getCustomer())
+                .set("environment", updatedDatastore.getEnvironment())
+                .set("keyValuePairs", updatedDatastore.getKeyValuePairs())
+                .set("description", updatedDatastore.getDescription())
+                .set("enabled", updatedDatastore.getEnabled())
+                .set("updatedBy", updatedDatastore.getUpdatedBy()));
+        String previousKey = snapshotKey(previous.getCustomer(), previous.getEnvironment());
+        if (!previousKey.equals(snapshotKey(updated.getCustomer(), updated.getEnvironment()))) {
+            snapshots.remove(previousKey);
+        }
+        return updated;
     }
-    
+
     public void deleteDatastore(String id) {
         log.info("Deleting datastore with id: {}", id);
-        repository.deleteById(id);
+        CustomerDatastore removed = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("_id").is(id)), CustomerDatastore.class);
+        if (removed != null) {
+            snapshots.remove(snapshotKey(removed.getCustomer(), removed.getEnvironment()));
+        }
     }
-    
+
     public CustomerDatastore addOrUpdateKeyValue(String id, String key, String value) {
         log.info("Adding/Updating key-value for datastore id: {}, key: {}", id, key);
-        
-        return repository.findById(id)
-                .map(datastore -> {
-                    Map<String, String> kvp = datastore.getKeyValuePairs();
-                    kvp.put(key, value);
-                    datastore.setKeyValuePairs(kvp);
-                    datastore.setUpdatedAt(LocalDateTime.now());
-                    return repository.save(datastore);
-                })
-                .orElseThrow(() -> new RuntimeException("Datastore not found with id: " + id));
+        return modify(id, new Update().set("keyValuePairs." + fieldName(key), value));
     }
-    
+
     public CustomerDatastore removeKey(String id, String key) {
         log.info("Removing key from datastore id: {}, key: {}", id, key);
-        
-        return repository.findById(id)
-                .map(datastore -> {
-                    Map<String, String> kvp = datastore.getKeyValuePairs();
-                    kvp.remove(key);
-                    datastore.setKeyValuePairs(kvp);
-                    datastore.setUpdatedAt(LocalDateTime.now());
-                    return repository.save(datastore);
-                })
-                .orElseThrow(() -> new RuntimeException("Datastore not found with id: " + id));
+        return modify(id, new Update().unset("keyValuePairs." + fieldName(key)));
+    }
+
+    /**
+     * Drops the snapshot of one datastore so the next lookup reloads it.
+     */
+    public void invalidate(String customer, String environment) {
+        snapshots.remove(snapshotKey(customer, environment));
+    }
+
+    @Override
+    public String collection() {
+        return "customer_datastore";
+    }
+
+    @Override
+    public void onChange(String id, Document document) {
+        // Snapshots already at the changed version (our own writes) are kept
+        long version = document != null && document.get("version") instanceof Number
+                ? ((Number) document.get("version")).longValue() : 0;
+        snapshots.values().removeIf(snapshot -> id.equals(snapshot.id)
+                && (document == null || snapshot.version != version));
+        if (document != null) {
+            // Also covers a datastore created where a missing one was cached
+            String key = snapshotKey(document.getString("customer"), document.getString("environment"));
+            Snapshot cached = snapshots.get(key);
+            if (cached != null && !id.equals(cached.id)) {
+                snapshots.remove(key, cached);
+            }
+        }
+    }
+
+    @Override
+    public void onReset() {
+        snapshots.clear();
+    }
+
+    private Snapshot snapshot(String customer, String environment) {
+        String key = snapshotKey(customer, environment);
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        snapshot = repository.findByCustomerAndEnvironment(customer, environment)
+                .map(Snapshot::of)
+                .orElse(Snapshot.NONE);
+        snapshots.putIfAbsent(key, snapshot);
+        return snapshot;
+    }
+
+    private CustomerDatastore modify(String id, Update update) {
+        update.set("updatedAt", LocalDateTime.now()).inc("version", 1);
+        CustomerDatastore updated = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(true), CustomerDatastore.class);
+        if (updated == null) {
+            throw new RuntimeException("Datastore not found with id: " + id);
+        }
+        cache(updated);
+        return updated;
+    }
+
+    private void cache(CustomerDatastore datastore) {
+        Snapshot snapshot = Snapshot.of(datastore);
+        snapshots.merge(snapshotKey(datastore.getCustomer(), datastore.getEnvironment()), snapshot,
+                (existing, latest) -> latest.version >= existing.version ? latest : existing);
+    }
+
+    private static String fieldName(String key) {
+        if (key == null || key.isEmpty() || key.contains(".") || key.startsWith("$")) {
+            throw new IllegalArgumentException("Invalid datastore key: " + key);
+        }
+        return key;
+    }
+
+    private static String snapshotKey(String customer, String environment) {
+        return customer + "|" + environment;
+    }
+
+    private static long versionOf(CustomerDatastore datastore) {
+        return datastore.getVersion() != null ? datastore.getVersion() : 0;
+    }
+
+    /**
+     * Missing datastores expire after the negative TTL; loaded ones stay until evicted by
+     * size or invalidated.
+     */
+    private static final class SnapshotExpiry implements Expiry<String, Snapshot> {
+        private final long negativeTtlNanos;
+
+        private SnapshotExpiry(long negativeTtlNanos) {
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Snapshot snapshot, long currentTime) {
+            return snapshot == Snapshot.NONE ? negativeTtlNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Snapshot snapshot, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, snapshot, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Snapshot snapshot, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static final class Snapshot {
+        private static final Snapshot NONE = new Snapshot(null, -1, Collections.emptyMap());
+
+        private final String id;
+        private final long version;
+        private final Map<String, String> values;
+
+        private Snapshot(String id, long version, Map<String, String> values) {
+            this.id = id;
+            this.version = version;
+            this.values = values;
+        }
+
+        private static Snapshot of(CustomerDatastore datastore) {
+            Map<String, String> values = datastore.getKeyValuePairs() != null
+                    ? Collections.unmodifiableMap(new HashMap<>(datastore.getKeyValuePairs()))
+                    : Collections.emptyMap();
+            return new Snapshot(datastore.getId(), versionOf(datastore), values);
+        }
     }
 }
@@ -1,21 +1,49 @@
 package com.waters.punchout.gateway.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.waters.punchout.gateway.coherence.CacheInvalidationListener;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
 import com.waters.punchout.gateway.entity.CustomerOnboarding;
 import com.waters.punchout.gateway.repository.CustomerOnboardingRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Customer onboardings. Lookups by customer name on the setup path are cached; local
+ * writes clear the cache and {@link com.waters.punchout.gateway.coherence.CacheCoherenceWatcher}
+ * clears it when another replica changes an onboarding.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class CustomerOnboardingService {
+public class CustomerOnboardingService implements CacheInvalidationListener {
     
     private final CustomerOnboardingRepository repository;
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, List<CustomerOnboarding>> byCustomerName;
+    
+    public CustomerOnboardingService(
+            CustomerOnboardingRepository repository,
+            MongoTemplate mongoTemplate,
+            @Value("${punchout.onboarding.cache-ttl-ms:3600000}") long cacheTtlMs
+    ) {
+        this.repository = repository;
+        this.mongoTemplate = mongoTemplate;
+        this.byCustomerName = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .maximumSize(1000)
+                .build();
+    }
     
     public List<CustomerOnboarding> getAllOnboardings() {
         log.info("Fetching all customer onboardings");
@@ -27,9 +55,21 @@ public class CustomerOnboardingService {
         return repository.findById(id);
     }
     
+    /**
+     * On a cache miss, runs with MongoDB maxTimeMS set to what is left of the current
+     * request deadline.
+     */
     public List<CustomerOnboarding> getOnboardingsByCustomerName(String customerName) {
+        List<CustomerOnboarding> cached = byCustomerName.getIfPresent(customerName);
+        if (cached != null) {
+            return cached;
+        }
         log.info("Fetching onboardings for customer: {}", customerName);
-        return repository.findByCustomerName(customerName);
+        Query query = DeadlineContext.current().bound(
+                Query.query(Criteria.where("customerName").is(customerName)), "onboarding lookup");
+        List<CustomerOnboarding> onboardings = List.copyOf(mongoTemplate.find(query, CustomerOnboarding.class));
+        byCustomerName.put(customerName, onboardings);
+        return onboardings;
     }
     
     public List<CustomerOnboarding> getOnboardingsByEnvironment(String environment) {
@@ -56,7 +96,9 @@ public class CustomerOnboardingService {
             onboarding.setDeployed(false);
         }
         
-        return repository.save(onboarding);
+        CustomerOnboarding saved = repository.save(onboarding);
+        byCustomerName.invalidateAll();
+        return saved;
     }
     
     public CustomerOnboarding updateOnboarding(String id, CustomerOnboarding updatedOnboarding) {
@@ -78,6 +120,7 @@ public class CustomerOnboardingService {
                     existing.setUpdatedBy(updatedOnboarding.getUpdatedBy());
                     return repository.save(existing);
                 })
+                .map(this::invalidated)
                 .orElseThrow(() -> new RuntimeException("Onboarding not found with id: " + id));
     }
     
@@ -92,12 +135,14 @@ public class CustomerOnboardingService {
                     onboarding.setUpdatedAt(LocalDateTime.now());
                     return repository.save(onboarding);
                 })
+                .map(this::invalidated)
                 .orElseThrow(() -> new RuntimeException("Onboarding not found with id: " + id));
     }
     
     public void deleteOnboarding(String id) {
         log.info("Deleting onboarding with id: {}", id);
         repository.deleteById(id);
+        byCustomerName.invalidateAll();
     }
     
     public CustomerOnboarding generateConverterClass(String id) {
@@ -111,9 +156,31 @@ public class CustomerOnboardingService {
                     onboarding.setUpdatedAt(LocalDateTime.now());
                     return repository.save(onboarding);
                 })
+                .map(this::invalidated)
                 .orElseThrow(() -> new RuntimeException("Onboarding not found with id: " + id));
     }
     
+    @Override
+    public String collection() {
+        return "customer_onboarding";
+    }
+    
+    @Override
+    public void onChange(String id, Document document) {
+        // Deletes only carry the id, and the customer name itself may have changed
+        byCustomerName.invalidateAll();
+    }
+    
+    @Override
+    public void onReset() {
+        byCustomerName.invalidateAll();
+    }
+    
+    private CustomerOnboarding invalidated(CustomerOnboarding saved) {
+        byCustomerName.invalidateAll();
+        return saved;
+    }
+    
     private String generateConverterClassName(CustomerOnboarding onboarding) {
         String customerType = onboarding.getCustomerType();
         String customerName = onboarding.getCustomerName().replaceAll("[^a-zA-Z0-9]", "");
@@ -1,9 +1,11 @@
 package com.waters.punchout.gateway.service;
 
+import com.waters.punchout.gateway.coherence.CacheInvalidationListener;
 import com.waters.punchout.gateway.entity.EnvironmentConfig;
 import com.waters.punchout.gateway.repository.EnvironmentConfigRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.jasypt.encryption.StringEncryptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,7 +19,7 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class EnvironmentConfigService {
+public class EnvironmentConfigService implements CacheInvalidationListener {
     
     private final EnvironmentConfigRepository repository;
     
@@ -185,6 +187,13 @@ public class EnvironmentConfigService {
         return config.getRetryAttempts() != null ? config.getRetryAttempts() : 3; // Default 3 retries
     }
     
+    /**
+     * Get the end-to-end request SLO for specific environment, or null when not configured
+     */
+    public Integer getRequestDeadlineMs(String environment) {
+        return getConfig(environment).getRequestDeadlineMs();
+    }
+    
     /**
      * Get health check URL for specific environment
      */
@@ -250,6 +259,26 @@ public class EnvironmentConfigService {
         log.info("Clearing all environment config caches");
     }
     
+    @Override
+    public String collection() {
+        return "environment_configs";
+    }
+    
+    /**
+     * An environment config changed on some replica; configs are few, so drop them all
+     */
+    @Override
+    @CacheEvict(value = "environmentConfig", allEntries = true)
+    public void onChange(String id, Document document) {
+        log.info("Environment config {} changed, clearing cached configs", id);
+    }
+    
+    @Override
+    @CacheEvict(value = "environmentConfig", allEntries = true)
+    public void onReset() {
+        log.info("Clearing all environment config caches");
+    }
+    
     /**
      * Create fallback configuration when no database config exists
      */
@@ -0,0 +1,63 @@
+package com.waters.punchout.gateway.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.waters.punchout.gateway.model.PunchOutRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Renders an onboarded customer's targetJson into the Mule request payload by
+ * replacing the {{placeholder}} values with fields from the PunchOut request.
+ */
+@Component
+@RequiredArgsConstructor
+public class MuleTemplateRenderer {
+
+    private final ObjectMapper objectMapper;
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> render(String targetJson, PunchOutRequest request) throws JsonProcessingException {
+        Map<String, Object> template = objectMapper.readValue(targetJson, Map.class);
+        replaceTemplateValues(template, request, true);
+        return template;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replaceTemplateValues(Map<String, Object> template, PunchOutRequest request, boolean isRoot) {
+        // Recursively replace common placeholder patterns in the template
+        for (Map.Entry<String, Object> entry : template.entrySet()) {
+            Object value = entry.getValue();
+
+            if (value instanceof String) {
+                String strValue = (String) value;
+
+                // Replace common placeholders
+                strValue = strValue.replace("{{sessionKey}}", request.getSessionKey() != null ? request.getSessionKey() : "");
+                strValue = strValue.replace("{{buyerCookie}}", request.getBuyerCookie() != null ? request.getBuyerCookie() : "");
+                strValue = strValue.replace("{{returnUrl}}", request.getCartReturnUrl() != null ? request.getCartReturnUrl() : "");
+                strValue = strValue.replace("{{operation}}", request.getOperation() != null ? request.getOperation() : "create");
+                strValue = strValue.replace("{{contactEmail}}", request.getContactEmail() != null ? request.getContactEmail() : "");
+                strValue = strValue.replace("{{fromIdentity}}", request.getFromIdentity() != null ? request.getFromIdentity() : "");
+                strValue = strValue.replace("{{toIdentity}}", request.getToIdentity() != null ? request.getToIdentity() : "");
+
+                entry.setValue(strValue);
+            } else if (value instanceof Map) {
+                // Recursively process nested maps
+                replaceTemplateValues((Map<String, Object>) value, request, false);
+            }
+        }
+
+        // Only add dynamic values to root level (not nested objects)
+        if (isRoot) {
+            if (!template.containsKey("sessionKey") && request.getSessionKey() != null) {
+                template.put("sessionKey", request.getSessionKey());
+            }
+            if (!template.containsKey("timestamp")) {
+                template.put("timestamp", request.getTimestamp().toString());
+            }
+        }
+    }
+}
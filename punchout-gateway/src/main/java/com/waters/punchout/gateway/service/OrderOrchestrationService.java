@@ -1,15 +1,29 @@
 package com.waters.punchout.gateway.service;
 
+import com.waters.punchout.gateway.bulkhead.Bulkheads;
 import com.waters.punchout.gateway.client.AuthServiceClient;
 import com.waters.punchout.gateway.client.MuleServiceClient;
 import com.waters.punchout.gateway.converter.CxmlOrderConverter;
 import com.waters.punchout.common.dto.OrderResponse;
+import com.waters.punchout.gateway.deadline.Deadline;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.deadline.RequestDeadlines;
+import com.waters.punchout.gateway.entity.NetworkRequestDocument;
 import com.waters.punchout.gateway.entity.OrderDocument;
+import com.waters.punchout.gateway.entity.PunchOutSessionDocument;
+import com.waters.punchout.gateway.exception.BulkheadFullException;
+import com.waters.punchout.gateway.exception.DeadlineExceededException;
 import com.waters.punchout.gateway.logging.NetworkRequestLogger;
 import com.waters.punchout.gateway.metrics.MetricsService;
 import com.waters.punchout.gateway.repository.OrderRepository;
+import com.waters.punchout.gateway.session.ActiveSessionStore;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -32,12 +46,17 @@ public class OrderOrchestrationService {
     private final NetworkRequestLogger networkRequestLogger;
     private final OrderRepository orderRepository;
     private final MetricsService metricsService;
+    private final Bulkheads bulkheads;
+    private final RequestDeadlines requestDeadlines;
+    private final MongoTemplate mongoTemplate;
+    private final ActiveSessionStore activeSessions;
     
     public OrderResponse processOrder(String cxmlContent) {
         log.info("Processing order request");
         long startTime = System.currentTimeMillis();
         boolean success = false;
         String environment = "dev";
+        NetworkRequestDocument inbound = null;
         
         try {
             OrderDocument order = orderConverter.convertCxmlToOrder(cxmlContent);
@@ -50,7 +69,7 @@ public class OrderOrchestrationService {
             String idempotentOrderId = generateIdempotentOrderId(order);
             
             // Check if order already exists
-            Optional<OrderDocument> existingOrder = orderRepository.findByOrderId(idempotentOrderId);
+            Optional<OrderDocument> existingOrder = findOrder(idempotentOrderId);
             if (existingOrder.isPresent()) {
                 log.info("Order already exists, returning existing order: orderId={}", idempotentOrderId);
                 OrderDocument existing = existingOrder.get();
@@ -61,40 +80,123 @@ public class OrderOrchestrationService {
                         "Order already processed (idempotent)");
             }
             
-            order.setOrderId(idempotentOrderId);
+            // After the ID is generated, so retries of orders received before correlation keep their ID
+            Optional<PunchOutSessionDocument> session = findSession(order);
+            session.ifPresent(s -> order.setSessionKey(s.getSessionKey()));
             
-            logInboundOrderRequest(cxmlContent, order.getOrderId(), order.getSessionKey());
+            String normalizedEnvironment = EnvironmentUtil.normalize(environmentOf(order));
+            String customer = order.getCustomerName() != null ? order.getCustomerName() : order.getCustomerId();
+            requestDeadlines.narrowToEnvironment(normalizedEnvironment);
+            // Environment first: an order waiting on a hung environment must not hold a size-class slot
+            try (Bulkheads.Permit environmentPermit = bulkheads.enterEnvironment(environmentOf(order));
+                 Bulkheads.Permit sizePermit = bulkheads.enterSizeClass(cxmlContent.length())) {
+                order.setOrderId(idempotentOrderId);
             
-            String token = getAuthToken(order);
+                Deadline deadline = DeadlineContext.current();
+                deadline.check("order logging");
+                inbound = logInboundOrderRequest(cxmlContent, order.getOrderId(), order.getSessionKey(),
+                        normalizedEnvironment, customer);
             
-            Map<String, Object> jsonOrder = orderConverter.convertOrderToJson(order);
+                String token = getAuthToken(order);
             
-            Map<String, Object> muleResponse = sendOrderToMule(jsonOrder, token, order.getOrderId());
+                Map<String, Object> jsonOrder = orderConverter.convertOrderToJson(order);
             
-            order.setMuleOrderId((String) muleResponse.get("muleOrderId"));
-            order.setStatus("CONFIRMED");
-            order.setProcessedAt(LocalDateTime.now());
+                // Nothing has been sent downstream yet, so this is the last point to give up cheaply;
+                // once Mule has the order it is saved whatever the time
+                deadline.check("order submission");
+                Map<String, Object> muleResponse = sendOrderToMule(jsonOrder, token, order.getOrderId(),
+                        normalizedEnvironment, customer);
             
-            orderRepository.save(order);
+                order.setMuleOrderId((String) muleResponse.get("muleOrderId"));
+                order.setStatus("CONFIRMED");
+                order.setProcessedAt(LocalDateTime.now());
             
-            success = true;
-            long duration = System.currentTimeMillis() - startTime;
-            metricsService.recordOrderProcessing(environment, duration, true);
+                orderRepository.save(order);
+                session.ifPresent(s -> activeSessions.recordOrder(s, order));
             
-            log.info("Order processed successfully: orderId={}, muleOrderId={}", 
-                    order.getOrderId(), order.getMuleOrderId());
+                success = true;
+                long duration = System.currentTimeMillis() - startTime;
+                metricsService.recordOrderProcessing(environment, duration, true);
+                networkRequestLogger.completeInbound(inbound, 200, duration, true, null);
             
-            return new OrderResponse(order.getOrderId(), order.getMuleOrderId(), "success", 
-                    "Order processed successfully");
+                log.info("Order processed successfully: orderId={}, muleOrderId={}", 
+                        order.getOrderId(), order.getMuleOrderId());
             
+                return new OrderResponse(order.getOrderId(), order.getMuleOrderId(), "success", 
+                        "Order processed successfully");
+            }
+            
+        } catch (BulkheadFullException e) {
+            log.warn("Rejected order request: {}", e.getMessage());
+            throw e;
+        } catch (DeadlineExceededException e) {
+            metricsService.recordOrderProcessing(environment, System.currentTimeMillis() - startTime, false);
+            completeInboundLog(inbound, startTime, e);
+            log.warn("Abandoned order request: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             long duration = System.currentTimeMillis() - startTime;
             metricsService.recordOrderProcessing(environment, duration, false);
+            completeInboundLog(inbound, startTime, e);
+            if (DeadlineContext.current().isExpired()) {
+                log.warn("Abandoned order request after deadline: {}", e.getMessage());
+                throw new DeadlineExceededException("order processing", e);
+            }
             log.error("Failed to process order: {}", e.getMessage(), e);
             throw new RuntimeException("Order processing failed: " + e.getMessage(), e);
         }
     }
     
+    private Optional<OrderDocument> findOrder(String orderId) {
+        Query query = DeadlineContext.current().bound(
+                Query.query(Criteria.where("orderId").is(orderId)), "order lookup");
+        return Optional.ofNullable(mongoTemplate.findOne(query, OrderDocument.class));
+    }
+    
+    /**
+     * The PunchOut session the order came from, by the SessionKey or BuyerCookie header
+     * extrinsic the procurement system echoes back.
+     */
+    private Optional<PunchOutSessionDocument> findSession(OrderDocument order) {
+        Map<String, String> extrinsics = order.getExtrinsics();
+        if (extrinsics == null) {
+            return Optional.empty();
+        }
+        Optional<PunchOutSessionDocument> session;
+        try {
+            session = activeSessions.findBySessionKey(extrinsics.get("SessionKey"));
+            if (session.isEmpty()) {
+                session = activeSessions.findByBuyerCookie(extrinsics.get("BuyerCookie"));
+            }
+        } catch (DataAccessException e) {
+            // Correlation is best effort; the order goes through without it
+            log.warn("Could not look up PunchOut session for order, continuing uncorrelated: {}", e.getMessage());
+            return Optional.empty();
+        }
+        session.ifPresentOrElse(
+                s -> log.debug("Correlated order with session: sessionKey={}", s.getSessionKey()),
+                () -> log.debug("No PunchOut session found for order"));
+        return session;
+    }
+    
+    /**
+     * Environment for bulkhead accounting: the order's own, else the one encoded in its
+     * session key (SESSION_{ENV}_...).
+     */
+    private String environmentOf(OrderDocument order) {
+        if (order.getEnvironment() != null) {
+            return order.getEnvironment();
+        }
+        String sessionKey = order.getSessionKey();
+        if (sessionKey != null && sessionKey.startsWith("SESSION_")) {
+            String[] parts = sessionKey.split("_");
+            if (parts.length >= 2) {
+                return parts[1];
+            }
+        }
+        return null;
+    }
+    
     /**
      * Generate a deterministic order ID based on order content for idempotency.
      * Uses SHA-256 hash of sessionKey + orderDate + total + items.
@@ -144,14 +246,24 @@ public class OrderOrchestrationService {
         return sb.toString();
     }
     
-    private void logInboundOrderRequest(String cxmlContent, String orderId, String sessionKey) {
+    private void completeInboundLog(NetworkRequestDocument inbound, long startTime, Exception failure) {
+        if (inbound != null) {
+            networkRequestLogger.completeInbound(inbound, null, System.currentTimeMillis() - startTime,
+                    false, failure.getMessage());
+        }
+    }
+    
+    private NetworkRequestDocument logInboundOrderRequest(String cxmlContent, String orderId, String sessionKey,
+                                                          String environment, String customer) {
         Map<String, String> headers = new HashMap<>();
         headers.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_XML_VALUE);
         
         NetworkRequestLogger.OrderContext orderContext = new NetworkRequestLogger.OrderContext(orderId);
         
-        networkRequestLogger.logInboundOrderRequest(
+        return networkRequestLogger.logInboundOrderRequest(
                 sessionKey,
+                environment,
+                customer,
                 orderId,
                 "Customer System",
                 "Punchout Gateway",
@@ -173,7 +285,8 @@ public class OrderOrchestrationService {
         }
     }
     
-    private Map<String, Object> sendOrderToMule(Map<String, Object> jsonOrder, String token, String orderId) {
+    private Map<String, Object> sendOrderToMule(Map<String, Object> jsonOrder, String token, String orderId,
+                                                String environment, String customer) {
         long startTime = System.currentTimeMillis();
         
         try {
@@ -191,6 +304,8 @@ public class OrderOrchestrationService {
             
             networkRequestLogger.logOutboundRequest(
                     (String) jsonOrder.get("sessionKey"),
+                    environment,
+                    customer,
                     "Punchout Gateway",
                     "Mule Service",
                     "POST",
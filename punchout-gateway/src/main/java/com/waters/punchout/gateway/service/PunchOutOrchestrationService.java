@@ -1,17 +1,28 @@
 package com.waters.punchout.gateway.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.waters.punchout.gateway.bulkhead.Bulkheads;
 import com.waters.punchout.gateway.client.AuthServiceClient;
 import com.waters.punchout.gateway.client.MuleServiceClient;
 import com.waters.punchout.gateway.converter.CxmlConversionService;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.deadline.RequestDeadlines;
 import com.waters.punchout.gateway.entity.CustomerOnboarding;
+import com.waters.punchout.gateway.entity.NetworkRequestDocument;
 import com.waters.punchout.gateway.entity.PunchOutSessionDocument;
+import com.waters.punchout.gateway.exception.BulkheadFullException;
+import com.waters.punchout.gateway.exception.DeadlineExceededException;
 import com.waters.punchout.gateway.logging.NetworkRequestLogger;
 import com.waters.punchout.gateway.model.PunchOutRequest;
 import com.waters.punchout.gateway.repository.PunchOutSessionRepository;
 import com.waters.punchout.gateway.service.CustomerOnboardingService;
+import com.waters.punchout.gateway.session.ActiveSessionStore;
 import com.waters.punchout.gateway.util.EnvironmentUtil;
+import com.waters.punchout.gateway.util.IdGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -21,6 +32,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
 @Slf4j
@@ -31,8 +45,14 @@ public class PunchOutOrchestrationService {
     private final AuthServiceClient authServiceClient;
     private final MuleServiceClient muleServiceClient;
     private final PunchOutSessionRepository sessionRepository;
+    private final ActiveSessionStore activeSessions;
     private final CustomerOnboardingService onboardingService;
+    private final MuleTemplateRenderer templateRenderer;
     private final ObjectMapper objectMapper;
+    private final Executor setupStageExecutor;
+    private final Bulkheads bulkheads;
+    private final RequestDeadlines requestDeadlines;
+    private final XmlMapper xmlMapper = new XmlMapper();
 
     public PunchOutOrchestrationService(
             NetworkRequestLogger networkRequestLogger,
@@ -40,22 +60,34 @@ public class PunchOutOrchestrationService {
             AuthServiceClient authServiceClient,
             MuleServiceClient muleServiceClient,
             PunchOutSessionRepository sessionRepository,
+            ActiveSessionStore activeSessions,
             CustomerOnboardingService onboardingService,
-            ObjectMapper objectMapper
+            MuleTemplateRenderer templateRenderer,
+            ObjectMapper objectMapper,
+            @Qualifier("setupStageExecutor") Executor setupStageExecutor,
+            Bulkheads bulkheads,
+            RequestDeadlines requestDeadlines
     ) {
         this.networkRequestLogger = networkRequestLogger;
         this.cxmlConversionService = cxmlConversionService;
         this.authServiceClient = authServiceClient;
         this.muleServiceClient = muleServiceClient;
         this.sessionRepository = sessionRepository;
+        this.activeSessions = activeSessions;
         this.onboardingService = onboardingService;
+        this.templateRenderer = templateRenderer;
         this.objectMapper = objectMapper;
+        this.setupStageExecutor = setupStageExecutor;
+        this.bulkheads = bulkheads;
+        this.requestDeadlines = requestDeadlines;
     }
 
     public Map<String, Object> processPunchOutRequest(String cxmlContent, String sessionKey) {
         log.info("Processing PunchOut request for sessionKey={}", sessionKey);
+        long startTime = System.currentTimeMillis();
         
         PunchOutRequest request = null;
+        CompletableFuture<NetworkRequestDocument> inboundLog = null;
         try {
             // Parse cXML first to extract the session key
             request = convertCxmlToJson(cxmlContent);
@@ -63,23 +95,55 @@ public class PunchOutOrchestrationService {
                 request.setSessionKey(sessionKey);
             }
             
-            // Now log the inbound request with the correct session key
-            logInboundCxmlRequest(cxmlContent, request.getSessionKey());
-            
-            String authToken = getAuthenticationToken(request);
-            
-            Map<String, Object> mulePayload = prepareMulePayload(request);
-            
             // Extract environment from request
             String environment = extractEnvironmentFromRequest(request);
-            Map<String, Object> muleResponse = getMuleResponse(mulePayload, authToken, request.getSessionKey(), environment);
-            
-            savePunchOutSession(request, muleResponse);
-            
-            log.info("Successfully processed PunchOut request for sessionKey={}", request.getSessionKey());
-            return buildSuccessResponse(request, muleResponse);
+            requestDeadlines.narrowToEnvironment(environment);
+            // Environment first: a request waiting on a hung environment must not hold a size-class slot
+            try (Bulkheads.Permit environmentPermit = bulkheads.enterEnvironment(environment);
+                 Bulkheads.Permit sizePermit = bulkheads.enterSizeClass(cxmlContent.length())) {
+                // Logging, auth and payload preparation are independent: log and fetch the
+                // token on the stage executor while this thread prepares the payload
+                PunchOutRequest parsed = request;
+                inboundLog = CompletableFuture.supplyAsync(
+                        () -> logInboundCxmlRequest(cxmlContent, parsed, environment), setupStageExecutor);
+                CompletableFuture<String> authToken = CompletableFuture.supplyAsync(
+                        () -> getAuthenticationToken(parsed), setupStageExecutor);
+                
+                Map<String, Object> mulePayload = prepareMulePayload(request);
+                
+                Map<String, Object> muleResponse = getMuleResponse(mulePayload, join(authToken), request, environment);
+                join(inboundLog);
+                
+                Map<String, Object> response = buildSuccessResponse(request, muleResponse);
+                completeInboundLog(inboundLog, startTime, null);
+                CompletableFuture.runAsync(() -> savePunchOutSession(parsed, muleResponse), setupStageExecutor)
+                        .exceptionally(e -> {
+                            log.error("Failed to save PunchOut session for sessionKey={}: {}",
+                                    parsed.getSessionKey(), e.getMessage(), e);
+                            return null;
+                        });
+                
+                log.info("Successfully processed PunchOut request for sessionKey={}", request.getSessionKey());
+                return response;
+            }
             
+        } catch (BulkheadFullException e) {
+            log.warn("Rejected PunchOut request for sessionKey={}: {}",
+                    request != null ? request.getSessionKey() : sessionKey, e.getMessage());
+            throw e;
+        } catch (DeadlineExceededException e) {
+            completeInboundLog(inboundLog, startTime, e);
+            log.warn("Abandoned PunchOut request for sessionKey={}: {}",
+                    request != null ? request.getSessionKey() : sessionKey, e.getMessage());
+            throw e;
         } catch (Exception e) {
+            completeInboundLog(inboundLog, startTime, e);
+            if (DeadlineContext.current().isExpired()) {
+                // The caller has given up; report the deadline rather than the failure it caused
+                log.warn("Abandoned PunchOut request for sessionKey={} after deadline: {}",
+                        request != null ? request.getSessionKey() : sessionKey, e.getMessage());
+                throw new DeadlineExceededException("PunchOut setup", e);
+            }
             log.error("Error processing PunchOut request for sessionKey={}: {}", sessionKey, e.getMessage(), e);
             
             // Save failed session for troubleshooting
@@ -95,7 +159,34 @@ public class PunchOutOrchestrationService {
         }
     }
 
-    private void logInboundCxmlRequest(String cxmlContent, String sessionKey) {
+    private static <T> T join(CompletableFuture<T> stage) {
+        try {
+            return stage.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the inbound log with the request's outcome once its document exists; a failed
+     * request does not wait for the logging stage.
+     */
+    private void completeInboundLog(CompletableFuture<NetworkRequestDocument> inboundLog, long startTime,
+                                    Exception failure) {
+        if (inboundLog == null) {
+            return;
+        }
+        long duration = System.currentTimeMillis() - startTime;
+        inboundLog.thenAccept(document -> networkRequestLogger.completeInbound(document,
+                failure == null ? 200 : null, duration, failure == null,
+                failure != null ? failure.getMessage() : null));
+    }
+
+    private NetworkRequestDocument logInboundCxmlRequest(String cxmlContent, PunchOutRequest request, String environment) {
+        String sessionKey = request.getSessionKey();
         log.debug("Logging inbound cXML request");
         
         Map<String, String> headers = new HashMap<>();
@@ -104,8 +195,10 @@ public class PunchOutOrchestrationService {
         headers.put(HttpHeaders.USER_AGENT, "B2B PunchOut Client");
         headers.put(HttpHeaders.CONTENT_LENGTH, String.valueOf(cxmlContent != null ? cxmlContent.length() : 0));
         
-        networkRequestLogger.logInboundRequest(
+        return networkRequestLogger.logInboundRequest(
                 sessionKey != null ? sessionKey : "UNKNOWN",
+                environment,
+                request.customerIdentifier(),
                 "B2B Customer",
                 "Punchout Gateway",
                 "POST",
@@ -166,16 +259,8 @@ public class PunchOutOrchestrationService {
                     try {
                         log.info("Parsing targetJson (length: {})", onboarding.getTargetJson().length());
                         
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> template = objectMapper.readValue(
-                                onboarding.getTargetJson(), 
-                                Map.class
-                        );
-                        
-                        log.info("Parsed template keys: {}", template.keySet());
-                        
-                        // Replace placeholders with actual values from request
-                        replaceTemplateValues(template, request);
+                        // Parse and replace placeholders with actual values from request
+                        Map<String, Object> template = templateRenderer.render(onboarding.getTargetJson(), request);
                         
                         log.info("✅ Using onboarded JSON template for customer: {}, final keys: {}", 
                                 customerIdentifier, template.keySet());
@@ -228,67 +313,14 @@ public class PunchOutOrchestrationService {
     }
 
     private String extractCustomerIdentifier(PunchOutRequest request) {
-        // Try to get customer name from extrinsics first
-        if (request.getExtrinsics() != null) {
-            String customerName = request.getExtrinsics().get("CustomerName");
-            if (customerName != null && !customerName.isEmpty()) {
-                return customerName;
-            }
-        }
-        
-        // Fallback to fromIdentity or other identifiers
-        if (request.getFromIdentity() != null) {
-            return request.getFromIdentity();
-        }
-        
-        return "UNKNOWN";
-    }
-
-    @SuppressWarnings("unchecked")
-    private void replaceTemplateValues(Map<String, Object> template, PunchOutRequest request) {
-        replaceTemplateValues(template, request, true);
+        return request.customerIdentifier();
     }
 
-    @SuppressWarnings("unchecked")
-    private void replaceTemplateValues(Map<String, Object> template, PunchOutRequest request, boolean isRoot) {
-        // Recursively replace common placeholder patterns in the template
-        for (Map.Entry<String, Object> entry : template.entrySet()) {
-            Object value = entry.getValue();
-            
-            if (value instanceof String) {
-                String strValue = (String) value;
-                
-                // Replace common placeholders
-                strValue = strValue.replace("{{sessionKey}}", request.getSessionKey() != null ? request.getSessionKey() : "");
-                strValue = strValue.replace("{{buyerCookie}}", request.getBuyerCookie() != null ? request.getBuyerCookie() : "");
-                strValue = strValue.replace("{{returnUrl}}", request.getCartReturnUrl() != null ? request.getCartReturnUrl() : "");
-                strValue = strValue.replace("{{operation}}", request.getOperation() != null ? request.getOperation() : "create");
-                strValue = strValue.replace("{{contactEmail}}", request.getContactEmail() != null ? request.getContactEmail() : "");
-                strValue = strValue.replace("{{fromIdentity}}", request.getFromIdentity() != null ? request.getFromIdentity() : "");
-                strValue = strValue.replace("{{toIdentity}}", request.getToIdentity() != null ? request.getToIdentity() : "");
-                
-                entry.setValue(strValue);
-            } else if (value instanceof Map) {
-                // Recursively process nested maps
-                replaceTemplateValues((Map<String, Object>) value, request, false);
-            }
-        }
-        
-        // Only add dynamic values to root level (not nested objects)
-        if (isRoot) {
-            if (!template.containsKey("sessionKey") && request.getSessionKey() != null) {
-                template.put("sessionKey", request.getSessionKey());
-            }
-            if (!template.containsKey("timestamp")) {
-                template.put("timestamp", request.getTimestamp().toString());
-            }
-        }
-    }
-
-    private Map<String, Object> getMuleResponse(Map<String, Object> payload, String token, String sessionKey, String environment) {
+    private Map<String, Object> getMuleResponse(Map<String, Object> payload, String token, PunchOutRequest request, String environment) {
         try {
-            log.debug("Fetching Mule response for sessionKey={}, environment={}", sessionKey, environment);
-            return muleServiceClient.sendMuleRequest(payload, token, sessionKey, environment);
+            log.debug("Fetching Mule response for sessionKey={}, environment={}", request.getSessionKey(), environment);
+            return muleServiceClient.sendMuleRequest(payload, token, request.getSessionKey(), environment,
+                    request.customerIdentifier());
         } catch (Exception e) {
             log.error("Failed to get Mule response: {}", e.getMessage(), e);
             throw new RuntimeException("Mule request failed: " + e.getMessage(), e);
@@ -329,7 +361,7 @@ public class PunchOutOrchestrationService {
         session.setEnvironment(extractEnvironment(request));
         session.setCatalog((String) muleResponse.get("catalogUrl"));
         
-        sessionRepository.save(session);
+        activeSessions.save(session);
         log.info("Saved PunchOut session: sessionKey={}, environment={}", request.getSessionKey(), session.getEnvironment());
     }
 
@@ -399,7 +431,7 @@ public class PunchOutOrchestrationService {
     
     public Map<String, Object> processOrderMessage(String cxmlContent) {
         long startTime = System.currentTimeMillis();
-        String requestId = "REQ_ORDER_" + java.util.UUID.randomUUID().toString().substring(0, 8);
+        String requestId = IdGenerator.nextId("REQ_ORDER_");
         
         try {
             log.info("Processing order message request: {}", requestId);
@@ -409,8 +441,10 @@ public class PunchOutOrchestrationService {
             Map<String, String> headers = new HashMap<>();
             headers.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_XML_VALUE);
             
-            networkRequestLogger.logInboundRequest(
+            NetworkRequestDocument inbound = networkRequestLogger.logInboundRequest(
                     sessionKey,
+                    null,
+                    null,
                     "B2B Customer",
                     "Punchout Gateway",
                     "POST",
@@ -419,6 +453,7 @@ public class PunchOutOrchestrationService {
                     cxmlContent,
                     "cXML"
             );
+            networkRequestLogger.completeInbound(inbound, 200, System.currentTimeMillis() - startTime, true, null);
             
             log.info("Order message processed for session: {}", sessionKey);
             
@@ -435,7 +470,24 @@ public class PunchOutOrchestrationService {
         }
     }
     
+    /**
+     * Session key of the session whose BuyerCookie the order message echoes. Falls back to
+     * the BuyerCookie itself when the session is unknown, and to a generated key when the
+     * message carries none.
+     */
     private String extractSessionKeyFromOrderMessage(String cxmlContent) {
-        return "SESSION_ORDER_" + System.currentTimeMillis();
+        String buyerCookie = null;
+        try {
+            JsonNode root = xmlMapper.readTree(cxmlContent);
+            buyerCookie = root.path("Message").path("PunchOutOrderMessage").path("BuyerCookie").asText(null);
+        } catch (Exception e) {
+            log.warn("Could not read BuyerCookie from order message: {}", e.getMessage());
+        }
+        if (buyerCookie == null || buyerCookie.isBlank()) {
+            return IdGenerator.nextId("SESSION_ORDER_");
+        }
+        return activeSessions.findByBuyerCookie(buyerCookie)
+                .map(PunchOutSessionDocument::getSessionKey)
+                .orElse(buyerCookie);
     }
 }
@@ -0,0 +1,261 @@
+package com.waters.punchout.gateway.service;
+
+import com.waters.punchout.gateway.config.SecurityAuditProperties;
+import com.waters.punchout.gateway.entity.SecurityAuditLog;
+import com.waters.punchout.gateway.entity.SecurityStatsBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes security audit events off the request thread. Events go into a bounded queue
+ * that is drained in batched inserts. Only AUTH_SUCCESS events may be lost: when the
+ * queue is full they are dropped and counted, while failures and admin events (key
+ * revocation, JWT changes, ...) are inserted by the submitting thread instead. Batches
+ * that fail to insert are kept and written first on the next flush; every event gets its
+ * id when submitted, so a batch that was partly inserted can be written again in full.
+ * Hourly per-customer counts are updated as events are submitted, whether or not the
+ * event itself is written, and flushed as $inc upserts into security_stats_hourly.
+ */
+@Component
+@Slf4j
+public class SecurityAuditWriter {
+
+    static final String UNKNOWN_CUSTOMER = "_unknown";
+    private static final String AUTH_SUCCESS = "AUTH_SUCCESS";
+
+    private final MongoTemplate mongoTemplate;
+    private final SecurityAuditProperties properties;
+    private final BlockingQueue<SecurityAuditLog> queue;
+    /** Events whose insert failed, written before the queue on the next flush */
+    private final BlockingQueue<SecurityAuditLog> unwritten = new LinkedBlockingQueue<>();
+    private final Counter dropped;
+    private volatile boolean mongoAvailable = true;
+
+    /** customer|hour -> counts not yet written */
+    private final Map<String, PendingCounts> pending = new ConcurrentHashMap<>();
+
+    public SecurityAuditWriter(MongoTemplate mongoTemplate, SecurityAuditProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getMaxBufferedEvents());
+        Gauge.builder("punchout.security.audit.buffered", this, writer -> writer.queue.size() + writer.unwritten.size())
+                .description("Security audit events waiting to be written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("punchout.security.audit.dropped")
+                .description("AUTH_SUCCESS audit events dropped because the buffer was full or MongoDB kept failing")
+                .register(meterRegistry);
+    }
+
+    public void submit(SecurityAuditLog event) {
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(LocalDateTime.now());
+        }
+        LocalDateTime hour = event.getTimestamp().truncatedTo(ChronoUnit.HOURS);
+        String customer = event.getCustomerName() != null ? event.getCustomerName() : UNKNOWN_CUSTOMER;
+        pending.computeIfAbsent(customer + "|" + hour, k -> new PendingCounts(customer, hour))
+                .record(event.getEventType());
+
+        if (event.getId() == null) {
+            event.setId(new ObjectId().toHexString());
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        if (AUTH_SUCCESS.equals(event.getEventType())) {
+            dropped.increment();
+            log.debug("Security audit buffer full, dropped {} event", event.getEventType());
+        } else if (!mongoAvailable || !insert(List.of(event))) {
+            // Never dropped; if the insert fails it waits for the next flush
+            unwritten.add(event);
+        }
+    }
+
+    /**
+     * Successes, failures and events since the given hour not yet written, by customer.
+     */
+    Map<String, long[]> unflushedCounts(LocalDateTime sinceHour) {
+        Map<String, long[]> counts = new HashMap<>();
+        pending.forEach((key, value) -> {
+            if (!value.hour.isBefore(sinceHour)) {
+                counts.put(value.customer, add(counts.get(value.customer), value.successes.sum(),
+                        value.failures.sum(), value.events.sum()));
+            }
+        });
+        return counts;
+    }
+
+    @Scheduled(initialDelayString = "${punchout.security-audit.flush-interval-ms:1000}",
+            fixedDelayString = "${punchout.security-audit.flush-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void flush() {
+        flushEvents();
+        flushCounts();
+    }
+
+    private void flushEvents() {
+        if (drain(unwritten)) {
+            drain(queue);
+        }
+    }
+
+    /**
+     * Inserts the source in batches; stops at the first failure, keeping that batch.
+     */
+    private boolean drain(BlockingQueue<SecurityAuditLog> source) {
+        List<SecurityAuditLog> batch = new ArrayList<>(properties.getBatchSize());
+        while (source.drainTo(batch, properties.getBatchSize()) > 0) {
+            if (!insert(batch)) {
+                retain(batch);
+                return false;
+            }
+            batch.clear();
+        }
+        return true;
+    }
+
+    private boolean insert(List<SecurityAuditLog> events) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SecurityAuditLog.class);
+            bulk.insert(events);
+            bulk.execute();
+        } catch (DuplicateKeyException e) {
+            // Already inserted by an attempt that failed part-way; the rest went in
+        } catch (BulkOperationException e) {
+            if (!e.getErrors().stream().allMatch(error -> error.getCode() == 11000)) {
+                return failed(events, e);
+            }
+        } catch (DataAccessException e) {
+            return failed(events, e);
+        }
+        mongoAvailable = true;
+        return true;
+    }
+
+    private boolean failed(List<SecurityAuditLog> events, DataAccessException e) {
+        if (mongoAvailable) {
+            log.warn("Could not write {} security audit events, retrying on the next flush: {}",
+                    events.size(), e.getMessage());
+        }
+        mongoAvailable = false;
+        return false;
+    }
+
+    /**
+     * Keeps a failed batch for the next flush. AUTH_SUCCESS events are only kept while
+     * fewer than max-buffered-events are waiting; all others are always kept.
+     */
+    private void retain(List<SecurityAuditLog> events) {
+        for (SecurityAuditLog event : events) {
+            if (!AUTH_SUCCESS.equals(event.getEventType()) || unwritten.size() < properties.getMaxBufferedEvents()) {
+                unwritten.add(event);
+            } else {
+                dropped.increment();
+            }
+        }
+    }
+
+    private void flushCounts() {
+        List<PendingCounts> flushed = new ArrayList<>();
+        List<long[]> taken = new ArrayList<>();
+        BulkOperations bulk = null;
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        for (Map.Entry<String, PendingCounts> entry : pending.entrySet()) {
+            PendingCounts counts = entry.getValue();
+            long[] values = {counts.successes.sumThenReset(), counts.failures.sumThenReset(),
+                    counts.events.sumThenReset()};
+            if (values[2] == 0) {
+                if (counts.hour.isBefore(currentHour)) {
+                    pending.remove(entry.getKey(), counts);
+                }
+                continue;
+            }
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SecurityStatsBucket.class);
+            }
+            bulk.upsert(Query.query(Criteria.where("_id").is(entry.getKey())), new Update()
+                    .setOnInsert("customerName", counts.customer)
+                    .setOnInsert("hour", counts.hour)
+                    .inc("authSuccesses", values[0])
+                    .inc("authFailures", values[1])
+                    .inc("events", values[2]));
+            flushed.add(counts);
+            taken.add(values);
+        }
+        if (bulk == null) {
+            return;
+        }
+        try {
+            bulk.execute();
+        } catch (DataAccessException e) {
+            for (int i = 0; i < flushed.size(); i++) {
+                flushed.get(i).restore(taken.get(i));
+            }
+            log.warn("Could not flush {} security counters, retrying next time: {}", flushed.size(), e.getMessage());
+        }
+    }
+
+    private static long[] add(long[] total, long successes, long failures, long events) {
+        if (total == null) {
+            return new long[]{successes, failures, events};
+        }
+        total[0] += successes;
+        total[1] += failures;
+        total[2] += events;
+        return total;
+    }
+
+    private static final class PendingCounts {
+        private final String customer;
+        private final LocalDateTime hour;
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder events = new LongAdder();
+
+        private PendingCounts(String customer, LocalDateTime hour) {
+            this.customer = customer;
+            this.hour = hour;
+        }
+
+        private void record(String eventType) {
+            if (AUTH_SUCCESS.equals(eventType)) {
+                successes.increment();
+            } else if ("AUTH_FAILURE".equals(eventType)) {
+                failures.increment();
+            }
+            events.increment();
+        }
+
+        private void restore(long[] values) {
+            successes.add(values[0]);
+            failures.add(values[1]);
+            events.add(values[2]);
+        }
+    }
+}
@@ -1,35 +1,85 @@
 package com.waters.punchout.gateway.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.waters.punchout.gateway.coherence.CacheInvalidationListener;
+import com.waters.punchout.gateway.config.ApiKeyProperties;
 import com.waters.punchout.gateway.entity.ApiKey;
 import com.waters.punchout.gateway.entity.SecurityAuditLog;
+import com.waters.punchout.gateway.entity.SecurityStatsBucket;
 import com.waters.punchout.gateway.repository.ApiKeyRepository;
 import com.waters.punchout.gateway.repository.SecurityAuditLogRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
+/**
+ * API key management and validation. Keys are stored as SHA-256 hashes; validated keys
+ * are cached by hash for punchout.api-key.cache-ttl and unknown ones for
+ * negative-cache-ttl, so repeated calls do not read MongoDB. Changes to api_keys, here or
+ * on other replicas, evict the affected entries through the cache coherence watcher.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class SecurityService {
+public class SecurityService implements CacheInvalidationListener {
 
     private final ApiKeyRepository apiKeyRepository;
     private final SecurityAuditLogRepository auditLogRepository;
+    private final ApiKeyUsageRecorder usageRecorder;
+    private final SecurityAuditWriter auditWriter;
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, ApiKey> validKeys;
+    private final Cache<String, Boolean> unknownKeys;
     private static final SecureRandom SECURE_RANDOM = new SecureRandom();
     private static final String API_KEY_PREFIX = "pk_";
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int DISPLAY_PREFIX_LENGTH = 10;
+
+    public SecurityService(
+            ApiKeyRepository apiKeyRepository,
+            SecurityAuditLogRepository auditLogRepository,
+            ApiKeyUsageRecorder usageRecorder,
+            SecurityAuditWriter auditWriter,
+            ApiKeyProperties properties,
+            MongoTemplate mongoTemplate
+    ) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.auditLogRepository = auditLogRepository;
+        this.usageRecorder = usageRecorder;
+        this.auditWriter = auditWriter;
+        this.mongoTemplate = mongoTemplate;
+        this.validKeys = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .maximumSize(properties.getCacheMaxSize())
+                .build();
+        this.unknownKeys = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getNegativeCacheTtl())
+                .maximumSize(properties.getCacheMaxSize())
+                .build();
+    }
 
     public List<ApiKey> getAllApiKeys() {
-        return apiKeyRepository.findAll();
+        return masked(apiKeyRepository.findAll());
     }
 
     public List<ApiKey> getApiKeysByCustomer(String customerName) {
-        return apiKeyRepository.findByCustomerName(customerName);
+        return masked(apiKeyRepository.findByCustomerName(customerName));
     }
 
     public ApiKey generateApiKey(String customerName, String description, List<String> permissions, 
@@ -37,7 +87,8 @@ public class SecurityService {
         String keyValue = generateSecureKey();
         
         ApiKey apiKey = new ApiKey();
-        apiKey.setKeyValue(keyValue);
+        apiKey.setKeyHash(sha256Hex(keyValue));
+        apiKey.setKeyPrefix(keyValue.substring(0, DISPLAY_PREFIX_LENGTH));
         apiKey.setCustomerName(customerName);
         apiKey.setDescription(description);
         apiKey.setPermissions(permissions != null ? permissions : Arrays.asList("PUNCHOUT", "ORDER"));
@@ -52,14 +103,17 @@ public class SecurityService {
         }
         
         ApiKey saved = apiKeyRepository.save(apiKey);
+        unknownKeys.invalidate(saved.getKeyHash());
         
         logSecurityEvent("API_KEY_GENERATED", "INFO", customerName, null,
                 "API key generated for " + customerName + " in " + environment,
-                Map.of("keyId", saved.getId(), "permissions", String.join(",", permissions)));
+                Map.of("keyId", saved.getId(), "permissions", String.join(",", apiKey.getPermissions())));
         
         log.info("Generated API key for customer: {}, environment: {}, id: {}", 
                 customerName, environment, saved.getId());
         
+        // The plaintext is only ever handed out here
+        saved.setKeyValue(keyValue);
         return saved;
     }
 
@@ -72,6 +126,7 @@ public class SecurityService {
         apiKey.setRevokedBy(revokedBy);
         
         ApiKey saved = apiKeyRepository.save(apiKey);
+        invalidate(apiKey);
         
         logSecurityEvent("API_KEY_REVOKED", "WARNING", apiKey.getCustomerName(), null,
                 "API key revoked for " + apiKey.getCustomerName(),
@@ -107,37 +162,146 @@ public class SecurityService {
     }
 
     public boolean validateApiKey(String keyValue) {
-        Optional<ApiKey> apiKeyOpt = apiKeyRepository.findByKeyValue(keyValue);
-        
-        if (apiKeyOpt.isEmpty()) {
-            logSecurityEvent("AUTH_FAILURE", "WARNING", null, null,
-                    "Invalid API key attempted", Map.of("keyPrefix", keyValue.substring(0, 10)));
-            return false;
+        return authenticate(keyValue, null).isPresent();
+    }
+
+    /**
+     * Returns the enabled, unexpired key matching keyValue. Usage counts are written by
+     * {@link ApiKeyUsageRecorder} and the audit event by {@link SecurityAuditWriter}.
+     */
+    public Optional<ApiKey> authenticate(String keyValue, String ipAddress) {
+        if (keyValue == null || keyValue.isEmpty()) {
+            return Optional.empty();
+        }
+        String keyHash = sha256Hex(keyValue);
+        ApiKey apiKey = validKeys.getIfPresent(keyHash);
+        if (apiKey == null) {
+            if (unknownKeys.getIfPresent(keyHash) != null) {
+                logUnknownKey(keyValue, ipAddress);
+                return Optional.empty();
+            }
+            apiKey = findByHash(keyValue, keyHash);
+            if (apiKey == null) {
+                unknownKeys.put(keyHash, Boolean.TRUE);
+                logUnknownKey(keyValue, ipAddress);
+                return Optional.empty();
+            }
         }
         
-        ApiKey apiKey = apiKeyOpt.get();
-        
-        if (!apiKey.getEnabled()) {
-            logSecurityEvent("AUTH_FAILURE", "WARNING", apiKey.getCustomerName(), null,
+        if (!Boolean.TRUE.equals(apiKey.getEnabled())) {
+            logSecurityEvent("AUTH_FAILURE", "WARNING", apiKey.getCustomerName(), ipAddress,
                     "Disabled API key attempted", Map.of("keyId", apiKey.getId()));
-            return false;
+            return Optional.empty();
         }
         
         if (apiKey.getExpiresAt() != null && apiKey.getExpiresAt().isBefore(LocalDateTime.now())) {
-            logSecurityEvent("AUTH_FAILURE", "WARNING", apiKey.getCustomerName(), null,
+            logSecurityEvent("AUTH_FAILURE", "WARNING", apiKey.getCustomerName(), ipAddress,
                     "Expired API key attempted", Map.of("keyId", apiKey.getId()));
-            return false;
+            return Optional.empty();
         }
         
-        // Update usage stats
-        apiKey.setLastUsedAt(LocalDateTime.now());
-        apiKey.setUsageCount(apiKey.getUsageCount() + 1);
-        apiKeyRepository.save(apiKey);
-        
-        logSecurityEvent("AUTH_SUCCESS", "INFO", apiKey.getCustomerName(), null,
+        validKeys.put(keyHash, apiKey);
+        usageRecorder.recordUse(apiKey);
+        logSecurityEvent("AUTH_SUCCESS", "INFO", apiKey.getCustomerName(), ipAddress,
                 "API key authenticated successfully", Map.of("keyId", apiKey.getId()));
-        
-        return true;
+        return Optional.of(apiKey);
+    }
+
+    private ApiKey findByHash(String keyValue, String keyHash) {
+        Optional<ApiKey> hashed = apiKeyRepository.findByKeyHash(keyHash);
+        if (hashed.isPresent()) {
+            return hashed.get();
+        }
+        // Keys created before hashing are stored in plaintext; hash them on first use
+        Optional<ApiKey> legacy = apiKeyRepository.findByKeyValue(keyValue);
+        if (legacy.isEmpty()) {
+            return null;
+        }
+        ApiKey apiKey = legacy.get();
+        String keyPrefix = keyValue.substring(0, Math.min(DISPLAY_PREFIX_LENGTH, keyValue.length()));
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(apiKey.getId())),
+                    new Update().set("keyHash", keyHash).set("keyPrefix", keyPrefix).unset("keyValue"),
+                    ApiKey.class);
+            log.info("Migrated API key id={} to hashed storage", apiKey.getId());
+        } catch (DataAccessException e) {
+            log.warn("Could not migrate API key id={} to hashed storage: {}", apiKey.getId(), e.getMessage());
+        }
+        apiKey.setKeyValue(null);
+        apiKey.setKeyHash(keyHash);
+        apiKey.setKeyPrefix(keyPrefix);
+        return apiKey;
+    }
+
+    private void logUnknownKey(String keyValue, String ipAddress) {
+        logSecurityEvent("AUTH_FAILURE", "WARNING", null, ipAddress, "Invalid API key attempted",
+                Map.of("keyPrefix", keyValue.substring(0, Math.min(DISPLAY_PREFIX_LENGTH, keyValue.length()))));
+    }
+
+    @Override
+    public String collection() {
+        return "api_keys";
+    }
+
+    @Override
+    public void onChange(String id, Document document) {
+        // Usage flushes change every key in use; only evict when the outcome of a check could change
+        validKeys.asMap().values().removeIf(apiKey -> id.equals(apiKey.getId())
+                && (document == null || !sameAuthState(apiKey, document)));
+        if (document == null) {
+            unknownKeys.invalidateAll();
+        } else if (document.getString("keyHash") != null) {
+            unknownKeys.invalidate(document.getString("keyHash"));
+        }
+    }
+
+    @Override
+    public void onReset() {
+        validKeys.invalidateAll();
+        unknownKeys.invalidateAll();
+    }
+
+    private static boolean sameAuthState(ApiKey apiKey, Document document) {
+        Date expiresAt = apiKey.getExpiresAt() != null
+                ? Date.from(apiKey.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant()) : null;
+        return Objects.equals(apiKey.getEnabled(), document.getBoolean("enabled"))
+                && Objects.equals(apiKey.getKeyHash(), document.getString("keyHash"))
+                && Objects.equals(apiKey.getPermissions(), document.get("permissions"))
+                && Objects.equals(expiresAt, document.getDate("expiresAt"));
+    }
+
+    private void invalidate(ApiKey apiKey) {
+        if (apiKey.getKeyHash() != null) {
+            validKeys.invalidate(apiKey.getKeyHash());
+        }
+        if (apiKey.getKeyValue() != null) {
+            validKeys.invalidate(sha256Hex(apiKey.getKeyValue()));
+        }
+    }
+
+    private static List<ApiKey> masked(List<ApiKey> apiKeys) {
+        for (ApiKey apiKey : apiKeys) {
+            String prefix = apiKey.getKeyPrefix();
+            if (prefix == null && apiKey.getKeyValue() != null) {
+                prefix = apiKey.getKeyValue().substring(0,
+                        Math.min(DISPLAY_PREFIX_LENGTH, apiKey.getKeyValue().length()));
+            }
+            apiKey.setKeyValue(prefix != null ? prefix + "..." : null);
+        }
+        return apiKeys;
+    }
+
+    static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     public void deleteApiKey(String apiKeyId) {
@@ -145,6 +309,7 @@ public class SecurityService {
                 .orElseThrow(() -> new RuntimeException("API Key not found: " + apiKeyId));
         
         apiKeyRepository.deleteById(apiKeyId);
+        invalidate(apiKey);
         
         logSecurityEvent("API_KEY_DELETED", "WARNING", apiKey.getCustomerName(), null,
                 "API key deleted for " + apiKey.getCustomerName(),
@@ -184,30 +349,59 @@ public class SecurityService {
         return auditLogRepository.findByEventType(eventType);
     }
 
+    /**
+     * Key state from a count aggregation over api_keys and the last 24 hours of auth
+     * activity from the hourly counters, including counts not yet flushed by this replica.
+     */
     public Map<String, Object> getSecurityStatistics() {
         Map<String, Object> stats = new HashMap<>();
         
-        List<ApiKey> allKeys = apiKeyRepository.findAll();
-        long activeKeys = allKeys.stream().filter(k -> k.getEnabled()).count();
-        long expiredKeys = allKeys.stream()
-                .filter(k -> k.getExpiresAt() != null && k.getExpiresAt().isBefore(LocalDateTime.now()))
-                .count();
+        long totalKeys = 0;
+        long activeKeys = 0;
+        Aggregation byEnabled = Aggregation.newAggregation(Aggregation.group("enabled").count().as("count"));
+        for (Document group : mongoTemplate.aggregate(byEnabled, ApiKey.class, Document.class)) {
+            long count = ((Number) group.get("count")).longValue();
+            totalKeys += count;
+            if (Boolean.TRUE.equals(group.get("_id"))) {
+                activeKeys += count;
+            }
+        }
+        long expiredKeys = mongoTemplate.count(
+                Query.query(Criteria.where("expiresAt").lt(LocalDateTime.now())), ApiKey.class);
         
-        stats.put("totalApiKeys", allKeys.size());
+        stats.put("totalApiKeys", totalKeys);
         stats.put("activeApiKeys", activeKeys);
         stats.put("expiredApiKeys", expiredKeys);
-        stats.put("revokedApiKeys", allKeys.size() - activeKeys);
-        
-        LocalDateTime last24h = LocalDateTime.now().minusHours(24);
-        List<SecurityAuditLog> recentLogs = auditLogRepository.findByTimestampAfterOrderByTimestampDesc(
-                last24h, PageRequest.of(0, 1000));
+        stats.put("revokedApiKeys", totalKeys - activeKeys);
+        
+        LocalDateTime since = LocalDateTime.now().minusHours(23).truncatedTo(ChronoUnit.HOURS);
+        Map<String, long[]> byCustomer = auditWriter.unflushedCounts(since);
+        List<SecurityStatsBucket> buckets = mongoTemplate.find(
+                Query.query(Criteria.where("hour").gte(since)), SecurityStatsBucket.class);
+        for (SecurityStatsBucket bucket : buckets) {
+            long[] counts = byCustomer.computeIfAbsent(bucket.getCustomerName(), k -> new long[3]);
+            counts[0] += valueOf(bucket.getAuthSuccesses());
+            counts[1] += valueOf(bucket.getAuthFailures());
+            counts[2] += valueOf(bucket.getEvents());
+        }
         
-        long authFailures = recentLogs.stream().filter(l -> "AUTH_FAILURE".equals(l.getEventType())).count();
-        long authSuccesses = recentLogs.stream().filter(l -> "AUTH_SUCCESS".equals(l.getEventType())).count();
+        long authSuccesses = 0;
+        long authFailures = 0;
+        long events = 0;
+        Map<String, Long> failuresByCustomer = new TreeMap<>();
+        for (Map.Entry<String, long[]> entry : byCustomer.entrySet()) {
+            authSuccesses += entry.getValue()[0];
+            authFailures += entry.getValue()[1];
+            events += entry.getValue()[2];
+            if (entry.getValue()[1] > 0) {
+                failuresByCustomer.put(entry.getKey(), entry.getValue()[1]);
+            }
+        }
         
         stats.put("authFailures24h", authFailures);
         stats.put("authSuccesses24h", authSuccesses);
-        stats.put("totalSecurityEvents24h", recentLogs.size());
+        stats.put("totalSecurityEvents24h", events);
+        stats.put("authFailuresByCustomer24h", failuresByCustomer);
         
         return stats;
     }
@@ -223,7 +417,11 @@ public class SecurityService {
         log.setDescription(description);
         log.setMetadata(metadata);
         
-        auditLogRepository.save(log);
+        auditWriter.submit(log);
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0;
     }
 
     private String generateSecureKey() {
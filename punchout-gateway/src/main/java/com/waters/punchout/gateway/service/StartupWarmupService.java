@@ -0,0 +1,197 @@
+package com.waters.punchout.gateway.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.waters.punchout.gateway.converter.dialect.DialectDetector;
+import com.waters.punchout.gateway.converter.resolve.ConversionContext;
+import com.waters.punchout.gateway.converter.resolve.ConversionKey;
+import com.waters.punchout.gateway.converter.resolve.CustomerResolver;
+import com.waters.punchout.gateway.converter.strategy.ConverterRegistry;
+import com.waters.punchout.gateway.converter.strategy.PunchOutConverterStrategy;
+import com.waters.punchout.gateway.converter.validation.CxmlDtdValidator;
+import com.waters.punchout.gateway.entity.CustomerOnboarding;
+import com.waters.punchout.gateway.metrics.MetricsService;
+import com.waters.punchout.gateway.model.PunchOutRequest;
+import com.waters.punchout.gateway.util.EnvironmentUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Primes caches and the JIT before the gateway reports ready.
+ *
+ * Runs while ApplicationStartedEvent is being handled; Spring Boot only moves readiness
+ * to ACCEPTING_TRAFFIC after that, so /actuator/health/readiness stays OUT_OF_SERVICE
+ * until warm-up ends. Loads the environment configs, deployed onboardings and converter
+ * registrations, then repeatedly parses each onboarding's sampleCxml, converts it with the
+ * strategy it resolves to and renders its targetJson. Customer and strategy resolution
+ * run once per sample, so warm-up does not repeat the per-request INFO lines. Nothing is
+ * sent to the Auth or Mule services.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StartupWarmupService {
+
+    private final EnvironmentConfigService environmentConfigService;
+    private final CustomerOnboardingService onboardingService;
+    private final ConverterRegistry converterRegistry;
+    private final CxmlDtdValidator dtdValidator;
+    private final CustomerResolver customerResolver;
+    private final DialectDetector dialectDetector;
+    private final MuleTemplateRenderer templateRenderer;
+    private final MetricsService metricsService;
+
+    private final XmlMapper xmlMapper = new XmlMapper();
+
+    @Value("${punchout.warmup.enabled:true}")
+    private boolean enabled;
+
+    /** Enough for C1 to compile the parse and convert paths; C2 follows from real traffic */
+    @Value("${punchout.warmup.iterations:100}")
+    private int iterations;
+
+    @Value("${punchout.warmup.max-duration-ms:30000}")
+    private long maxDurationMs;
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(1)
+    public void warmUp() {
+        if (!enabled) {
+            log.info("Startup warm-up disabled");
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        int environments = timed("environments", this::loadEnvironmentConfigs);
+        List<CustomerOnboarding> onboardings = new ArrayList<>();
+        timed("onboardings", () -> {
+            onboardings.addAll(loadDeployedOnboardings());
+            return onboardings.size();
+        });
+        int converters = timed("converters", converterRegistry::getConverterCount);
+
+        List<CustomerOnboarding> samples = new ArrayList<>();
+        for (CustomerOnboarding onboarding : onboardings) {
+            if (onboarding.getSampleCxml() != null && !onboarding.getSampleCxml().isBlank()) {
+                samples.add(onboarding);
+            }
+        }
+        int conversions = 0;
+        if (samples.isEmpty()) {
+            log.warn("No deployed onboarding has a sampleCxml; converters stay cold until the first requests");
+        } else {
+            // Log levels are shared with every other thread, so they are left alone; the
+            // repeated steps are the ones that log at DEBUG at most
+            conversions = timed("conversions", () -> exercise(samples, start + maxDurationMs));
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        metricsService.recordWarmupPhase("total", duration);
+        log.info("Startup warm-up finished in {} ms: {} environment configs, {} deployed onboardings, "
+                        + "{} converters, {} conversions", duration, environments, onboardings.size(),
+                converters, conversions);
+    }
+
+    private int loadEnvironmentConfigs() {
+        int loaded = 0;
+        for (String environment : EnvironmentUtil.getAllowedEnvironments()) {
+            try {
+                environmentConfigService.getConfig(environment);
+                loaded++;
+            } catch (Exception e) {
+                // Missing configs fall back without an error, so this is the database itself
+                log.warn("Warm-up could not load environment config {}, skipping the rest: {}",
+                        environment, e.getMessage());
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    private List<CustomerOnboarding> loadDeployedOnboardings() {
+        try {
+            return onboardingService.getDeployedOnboardings();
+        } catch (Exception e) {
+            log.warn("Warm-up could not load deployed onboardings: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private int exercise(List<CustomerOnboarding> samples, long deadline) {
+        List<Runnable> conversions = new ArrayList<>();
+        for (CustomerOnboarding sample : samples) {
+            Runnable conversion = prepare(sample);
+            if (conversion != null) {
+                conversions.add(conversion);
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < iterations && System.currentTimeMillis() < deadline; i++) {
+            for (Runnable conversion : conversions) {
+                conversion.run();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Resolves the sample's customer, strategy and DTD setting once, which is where the
+     * pipeline logs at INFO, and returns the parse, dialect, convert and render steps a
+     * request of that customer repeats. Null when the sample does not convert.
+     */
+    private Runnable prepare(CustomerOnboarding sample) {
+        String cxml = sample.getSampleCxml();
+        String targetJson = sample.getTargetJson() != null && !sample.getTargetJson().isBlank()
+                ? sample.getTargetJson() : null;
+        boolean validate;
+        ConversionKey key;
+        PunchOutConverterStrategy strategy;
+        try {
+            validate = dtdValidator.isEnabled(cxml);
+            JsonNode root = parse(cxml, validate);
+            key = customerResolver.resolve(root);
+            strategy = converterRegistry.get(key);
+            strategy.convert(root, new ConversionContext(key, dialectDetector.detect(root), root, cxml));
+        } catch (Exception e) {
+            log.warn("Warm-up skipped the sampleCxml of onboarding {}: {}", sample.getId(), e.getMessage());
+            return null;
+        }
+        return () -> {
+            try {
+                JsonNode root = parse(cxml, validate);
+                PunchOutRequest request = strategy.convert(root,
+                        new ConversionContext(key, dialectDetector.detect(root), root, cxml));
+                if (targetJson != null) {
+                    templateRenderer.render(targetJson, request);
+                }
+            } catch (Exception e) {
+                // Invalid targetJson is reported when a real request uses it
+            }
+        };
+    }
+
+    private JsonNode parse(String cxml, boolean validate) throws IOException {
+        return validate ? dtdValidator.readTree(xmlMapper, cxml) : xmlMapper.readTree(cxml);
+    }
+
+    private int timed(String phase, IntSupplier step) {
+        long start = System.currentTimeMillis();
+        int count = step.getAsInt();
+        long duration = System.currentTimeMillis() - start;
+        metricsService.recordWarmupPhase(phase, duration);
+        log.info("Warm-up phase {} took {} ms ({} items)", phase, duration, count);
+        return count;
+    }
+}
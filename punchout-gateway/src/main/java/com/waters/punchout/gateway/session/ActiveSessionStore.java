@@ -0,0 +1,216 @@
+package com.waters.punchout.gateway.session;
+
+import com.waters.punchout.gateway.config.SessionCacheProperties;
+import com.waters.punchout.gateway.deadline.DeadlineContext;
+import com.waters.punchout.gateway.entity.OrderDocument;
+import com.waters.punchout.gateway.entity.OrderItem;
+import com.waters.punchout.gateway.entity.PunchOutSessionDocument;
+import com.waters.punchout.gateway.repository.PunchOutSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near-cache of active PunchOut sessions, indexed by session key and by BuyerCookie so an
+ * order can be tied to the session that produced it with a hash lookup. Sessions are
+ * written through to the punchout collection; lookups that miss (e.g. sessions set up on
+ * another replica) fall back to MongoDB and cache what they find. Entries expire
+ * punchout.session-cache.ttl after setup, driven by a {@link TimerWheel}.
+ */
+@Component
+@Slf4j
+public class ActiveSessionStore {
+
+    private final PunchOutSessionRepository sessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final SessionCacheProperties properties;
+    private final Map<String, Entry> bySessionKey = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byBuyerCookie = new ConcurrentHashMap<>();
+    private final TimerWheel<Entry> expiry;
+    private final Counter hits;
+    private final Counter loads;
+    private final Counter misses;
+
+    public ActiveSessionStore(
+            PunchOutSessionRepository sessionRepository,
+            MongoTemplate mongoTemplate,
+            SessionCacheProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${punchout.session-cache.tick-ms:1000}") long tickMs
+    ) {
+        this.sessionRepository = sessionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.expiry = new TimerWheel<>(TimeUnit.MILLISECONDS.toNanos(tickMs), properties.getWheelSlots(), System.nanoTime());
+        Gauge.builder("punchout.session.cache.size", bySessionKey, Map::size)
+                .description("Active PunchOut sessions held in memory")
+                .register(meterRegistry);
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.loads = lookupCounter(meterRegistry, "loaded");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * Indexes for the lookups that miss the cache; scripts/create-mongodb-indexes.sh
+     * creates the same ones.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        try {
+            IndexOperations indexes = mongoTemplate.indexOps(PunchOutSessionDocument.class);
+            indexes.ensureIndex(new Index().on("sessionKey", Sort.Direction.ASC).named("idx_sessionKey"));
+            indexes.ensureIndex(new Index().on("buyerCookie", Sort.Direction.ASC)
+                    .on("sessionDate", Sort.Direction.DESC).named("idx_buyerCookie_sessionDate"));
+        } catch (DataAccessException e) {
+            log.warn("Could not ensure session lookup indexes on punchout: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Caches the session and saves it.
+     */
+    public PunchOutSessionDocument save(PunchOutSessionDocument session) {
+        cache(session, properties.getTtl());
+        return sessionRepository.save(session);
+    }
+
+    public Optional<PunchOutSessionDocument> findBySessionKey(String sessionKey) {
+        return find(bySessionKey, "sessionKey", sessionKey);
+    }
+
+    /**
+     * The most recent session started with this BuyerCookie.
+     */
+    public Optional<PunchOutSessionDocument> findByBuyerCookie(String buyerCookie) {
+        return find(byBuyerCookie, "buyerCookie", buyerCookie);
+    }
+
+    /**
+     * Records the order on its session, in memory and in MongoDB.
+     */
+    public void recordOrder(PunchOutSessionDocument session, OrderDocument order) {
+        int itemQuantity = 0;
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                itemQuantity += item.getQuantity() != null ? item.getQuantity() : 0;
+            }
+        }
+        LocalDateTime punchedOut = LocalDateTime.now();
+        int lineItems = order.getItems() != null ? order.getItems().size() : 0;
+        synchronized (session) {
+            session.setOrderId(order.getOrderId());
+            session.setOrderValue(order.getTotal());
+            session.setLineItems(lineItems);
+            session.setItemQuantity(itemQuantity);
+            session.setPunchedOut(punchedOut);
+        }
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("sessionKey").is(session.getSessionKey())),
+                    new Update()
+                            .set("orderId", order.getOrderId())
+                            .set("orderValue", order.getTotal())
+                            .set("lineItems", lineItems)
+                            .set("itemQuantity", itemQuantity)
+                            .set("punchedOut", punchedOut),
+                    PunchOutSessionDocument.class);
+        } catch (DataAccessException e) {
+            log.warn("Could not record order {} on session {}: {}", order.getOrderId(), session.getSessionKey(),
+                    e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${punchout.session-cache.tick-ms:1000}")
+    public void expire() {
+        expiry.advance(System.nanoTime(), entry -> {
+            bySessionKey.remove(entry.session.getSessionKey(), entry);
+            if (entry.session.getBuyerCookie() != null) {
+                byBuyerCookie.remove(entry.session.getBuyerCookie(), entry);
+            }
+        });
+    }
+
+    private Optional<PunchOutSessionDocument> find(Map<String, Entry> index, String field, String value) {
+        if (value == null || value.isEmpty()) {
+            return Optional.empty();
+        }
+        Entry entry = index.get(value);
+        if (entry != null) {
+            hits.increment();
+            return Optional.of(entry.session);
+        }
+        Query query = DeadlineContext.current().bound(
+                Query.query(Criteria.where(field).is(value)).with(Sort.by(Sort.Direction.DESC, "sessionDate")).limit(1),
+                "session lookup");
+        PunchOutSessionDocument session = mongoTemplate.findOne(query, PunchOutSessionDocument.class);
+        if (session == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        loads.increment();
+        if (session.getSessionDate() != null) {
+            Duration remaining = Duration.between(LocalDateTime.now(), session.getSessionDate().plus(properties.getTtl()));
+            if (!remaining.isNegative()) {
+                cache(session, remaining);
+            }
+        }
+        return Optional.of(session);
+    }
+
+    private void cache(PunchOutSessionDocument session, Duration ttl) {
+        if (!properties.isEnabled() || session.getSessionKey() == null) {
+            return;
+        }
+        if (bySessionKey.size() >= properties.getMaxEntries() && !bySessionKey.containsKey(session.getSessionKey())) {
+            log.debug("Session cache full, not caching sessionKey={}", session.getSessionKey());
+            return;
+        }
+        Entry entry = new Entry(session);
+        entry.timeout = expiry.schedule(entry, System.nanoTime() + ttl.toNanos());
+        Entry previous = bySessionKey.put(session.getSessionKey(), entry);
+        if (previous != null) {
+            previous.timeout.cancel();
+            if (previous.session.getBuyerCookie() != null) {
+                byBuyerCookie.remove(previous.session.getBuyerCookie(), previous);
+            }
+        }
+        if (session.getBuyerCookie() != null) {
+            byBuyerCookie.put(session.getBuyerCookie(), entry);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("punchout.session.cache.lookups")
+                .tag("result", result)
+                .description("Active session lookups by outcome")
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+        private final PunchOutSessionDocument session;
+        private volatile TimerWheel.Timeout<Entry> timeout;
+
+        private Entry(PunchOutSessionDocument session) {
+            this.session = session;
+        }
+    }
+}
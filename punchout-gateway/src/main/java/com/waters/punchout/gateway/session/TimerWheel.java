@@ -0,0 +1,75 @@
+package com.waters.punchout.gateway.session;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel. An entry due at tick t sits in slot t % size; each advance visits
+ * only the slots of the ticks that passed, so expiry costs O(expired + wrapped entries)
+ * rather than a scan of everything stored. Cancelled entries are dropped lazily when
+ * their slot comes round.
+ */
+final class TimerWheel<T> {
+
+    private final long tickNanos;
+    private final Queue<Timeout<T>>[] slots;
+    private final long startNanos;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickNanos, int size, long startNanos) {
+        this.tickNanos = tickNanos;
+        this.slots = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.startNanos = startNanos;
+    }
+
+    Timeout<T> schedule(T value, long deadlineNanos) {
+        // Round up so an entry never expires before its deadline
+        long tick = Math.max((deadlineNanos - startNanos + tickNanos - 1) / tickNanos, currentTick);
+        Timeout<T> timeout = new Timeout<>(value, tick);
+        slots[(int) (tick % slots.length)].add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Expires everything due up to nowNanos. Called from a single thread.
+     */
+    void advance(long nowNanos, Consumer<T> onExpired) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        // After a long pause one full turn visits every slot
+        long firstTick = Math.max(currentTick, targetTick - slots.length + 1);
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            Iterator<Timeout<T>> it = slots[(int) (tick % slots.length)].iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                } else if (timeout.tick <= targetTick) {
+                    it.remove();
+                    onExpired.accept(timeout.value);
+                }
+            }
+        }
+        currentTick = targetTick + 1;
+    }
+
+    static final class Timeout<T> {
+        private final T value;
+        private final long tick;
+        private volatile boolean cancelled;
+
+        private Timeout(T value, long tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.waters.punchout.gateway.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact, time-ordered IDs for session keys, request IDs and order IDs.
+ *
+ * Each ID is 16 Crockford base32 characters: 13 for a 63-bit value of
+ * (milliseconds since 2024-01-01 << 22 | sequence) and 3 for a 15-bit node id.
+ * IDs from one node sort by creation time, so inserts into the sessionKey and
+ * requestId indexes land at the right edge of the B-tree. Generation is a single
+ * lock-free CAS and never touches SecureRandom.
+ */
+@Slf4j
+public class IdGenerator {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 22;
+    private static final int NODE_BITS = 15;
+    private static final int NODE_CHARS = 3;
+    private static final int TIME_CHARS = 13;
+
+    private static final AtomicLong LAST = new AtomicLong();
+    private static final int NODE_ID = resolveNodeId();
+
+    private IdGenerator() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static String nextId() {
+        long candidate = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        // Same millisecond (or clock stepped back): keep counting up from the last value
+        long value = LAST.accumulateAndGet(candidate, (last, next) -> Math.max(last + 1, next));
+
+        char[] id = new char[TIME_CHARS + NODE_CHARS];
+        for (int i = TIME_CHARS - 1; i >= 0; i--) {
+            id[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        int node = NODE_ID;
+        for (int i = TIME_CHARS + NODE_CHARS - 1; i >= TIME_CHARS; i--) {
+            id[i] = ALPHABET[node & 31];
+            node >>>= 5;
+        }
+        return new String(id);
+    }
+
+    public static String nextId(String prefix) {
+        return prefix + nextId();
+    }
+
+    public static int getNodeId() {
+        return NODE_ID;
+    }
+
+    /**
+     * Uses punchout.node-id / PUNCHOUT_NODE_ID when set (required to guarantee uniqueness
+     * across replicas), otherwise a hash of host name and process id.
+     */
+    private static int resolveNodeId() {
+        String configured = System.getProperty("punchout.node-id", System.getenv("PUNCHOUT_NODE_ID"));
+        if (configured != null && !configured.trim().isEmpty()) {
+            try {
+                return Integer.parseInt(configured.trim()) & ((1 << NODE_BITS) - 1);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid node id '{}'", configured);
+            }
+        }
+
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        int hash = (host + ":" + ProcessHandle.current().pid()).hashCode();
+        int nodeId = (hash ^ (hash >>> NODE_BITS)) & ((1 << NODE_BITS) - 1);
+        log.info("ID generator node id {} derived from host {}", nodeId, host);
+        return nodeId;
+    }
+}
@@ -1,12 +1,403 @@
 package com.waters.punchout.invoice;
 
+import com.waters.punchout.exception.CxmlConversionException;
+import com.waters.punchout.model.InvoiceData;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming converter for cXML InvoiceDetailRequest documents.
+ * The document is read with StAX and handed out as header, line items and summary,
+ * so large invoices are never held as a DOM or JsonNode tree.
+ */
+@Slf4j
 @Component
 public class InvoiceConverter {
-    
-    public Object convertInvoice(String cxmlContent) {
-        // TODO: Implement invoice conversion logic
-        throw new UnsupportedOperationException("Invoice conversion not yet implemented");
+
+    private final XMLInputFactory inputFactory;
+
+    public InvoiceConverter() {
+        this.inputFactory = XMLInputFactory.newFactory();
+        // cXML carries a DOCTYPE pointing at cxml.org; never resolve it or any external entity
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public InvoiceData convertInvoice(String cxmlContent) {
+        InvoiceData invoice = new InvoiceData();
+        List<InvoiceData.LineItem> lineItems = new ArrayList<>();
+
+        parse(new StringReader(cxmlContent), new InvoiceHandler() {
+            @Override
+            public void header(InvoiceData.Header header) {
+                invoice.setHeader(header);
+            }
+
+            @Override
+            public void lineItem(InvoiceData.LineItem item) {
+                lineItems.add(item);
+            }
+
+            @Override
+            public void summary(InvoiceData.Summary summary) {
+                invoice.setSummary(summary);
+            }
+        });
+
+        invoice.setLineItems(lineItems);
+        return invoice;
+    }
+
+    public void parse(Reader reader, InvoiceHandler handler) {
+        XMLStreamReader xml = null;
+        try {
+            xml = inputFactory.createXMLStreamReader(reader);
+            new InvoiceReader(xml, handler).read();
+        } catch (XMLStreamException e) {
+            throw new CxmlConversionException("Invalid invoice cXML: " + e.getMessage(), e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException e) {
+                    log.debug("Failed to close invoice reader: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Single-use parse state. Elements are tracked by local name only, which is enough
+     * for the cXML invoice structure and keeps the per-event work to a switch.
+     */
+    private static final class InvoiceReader {
+
+        private final XMLStreamReader xml;
+        private final InvoiceHandler handler;
+        private final List<String> path = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private final InvoiceData.Header header = new InvoiceData.Header();
+        private final Map<String, String> extrinsics = new LinkedHashMap<>();
+        private boolean headerSeen;
+        private boolean headerEmitted;
+
+        private InvoiceData.LineItem item;
+        private InvoiceData.Summary summary;
+        private Map<String, Object> contact;
+        private String contactRole;
+        private String orderId;
+        private String extrinsicName;
+        private String moneyCurrency;
+
+        private InvoiceReader(XMLStreamReader xml, InvoiceHandler handler) {
+            this.xml = xml;
+            this.handler = handler;
+        }
+
+        private void read() throws XMLStreamException {
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = xml.getLocalName();
+                        path.add(name);
+                        text.setLength(0);
+                        startElement(name);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(xml.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        path.remove(path.size() - 1);
+                        endElement(xml.getLocalName(), text.toString().trim());
+                        text.setLength(0);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            if (!headerSeen) {
+                throw new CxmlConversionException("Document is not an InvoiceDetailRequest");
+            }
+        }
+
+        private void startElement(String name) {
+            switch (name) {
+                case "cXML":
+                    header.setPayloadId(attribute("payloadID"));
+                    break;
+                case "InvoiceDetailRequestHeader":
+                    headerSeen = true;
+                    header.setInvoiceNumber(attribute("invoiceID"));
+                    header.setPurpose(attribute("purpose"));
+                    header.setOperation(attribute("operation"));
+                    header.setInvoiceDate(parseDate(attribute("invoiceDate")));
+                    break;
+                case "Contact":
+                    contact = new LinkedHashMap<>();
+                    contactRole = attribute("role");
+                    break;
+                case "Country":
+                    if (contact != null) {
+                        contact.put("country", attribute("isoCountryCode"));
+                    }
+                    break;
+                case "PaymentTerm":
+                    String days = attribute("payInNumberOfDays");
+                    if (days != null && !headerEmitted) {
+                        header.setPaymentTerms("Net " + days);
+                    }
+                    break;
+                case "OrderReference":
+                case "OrderIDInfo":
+                    if (attribute("orderID") != null) {
+                        orderId = attribute("orderID");
+                    }
+                    break;
+                case "InvoiceDetailItem":
+                    emitHeader();
+                    item = new InvoiceData.LineItem();
+                    item.setLineNumber(parseInteger(attribute("invoiceLineNumber")));
+                    item.setQuantity(parseAmount(attribute("quantity")));
+                    item.setOrderId(orderId);
+                    break;
+                case "InvoiceDetailItemReference":
+                    if (item != null) {
+                        item.setReferenceLineNumber(parseInteger(attribute("lineNumber")));
+                    }
+                    break;
+                case "InvoiceDetailSummary":
+                    emitHeader();
+                    summary = new InvoiceData.Summary();
+                    break;
+                case "Extrinsic":
+                    extrinsicName = attribute("name");
+                    break;
+                case "Money":
+                    moneyCurrency = attribute("currency");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void endElement(String name, String value) {
+            switch (name) {
+                case "Identity":
+                    identity(value);
+                    break;
+                case "InvoiceDetailRequestHeader":
+                    emitHeader();
+                    break;
+                case "Name":
+                case "Email":
+                case "City":
+                case "State":
+                case "PostalCode":
+                    if (contact != null && !value.isEmpty()) {
+                        contact.put(name.equals("PostalCode") ? "zip" : name.toLowerCase(), value);
+                    }
+                    break;
+                case "Street":
+                    if (contact != null && !value.isEmpty()) {
+                        contact.merge("street", value, (a, b) -> a + ", " + b);
+                    }
+                    break;
+                case "Contact":
+                    endContact();
+                    break;
+                case "Comments":
+                    if (!headerEmitted && !value.isEmpty()) {
+                        header.setComments(value);
+                    }
+                    break;
+                case "Extrinsic":
+                    if (!headerEmitted && extrinsicName != null) {
+                        extrinsics.put(extrinsicName, value);
+                    }
+                    extrinsicName = null;
+                    break;
+                case "Money":
+                    money(parent(), parseAmount(value));
+                    break;
+                case "UnitOfMeasure":
+                    if (item != null) {
+                        item.setUom(value);
+                    }
+                    break;
+                case "SupplierPartID":
+                    if (item != null) {
+                        item.setSupplierPartId(value);
+                    }
+                    break;
+                case "ShortName":
+                case "Description":
+                    if (item != null && item.getDescription() == null && !value.isEmpty()) {
+                        item.setDescription(value);
+                    }
+                    break;
+                case "InvoiceDetailItem":
+                    handler.lineItem(item);
+                    item = null;
+                    break;
+                case "InvoiceDetailOrder":
+                    orderId = null;
+                    break;
+                case "InvoiceDetailSummary":
+                    handler.summary(summary);
+                    summary = null;
+                    break;
+                case "InvoiceDetailRequest":
+                    emitHeader();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void identity(String value) {
+            // Header/From|To|Sender/Credential/Identity
+            if (headerSeen || path.size() < 2 || !"Credential".equals(parent())) {
+                return;
+            }
+            String party = path.get(path.size() - 2);
+            if ("From".equals(party) && header.getFromIdentity() == null) {
+                header.setFromIdentity(value);
+            } else if ("To".equals(party) && header.getToIdentity() == null) {
+                header.setToIdentity(value);
+            } else if ("Sender".equals(party) && header.getSenderIdentity() == null) {
+                header.setSenderIdentity(value);
+            }
+        }
+
+        private void endContact() {
+            if (!headerEmitted && contactRole != null) {
+                switch (contactRole) {
+                    case "billTo":
+                        header.setBillTo(contact);
+                        break;
+                    case "shipTo":
+                        header.setShipTo(contact);
+                        break;
+                    case "remitTo":
+                        header.setRemitTo(contact);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            contact = null;
+            contactRole = null;
+        }
+
+        private void money(String parent, BigDecimal amount) {
+            if (item != null) {
+                if ("UnitPrice".equals(parent)) {
+                    item.setUnitPrice(amount);
+                    item.setCurrency(moneyCurrency);
+                } else if ("SubtotalAmount".equals(parent)) {
+                    item.setExtendedAmount(amount);
+                }
+            } else if (summary != null) {
+                switch (parent) {
+                    case "SubtotalAmount":
+                        summary.setSubtotal(amount);
+                        break;
+                    case "Tax":
+                        summary.setTaxAmount(amount);
+                        break;
+                    case "ShippingAmount":
+                        summary.setShippingAmount(amount);
+                        break;
+                    case "SpecialHandlingAmount":
+                        summary.setSpecialHandlingAmount(amount);
+                        break;
+                    case "GrossAmount":
+                        summary.setGrossAmount(amount);
+                        break;
+                    case "NetAmount":
+                        summary.setNetAmount(amount);
+                        break;
+                    case "DueAmount":
+                        summary.setDueAmount(amount);
+                        break;
+                    default:
+                        return;
+                }
+                if (summary.getCurrency() == null) {
+                    summary.setCurrency(moneyCurrency);
+                }
+            }
+            moneyCurrency = null;
+        }
+
+        private void emitHeader() {
+            if (headerSeen && !headerEmitted) {
+                headerEmitted = true;
+                header.setExtrinsics(extrinsics.isEmpty() ? null : extrinsics);
+                handler.header(header);
+            }
+        }
+
+        private String parent() {
+            return path.isEmpty() ? "" : path.get(path.size() - 1);
+        }
+
+        private String attribute(String name) {
+            return xml.getAttributeValue(null, name);
+        }
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid invoice amount: {}", value);
+            return null;
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+        BigDecimal number = parseAmount(value);
+        return number != null ? number.intValue() : null;
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            // Fall through to the less strict formats
+        }
+        try {
+            return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            log.warn("Ignoring invalid invoice date: {}", value);
+            return null;
+        }
     }
 }
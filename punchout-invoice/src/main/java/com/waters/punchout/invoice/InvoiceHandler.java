@@ -0,0 +1,17 @@
+package com.waters.punchout.invoice;
+
+import com.waters.punchout.model.InvoiceData;
+
+/**
+ * Receives the parts of an InvoiceDetailRequest as they are read from the stream.
+ * The header always arrives first and the summary, when present, last; line items
+ * are emitted in document order.
+ */
+public interface InvoiceHandler {
+
+    void header(InvoiceData.Header header);
+
+    void lineItem(InvoiceData.LineItem item);
+
+    void summary(InvoiceData.Summary summary);
+}
@@ -0,0 +1,20 @@
+package com.waters.punchout.mock.config;
+
+import com.waters.punchout.mock.fault.FaultProfile;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fault profiles active at startup, keyed by endpoint (catalog, token, validate, login).
+ * They can be changed afterwards through /api/v1/admin/faults.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "mock.faults")
+@Data
+public class FaultProperties {
+    private Map<String, FaultProfile> profiles = new HashMap<>();
+}
@@ -0,0 +1,52 @@
+package com.waters.punchout.mock.controller;
+
+import com.waters.punchout.mock.fault.FaultInjector;
+import com.waters.punchout.mock.fault.FaultProfile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Runtime fault profiles for the mock endpoints: catalog, token, validate and login.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/faults")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class FaultAdminController {
+    
+    private final FaultInjector faultInjector;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getProfiles() {
+        return ResponseEntity.ok(faultInjector.getStatus());
+    }
+    
+    @PutMapping("/{endpoint}")
+    public ResponseEntity<Map<String, Object>> setProfile(@PathVariable String endpoint,
+                                                          @RequestBody FaultProfile profile) {
+        try {
+            faultInjector.setProfile(endpoint, profile);
+            return ResponseEntity.ok(faultInjector.getStatus());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @DeleteMapping("/{endpoint}")
+    public ResponseEntity<Void> clearProfile(@PathVariable String endpoint) {
+        return faultInjector.clearProfile(endpoint)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
+    @DeleteMapping
+    public ResponseEntity<Void> clearAll() {
+        faultInjector.clearAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.waters.punchout.mock.controller;
+
+import com.waters.punchout.mock.loadtest.LoadGenerator;
+import com.waters.punchout.mock.loadtest.LoadTestReport;
+import com.waters.punchout.mock.loadtest.LoadTestRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/loadtest")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class LoadTestController {
+    
+    private final LoadGenerator loadGenerator;
+    
+    @PostMapping("/runs")
+    public ResponseEntity<?> startRun(@RequestBody LoadTestRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(loadGenerator.start(request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected load test request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/runs")
+    public ResponseEntity<List<LoadTestReport>> getRuns() {
+        return ResponseEntity.ok(loadGenerator.reports());
+    }
+    
+    @GetMapping("/runs/{runId}")
+    public ResponseEntity<LoadTestReport> getRun(@PathVariable String runId) {
+        return loadGenerator.report(runId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/runs/{runId}/stop")
+    public ResponseEntity<LoadTestReport> stopRun(@PathVariable String runId) {
+        return loadGenerator.stop(runId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -19,7 +19,7 @@ public class MockServiceController {
     
     @PostMapping("/token")
     public ResponseEntity<String> generateToken(@RequestBody Map<String, Object> request) {
-        log.info("Mock Auth Service: Received token request for sessionKey={}", 
+        log.debug("Mock Auth Service: Received token request for sessionKey={}", 
                 request.get("sessionKey"));
         
         String sessionKey = (String) request.get("sessionKey");
@@ -28,7 +28,7 @@ public class MockServiceController {
         // Generate one-time token
         String token = tokenService.generateOneTimeToken(sessionKey, operation);
         
-        log.info("Mock Auth Service: Generated one-time token: {}", token);
+        log.debug("Mock Auth Service: Generated one-time token: {}", token);
         
         return ResponseEntity.ok(token);
     }
@@ -70,7 +70,7 @@ public class MockServiceController {
     public ResponseEntity<Map<String, Object>> validateToken(@RequestBody Map<String, String> request) {
         String token = request.get("token");
         
-        log.info("Mock Auth Service: Validating token: {}", token);
+        log.debug("Mock Auth Service: Validating token: {}", token);
         
         boolean isValid = tokenService.validateAndConsumeToken(token);
         
@@ -0,0 +1,243 @@
+package com.waters.punchout.mock.fault;
+
+import com.waters.punchout.mock.config.FaultProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the active fault profile per mock endpoint and decides, per request, what to
+ * inject. Latency is applied by sleeping the request thread, as a slow dependency would.
+ */
+@Component
+@Slf4j
+public class FaultInjector {
+
+    /** z-score of the 99th percentile, used to derive the log-normal sigma */
+    private static final double Z_99 = 2.326;
+
+    /** Request path of each mock endpoint that can carry a fault profile */
+    private static final Map<String, String> ENDPOINT_PATHS = Map.of(
+            "/api/v1/catalog", "catalog",
+            "/api/v1/token", "token",
+            "/api/v1/validate", "validate",
+            "/api/v1/waters/user/v2/login", "login"
+    );
+
+    private final Map<String, EndpointFaults> endpoints = new ConcurrentHashMap<>();
+
+    public FaultInjector(FaultProperties properties) {
+        properties.getProfiles().forEach(this::setProfile);
+    }
+
+    public enum Action { PROCEED, ERROR, RESET, REJECT }
+
+    public static final class Decision {
+        private final Action action;
+        private final int status;
+
+        private Decision(Action action, int status) {
+            this.action = action;
+            this.status = status;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private static final Decision PROCEED = new Decision(Action.PROCEED, 200);
+
+    /**
+     * Endpoint name for a request path, or null when the path has no fault support.
+     */
+    public String endpointFor(String path) {
+        return ENDPOINT_PATHS.get(path);
+    }
+
+    public void setProfile(String endpoint, FaultProfile profile) {
+        if (!ENDPOINT_PATHS.containsValue(endpoint)) {
+            throw new IllegalArgumentException("Unknown endpoint '" + endpoint + "', expected one of "
+                    + new TreeMap<>(ENDPOINT_PATHS).values());
+        }
+        validate(profile);
+        endpoints.put(endpoint, new EndpointFaults(profile));
+        log.info("Fault profile set for {}: {}", endpoint, profile);
+    }
+
+    public boolean clearProfile(String endpoint) {
+        return endpoints.remove(endpoint) != null;
+    }
+
+    public void clearAll() {
+        endpoints.clear();
+        log.info("All fault profiles cleared");
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new TreeMap<>();
+        endpoints.forEach((endpoint, faults) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("profile", faults.profile);
+            entry.put("stats", faults.stats());
+            status.put(endpoint, entry);
+        });
+        return status;
+    }
+
+    /**
+     * Applies the endpoint's cap and latency (blocking the caller) and returns what to do with
+     * the request. Endpoints without a profile proceed untouched.
+     */
+    public Decision apply(String endpoint) throws InterruptedException {
+        EndpointFaults faults = endpoints.get(endpoint);
+        if (faults == null) {
+            return PROCEED;
+        }
+        faults.requests.increment();
+        FaultProfile profile = faults.profile;
+
+        long queuedNanos = faults.reserveSlot();
+        if (queuedNanos > 0) {
+            if (profile.isRejectOverCap()) {
+                faults.rejected.increment();
+                return new Decision(Action.REJECT, 429);
+            }
+            faults.queued.increment();
+            TimeUnit.NANOSECONDS.sleep(queuedNanos);
+        }
+
+        long delayMs = sampleDelay(profile.getLatency());
+        if (delayMs > 0) {
+            faults.delayedMs.add(delayMs);
+            TimeUnit.MILLISECONDS.sleep(delayMs);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (profile.getResetRate() > 0 && random.nextDouble() < profile.getResetRate()) {
+            faults.resets.increment();
+            return new Decision(Action.RESET, 0);
+        }
+
+        double roll = random.nextDouble();
+        double cumulative = 0;
+        for (Map.Entry<Integer, Double> error : profile.getErrorRates().entrySet()) {
+            cumulative += error.getValue();
+            if (roll < cumulative) {
+                faults.errors.computeIfAbsent(error.getKey(), s -> new LongAdder()).increment();
+                return new Decision(Action.ERROR, error.getKey());
+            }
+        }
+        return PROCEED;
+    }
+
+    static long sampleDelay(FaultProfile.Latency latency) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double delay;
+        switch (latency.getDistribution()) {
+            case FIXED:
+                delay = latency.getFixedMs();
+                break;
+            case NORMAL:
+                delay = latency.getMeanMs() + random.nextGaussian() * latency.getStdDevMs();
+                break;
+            case LONG_TAIL:
+                double mu = Math.log(latency.getMedianMs());
+                double sigma = Math.log(latency.getP99Ms() / latency.getMedianMs()) / Z_99;
+                delay = Math.exp(mu + sigma * random.nextGaussian());
+                break;
+            default:
+                return 0;
+        }
+        return Math.max(0, Math.min(Math.round(delay), latency.getMaxMs()));
+    }
+
+    private void validate(FaultProfile profile) {
+        FaultProfile.Latency latency = profile.getLatency();
+        if (latency == null) {
+            profile.setLatency(latency = new FaultProfile.Latency());
+        }
+        if (latency.getDistribution() == FaultProfile.Distribution.LONG_TAIL
+                && (latency.getMedianMs() <= 0 || latency.getP99Ms() < latency.getMedianMs())) {
+            throw new IllegalArgumentException("LONG_TAIL latency needs medianMs > 0 and p99Ms >= medianMs");
+        }
+        if (profile.getErrorRates() == null) {
+            profile.setErrorRates(new LinkedHashMap<>());
+        }
+        double errorTotal = profile.getErrorRates().values().stream().mapToDouble(Double::doubleValue).sum();
+        if (profile.getErrorRates().values().stream().anyMatch(rate -> rate < 0) || errorTotal > 1.0) {
+            throw new IllegalArgumentException("Error rates must be non-negative and add up to at most 1.0");
+        }
+        if (profile.getErrorRates().keySet().stream().anyMatch(status -> status < 400 || status > 599)) {
+            throw new IllegalArgumentException("Error rates must use 4xx or 5xx status codes");
+        }
+        if (profile.getResetRate() < 0 || profile.getResetRate() > 1.0) {
+            throw new IllegalArgumentException("resetRate must be between 0.0 and 1.0");
+        }
+        if (profile.getMaxRequestsPerSecond() != null && profile.getMaxRequestsPerSecond() < 1) {
+            throw new IllegalArgumentException("maxRequestsPerSecond must be positive");
+        }
+    }
+
+    private static final class EndpointFaults {
+        private final FaultProfile profile;
+        private final long intervalNanos;
+        private long nextSlotNanos;
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder resets = new LongAdder();
+        private final LongAdder delayedMs = new LongAdder();
+        private final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private EndpointFaults(FaultProfile profile) {
+            this.profile = profile;
+            this.intervalNanos = profile.getMaxRequestsPerSecond() != null
+                    ? TimeUnit.SECONDS.toNanos(1) / profile.getMaxRequestsPerSecond()
+                    : 0;
+        }
+
+        /**
+         * Paces requests at the cap: each request takes the next free slot, and the return value
+         * is how long it has to wait for it. Rejected requests give their slot back.
+         */
+        private synchronized long reserveSlot() {
+            if (intervalNanos == 0) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            long wait = slot - now;
+            if (wait > 0 && profile.isRejectOverCap()) {
+                return wait;
+            }
+            nextSlotNanos = slot + intervalNanos;
+            return wait;
+        }
+
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", requests.sum());
+            stats.put("queued", queued.sum());
+            stats.put("rejected", rejected.sum());
+            stats.put("resets", resets.sum());
+            stats.put("injectedDelayMs", delayedMs.sum());
+            Map<Integer, Long> errorCounts = new TreeMap<>();
+            errors.forEach((status, count) -> errorCounts.put(status, count.sum()));
+            stats.put("errors", errorCounts);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.waters.punchout.mock.fault;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How a mock endpoint misbehaves: added latency, error responses by status code,
+ * dropped connections and a throughput cap. All probabilities are 0.0-1.0.
+ */
+@Data
+public class FaultProfile {
+
+    private Latency latency = new Latency();
+
+    /** Probability of answering with each status code instead of the real response, e.g. {503: 0.05}. */
+    private Map<Integer, Double> errorRates = new LinkedHashMap<>();
+
+    /** Probability of dropping the connection part-way through the response. */
+    private double resetRate;
+
+    /** Requests per second the endpoint can serve; null means unlimited. */
+    private Integer maxRequestsPerSecond;
+
+    /** Over the cap, answer 429 instead of queueing the request until a slot frees up. */
+    private boolean rejectOverCap;
+
+    public enum Distribution { NONE, FIXED, NORMAL, LONG_TAIL }
+
+    @Data
+    public static class Latency {
+        private Distribution distribution = Distribution.NONE;
+        /** FIXED */
+        private long fixedMs;
+        /** NORMAL */
+        private double meanMs;
+        private double stdDevMs;
+        /** LONG_TAIL: log-normal with this median and 99th percentile */
+        private double medianMs;
+        private double p99Ms;
+        /** Upper bound on any sampled delay */
+        private long maxMs = 60000;
+    }
+}
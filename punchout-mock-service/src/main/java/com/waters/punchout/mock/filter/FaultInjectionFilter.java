@@ -0,0 +1,84 @@
+package com.waters.punchout.mock.filter;
+
+import com.waters.punchout.mock.fault.FaultInjector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Applies the configured fault profile before the mock Mule and auth endpoints run.
+ */
+@Slf4j
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class FaultInjectionFilter implements Filter {
+
+    private final FaultInjector faultInjector;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String endpoint = faultInjector.endpointFor(httpRequest.getRequestURI().substring(httpRequest.getContextPath().length()));
+
+        if (endpoint == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        FaultInjector.Decision decision;
+        try {
+            decision = faultInjector.apply(endpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        switch (decision.getAction()) {
+            case ERROR:
+                writeJson(httpResponse, decision.getStatus(), "Injected fault");
+                break;
+            case REJECT:
+                httpResponse.setHeader("Retry-After", "1");
+                writeJson(httpResponse, decision.getStatus(), "Throughput cap exceeded");
+                break;
+            case RESET:
+                dropConnection(httpResponse);
+                break;
+            default:
+                chain.doFilter(request, response);
+                break;
+        }
+    }
+
+    private void writeJson(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"" + message + "\",\"status\":" + status + "}");
+    }
+
+    /**
+     * Commits a response that promises more body than is ever written and asks the
+     * container to close the connection once the exchange ends, so the client sees the
+     * connection drop mid-response.
+     */
+    private void dropConnection(HttpServletResponse response) throws IOException {
+        byte[] partial = "{\"catalogUrl\":\"".getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setContentLength(partial.length + 1024);
+        response.setHeader("Connection", "close");
+        response.getOutputStream().write(partial);
+        response.flushBuffer();
+    }
+}
@@ -0,0 +1,94 @@
+package com.waters.punchout.mock.loadtest;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns stored templates into unique setup and order requests. Each request gets its own
+ * payload ID, session key and order ID derived from the run ID and sequence number, so
+ * runs are repeatable and the gateway's order idempotency check never short-circuits.
+ */
+class CxmlGenerator {
+
+    private static final Pattern HEADER = Pattern.compile("<Header>.*?</Header>", Pattern.DOTALL);
+
+    private static final String[][] PARTS = {
+        {"WAT-186002350", "ACQUITY UPLC BEH C18 Column, 1.7um, 2.1 x 50 mm", "1245.00"},
+        {"WAT-186000457", "Oasis HLB 3 cc Vac Cartridge, 60 mg", "289.50"},
+        {"WAT-600000138", "Certified Vials, Clear Glass, 12 x 32 mm", "118.00"},
+        {"WAT-176001234", "Calibration Standard Set - HPLC Grade", "250.50"},
+        {"WAT-186003117", "XBridge BEH Amide Column, 2.5um, 3 x 100 mm", "1530.00"}
+    };
+
+    private final String runId;
+    private final Map<String, String> placeholders;
+    private final int orderLines;
+
+    CxmlGenerator(String runId, Map<String, String> placeholders, int orderLines) {
+        this.runId = runId;
+        this.placeholders = placeholders;
+        this.orderLines = orderLines;
+    }
+
+    String setupRequest(LoadTestTemplate template, long sequence) {
+        String sessionKey = "SESSION_LT_" + runId + "_" + sequence;
+        String payloadId = runId + "." + sequence + "@loadtest";
+
+        return template.getCxmlTemplate()
+                .replace("{{PAYLOAD_ID}}", value("PAYLOAD_ID", payloadId))
+                .replace("{{TIMESTAMP}}", value("TIMESTAMP", Instant.now().toString()))
+                .replace("{{BUYER_ID}}", value("BUYER_ID", template.getCustomerId()))
+                .replace("{{DOMAIN}}", value("DOMAIN", "loadtest.waters.com"))
+                .replace("{{SESSION_KEY}}", value("SESSION_KEY", sessionKey))
+                .replace("{{CUSTOMER_NAME}}", value("CUSTOMER_NAME", template.getCustomerName()));
+    }
+
+    /**
+     * OrderRequest sent by the same buyer as the template: the template's rendered header
+     * followed by orderLines generated line items.
+     */
+    String orderRequest(LoadTestTemplate template, long sequence) {
+        Matcher header = HEADER.matcher(setupRequest(template, sequence));
+        String headerXml = header.find() ? header.group() : "<Header/>";
+
+        StringBuilder items = new StringBuilder();
+        long totalCents = 0;
+        for (int line = 1; line <= orderLines; line++) {
+            String[] part = PARTS[(int) ((sequence + line) % PARTS.length)];
+            int quantity = 1 + (int) ((sequence + line) % 4);
+            totalCents += Math.round(Double.parseDouble(part[2]) * 100) * quantity;
+            items.append("      <ItemOut quantity=\"").append(quantity).append("\" lineNumber=\"").append(line).append("\">\n")
+                 .append("        <ItemID><SupplierPartID>").append(part[0]).append("</SupplierPartID></ItemID>\n")
+                 .append("        <ItemDetail>\n")
+                 .append("          <UnitPrice><Money currency=\"USD\">").append(part[2]).append("</Money></UnitPrice>\n")
+                 .append("          <Description xml:lang=\"en\">").append(part[1]).append("</Description>\n")
+                 .append("          <UnitOfMeasure>EA</UnitOfMeasure>\n")
+                 .append("        </ItemDetail>\n")
+                 .append("      </ItemOut>\n");
+        }
+
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+               "<cXML payloadID=\"" + runId + "." + sequence + ".order@loadtest\" timestamp=\"" + Instant.now() + "\">\n" +
+               "  " + headerXml + "\n" +
+               "  <Request>\n" +
+               "    <OrderRequest>\n" +
+               "      <OrderRequestHeader orderID=\"LT-" + runId + "-" + sequence + "\" orderDate=\"" + Instant.now() + "\" type=\"new\">\n" +
+               "        <Total><Money currency=\"USD\">" + (totalCents / 100) + "." + String.format("%02d", totalCents % 100) + "</Money></Total>\n" +
+               "      </OrderRequestHeader>\n" +
+               items +
+               "    </OrderRequest>\n" +
+               "  </Request>\n" +
+               "</cXML>";
+    }
+
+    private String value(String placeholder, String generated) {
+        String fixed = placeholders.get(placeholder);
+        return escape(fixed != null ? fixed : generated != null ? generated : "");
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+}
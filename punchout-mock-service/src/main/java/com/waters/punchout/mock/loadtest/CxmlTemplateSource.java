@@ -0,0 +1,72 @@
+package com.waters.punchout.mock.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Loads cXML templates either from a JSON array file (mongoexport --jsonArray of
+ * cxml_templates, e.g. mongodb-cxml-templates-sample-data.json) or from the UI backend's
+ * GET /api/v1/cxml-templates endpoint.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CxmlTemplateSource {
+
+    private static final TypeReference<List<LoadTestTemplate>> TEMPLATE_LIST = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${loadtest.templates:../mongodb-cxml-templates-sample-data.json}")
+    private String defaultSource;
+
+    public List<LoadTestTemplate> load(LoadTestRequest request) {
+        String source = request.getTemplates() != null ? request.getTemplates() : defaultSource;
+
+        List<LoadTestTemplate> templates;
+        try {
+            templates = read(source);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read cXML templates from " + source + ": " + e.getMessage(), e);
+        }
+
+        List<LoadTestTemplate> selected = templates.stream()
+                .filter(t -> t.getCxmlTemplate() != null && !t.getCxmlTemplate().isEmpty())
+                .filter(t -> request.getEnvironments().isEmpty() || request.getEnvironments().stream()
+                        .anyMatch(env -> env.equalsIgnoreCase(t.getEnvironment())))
+                .filter(t -> request.getCustomers().isEmpty() || request.getCustomers().contains(t.getCustomerId()))
+                .collect(Collectors.toList());
+
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("No cXML templates match environments=" + request.getEnvironments()
+                    + " customers=" + request.getCustomers() + " in " + source);
+        }
+        log.info("Load test using {} of {} templates from {}", selected.size(), templates.size(), source);
+        return selected;
+    }
+
+    private List<LoadTestTemplate> read(String source) throws IOException {
+        if (source.startsWith("http://") || source.startsWith("https://")) {
+            try (InputStream in = new URL(source).openStream()) {
+                return objectMapper.readValue(in, TEMPLATE_LIST);
+            }
+        }
+        Path path = Paths.get(source);
+        try (InputStream in = Files.newInputStream(path)) {
+            return objectMapper.readValue(in, TEMPLATE_LIST);
+        }
+    }
+}
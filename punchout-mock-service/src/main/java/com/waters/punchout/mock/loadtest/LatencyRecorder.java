@@ -0,0 +1,163 @@
+package com.waters.punchout.mock.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * HdrHistogram latency distributions and error counts for one load level, keyed by
+ * endpoint, customer and environment. Values are recorded in microseconds.
+ */
+class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<SeriesKey, SeriesStats> series = new ConcurrentHashMap<>();
+    private final int level;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    LatencyRecorder(int level) {
+        this.level = level;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    void recordSuccess(String endpoint, String customerId, String environment, long latencyNanos) {
+        SeriesStats stats = stats(endpoint, customerId, environment);
+        stats.histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    void recordError(String endpoint, String customerId, String environment, String reason) {
+        stats(endpoint, customerId, environment).errors.computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+
+    private SeriesStats stats(String endpoint, String customerId, String environment) {
+        return series.computeIfAbsent(new SeriesKey(endpoint, customerId, environment), k -> new SeriesStats());
+    }
+
+    LoadTestReport.Step summarize() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        double seconds = Math.max((end - startNanos) / 1e9, 0.001);
+
+        LoadTestReport.Step step = new LoadTestReport.Step();
+        step.setLevel(level);
+        step.setSeconds(round(seconds));
+
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        Map<String, Long> totalErrors = new TreeMap<>();
+
+        series.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(SeriesKey::toString)))
+                .forEach(entry -> {
+                    SeriesKey key = entry.getKey();
+                    SeriesStats stats = entry.getValue();
+                    Histogram histogram = stats.histogram.copy();
+                    Map<String, Long> errors = stats.errorCounts();
+
+                    LoadTestReport.Series s = new LoadTestReport.Series();
+                    s.setEndpoint(key.endpoint);
+                    s.setCustomerId(key.customerId);
+                    s.setEnvironment(key.environment);
+                    s.setErrors(errors.values().stream().mapToLong(Long::longValue).sum());
+                    s.setRequests(histogram.getTotalCount() + s.getErrors());
+                    s.setThroughput(round(histogram.getTotalCount() / seconds));
+                    s.setLatency(latency(histogram));
+                    s.setErrorBreakdown(errors);
+                    step.getSeries().add(s);
+
+                    total.add(histogram);
+                    errors.forEach((reason, count) -> totalErrors.merge(reason, count, Long::sum));
+                });
+
+        step.setErrors(totalErrors.values().stream().mapToLong(Long::longValue).sum());
+        step.setRequests(total.getTotalCount() + step.getErrors());
+        step.setThroughput(round(total.getTotalCount() / seconds));
+        step.setLatency(latency(total));
+        step.setErrorBreakdown(totalErrors);
+        return step;
+    }
+
+    private static LoadTestReport.Latency latency(Histogram histogram) {
+        LoadTestReport.Latency latency = new LoadTestReport.Latency();
+        if (histogram.getTotalCount() == 0) {
+            return latency;
+        }
+        latency.setP50Ms(millis(histogram.getValueAtPercentile(50)));
+        latency.setP90Ms(millis(histogram.getValueAtPercentile(90)));
+        latency.setP99Ms(millis(histogram.getValueAtPercentile(99)));
+        latency.setP999Ms(millis(histogram.getValueAtPercentile(99.9)));
+        latency.setMaxMs(millis(histogram.getMaxValue()));
+        latency.setMeanMs(round(histogram.getMean() / 1000.0));
+        return latency;
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private static final class SeriesStats {
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private Map<String, Long> errorCounts() {
+            return errors.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum(), Long::sum, TreeMap::new));
+        }
+    }
+
+    private static final class SeriesKey {
+        private final String endpoint;
+        private final String customerId;
+        private final String environment;
+
+        private SeriesKey(String endpoint, String customerId, String environment) {
+            this.endpoint = endpoint;
+            this.customerId = customerId;
+            this.environment = environment;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SeriesKey)) {
+                return false;
+            }
+            SeriesKey other = (SeriesKey) o;
+            return Objects.equals(endpoint, other.endpoint)
+                    && Objects.equals(customerId, other.customerId)
+                    && Objects.equals(environment, other.environment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, customerId, environment);
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + "|" + customerId + "|" + environment;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.waters.punchout.mock.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Starts and tracks load test runs. Only one run is active at a time so that runs do not
+ * skew each other's numbers.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LoadGenerator {
+
+    private final CxmlTemplateSource templateSource;
+    private final Map<String, LoadTestRun> runs = new ConcurrentHashMap<>();
+
+    public synchronized LoadTestReport start(LoadTestRequest request) {
+        validate(request);
+        if (runs.values().stream().anyMatch(LoadTestRun::isActive)) {
+            throw new IllegalStateException("A load test is already running");
+        }
+
+        List<LoadTestTemplate> templates = templateSource.load(request);
+        String runId = Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+        LoadTestRun run = new LoadTestRun(runId, request, templates);
+        runs.put(runId, run);
+
+        Thread driver = new Thread(run, "loadtest-" + runId + "-driver");
+        driver.setDaemon(true);
+        driver.start();
+
+        log.info("Started load test {} against {}: mode={}, levels={}", runId, request.getGatewayUrl(),
+                request.getMode(), request.levels());
+        return run.report();
+    }
+
+    public Optional<LoadTestReport> report(String runId) {
+        return Optional.ofNullable(runs.get(runId)).map(LoadTestRun::report);
+    }
+
+    public List<LoadTestReport> reports() {
+        return runs.values().stream()
+                .map(LoadTestRun::report)
+                .sorted(Comparator.comparing(LoadTestReport::getStartedAt))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<LoadTestReport> stop(String runId) {
+        LoadTestRun run = runs.get(runId);
+        if (run == null) {
+            return Optional.empty();
+        }
+        run.stop();
+        return Optional.of(run.report());
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        runs.values().forEach(LoadTestRun::stop);
+    }
+
+    private void validate(LoadTestRequest request) {
+        if (request.getGatewayUrl() == null || request.getGatewayUrl().isEmpty()) {
+            throw new IllegalArgumentException("gatewayUrl is required");
+        }
+        if (request.levels().stream().anyMatch(level -> level == null || level < 1)) {
+            throw new IllegalArgumentException("Levels must be positive");
+        }
+        if (request.getDurationSeconds() < 1 || request.getWarmupSeconds() < 0) {
+            throw new IllegalArgumentException("durationSeconds must be positive and warmupSeconds not negative");
+        }
+        if (request.getOrderPercent() < 0 || request.getOrderPercent() > 100) {
+            throw new IllegalArgumentException("orderPercent must be between 0 and 100");
+        }
+        if (request.getMaxConcurrency() < 1 || request.getRequestTimeoutMs() < 1 || request.getOrderLines() < 1) {
+            throw new IllegalArgumentException("maxConcurrency, requestTimeoutMs and orderLines must be positive");
+        }
+    }
+}
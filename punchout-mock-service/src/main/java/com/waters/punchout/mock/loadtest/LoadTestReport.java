@@ -0,0 +1,61 @@
+package com.waters.punchout.mock.loadtest;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a load test run: one entry per level, each broken down by endpoint,
+ * customer and environment. Latencies cover successful requests only; failures are
+ * counted in the error breakdown.
+ */
+@Data
+public class LoadTestReport {
+
+    private String runId;
+    private String status;
+    private String error;
+    private LoadTestRequest request;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<Step> steps = new ArrayList<>();
+    /** Level with the highest successful throughput; past it, added load only adds latency. */
+    private Integer peakThroughputLevel;
+
+    @Data
+    public static class Step {
+        private int level;
+        private double seconds;
+        private long requests;
+        private long errors;
+        private double throughput;
+        private Latency latency;
+        private Map<String, Long> errorBreakdown;
+        private List<Series> series = new ArrayList<>();
+    }
+
+    @Data
+    public static class Series {
+        private String endpoint;
+        private String customerId;
+        private String environment;
+        private long requests;
+        private long errors;
+        private double throughput;
+        private Latency latency;
+        private Map<String, Long> errorBreakdown;
+    }
+
+    @Data
+    public static class Latency {
+        private double p50Ms;
+        private double p90Ms;
+        private double p99Ms;
+        private double p999Ms;
+        private double maxMs;
+        private double meanMs;
+    }
+}
@@ -0,0 +1,52 @@
+package com.waters.punchout.mock.loadtest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameters of a load test run against a gateway.
+ *
+ * In CLOSED mode each level is a number of workers that send a request, wait for the
+ * answer and send the next one. In RATE mode each level is a target rate in requests per
+ * second; latency is measured from the scheduled send time, so queueing in the client
+ * counts against the gateway instead of being hidden.
+ */
+@Data
+public class LoadTestRequest {
+
+    public enum Mode { CLOSED, RATE }
+
+    private String gatewayUrl = "http://localhost:9090";
+    private Mode mode = Mode.CLOSED;
+
+    /** Workers (CLOSED) or requests per second (RATE) for a single-step run. */
+    private int level = 8;
+    /** Run these levels one after another instead of {@link #level}, to find the saturation point. */
+    private List<Integer> steps = new ArrayList<>();
+
+    private int warmupSeconds = 10;
+    private int durationSeconds = 60;
+    /** Upper bound on requests in flight in RATE mode. */
+    private int maxConcurrency = 256;
+    private int requestTimeoutMs = 30000;
+
+    /** Share of requests sent as OrderRequests to /punchout/order, 0-100. */
+    private int orderPercent = 20;
+    private int orderLines = 5;
+
+    /** Template export file or UI backend URL; defaults to loadtest.templates. */
+    private String templates;
+    /** Restrict templates to these environments / customer IDs; empty means all. */
+    private List<String> environments = new ArrayList<>();
+    private List<String> customers = new ArrayList<>();
+    /** Fixed values for template placeholders, e.g. DOMAIN. */
+    private Map<String, String> placeholders = new HashMap<>();
+
+    public List<Integer> levels() {
+        return steps.isEmpty() ? List.of(level) : steps;
+    }
+}
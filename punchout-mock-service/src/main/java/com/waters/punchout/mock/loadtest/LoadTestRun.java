@@ -0,0 +1,246 @@
+package com.waters.punchout.mock.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One load test: drives each level in turn (warm-up, then measurement) and keeps the
+ * recorded steps for the report.
+ */
+@Slf4j
+class LoadTestRun implements Runnable {
+
+    static final String SETUP_ENDPOINT = "/punchout/setup";
+    static final String ORDER_ENDPOINT = "/punchout/order";
+
+    private final String runId;
+    private final LoadTestRequest request;
+    private final List<LoadTestTemplate> templates;
+    private final CxmlGenerator generator;
+    private final HttpClient httpClient;
+    private final String gatewayUrl;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<LatencyRecorder> completed = new CopyOnWriteArrayList<>();
+    private volatile LatencyRecorder measuring;
+    private volatile boolean stopped;
+    private volatile String status = "RUNNING";
+    private volatile String error;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    LoadTestRun(String runId, LoadTestRequest request, List<LoadTestTemplate> templates) {
+        this.runId = runId;
+        this.request = request;
+        this.templates = templates;
+        this.generator = new CxmlGenerator(runId, request.getPlaceholders(), request.getOrderLines());
+        this.gatewayUrl = request.getGatewayUrl().replaceAll("/+$", "");
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int level : request.levels()) {
+                if (stopped) {
+                    break;
+                }
+                log.info("Load test {}: {} level {} ({}s warm-up, {}s measured)", runId, request.getMode(), level,
+                        request.getWarmupSeconds(), request.getDurationSeconds());
+                LatencyRecorder recorder = new LatencyRecorder(level);
+                if (request.getMode() == LoadTestRequest.Mode.RATE) {
+                    runRate(level, recorder);
+                } else {
+                    runClosed(level, recorder);
+                }
+                completed.add(recorder);
+                measuring = null;
+            }
+            status = stopped ? "STOPPED" : "COMPLETED";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = "STOPPED";
+        } catch (RuntimeException e) {
+            log.error("Load test {} failed: {}", runId, e.getMessage(), e);
+            error = e.getMessage();
+            status = "FAILED";
+        } finally {
+            finishedAt = LocalDateTime.now();
+            log.info("Load test {} {}", runId, status.toLowerCase());
+        }
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isActive() {
+        return finishedAt == null;
+    }
+
+    LoadTestReport report() {
+        LoadTestReport report = new LoadTestReport();
+        report.setRunId(runId);
+        report.setStatus(status);
+        report.setError(error);
+        report.setRequest(request);
+        report.setStartedAt(startedAt);
+        report.setFinishedAt(finishedAt);
+
+        completed.forEach(recorder -> report.getSteps().add(recorder.summarize()));
+        LatencyRecorder current = measuring;
+        if (current != null) {
+            report.getSteps().add(current.summarize());
+        }
+
+        report.getSteps().stream()
+                .max((a, b) -> Double.compare(a.getThroughput(), b.getThroughput()))
+                .ifPresent(step -> report.setPeakThroughputLevel(step.getLevel()));
+        return report;
+    }
+
+    /**
+     * Closed loop: level workers, each sending its next request as soon as the previous one returns.
+     */
+    private void runClosed(int workers, LatencyRecorder recorder) throws InterruptedException {
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(request.getWarmupSeconds());
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(request.getDurationSeconds());
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> new Thread(r, "loadtest-" + runId));
+        try {
+            for (int i = 0; i < workers; i++) {
+                pool.execute(() -> {
+                    while (!stopped && System.nanoTime() < deadline) {
+                        send(measuring, System.nanoTime());
+                    }
+                });
+            }
+            measure(recorder, measureFrom, deadline);
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(request.getRequestTimeoutMs() + 1000L, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Open loop: requests are scheduled at a fixed rate regardless of response times, with at
+     * most maxConcurrency in flight. Latency counts from the scheduled send time.
+     */
+    private void runRate(int perSecond, LatencyRecorder recorder) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(request.getWarmupSeconds());
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(request.getDurationSeconds());
+        double intervalNanos = 1e9 / Math.max(perSecond, 1);
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(0, request.getMaxConcurrency(), 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> new Thread(r, "loadtest-" + runId));
+        Thread scheduler = new Thread(() -> {
+            for (long i = 0; !stopped; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                if (intended >= deadline) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                LatencyRecorder target = measuring;
+                try {
+                    pool.execute(() -> send(target, intended));
+                } catch (RejectedExecutionException e) {
+                    if (target != null) {
+                        target.recordError("client", "-", "-", "max concurrency reached");
+                    }
+                }
+            }
+        }, "loadtest-" + runId + "-scheduler");
+
+        try {
+            scheduler.start();
+            measure(recorder, measureFrom, deadline);
+            scheduler.join();
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(request.getRequestTimeoutMs() + 1000L, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void measure(LatencyRecorder recorder, long measureFrom, long deadline) throws InterruptedException {
+        sleepUntil(measureFrom);
+        recorder.start();
+        measuring = recorder;
+        sleepUntil(deadline);
+        recorder.stop();
+    }
+
+    private void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while (!stopped && (remaining = nanoTime - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(200)));
+        }
+    }
+
+    private void send(LatencyRecorder recorder, long intendedNanos) {
+        long seq = sequence.getAndIncrement();
+        LoadTestTemplate template = templates.get((int) (seq % templates.size()));
+        // Spread orders evenly: 7919 is coprime to 100, so every block of 100 gets orderPercent orders
+        boolean order = Math.floorMod(seq * 7919, 100) < request.getOrderPercent();
+        String endpoint = order ? ORDER_ENDPOINT : SETUP_ENDPOINT;
+        String body = order ? generator.orderRequest(template, seq) : generator.setupRequest(template, seq);
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(gatewayUrl + endpoint))
+                .timeout(Duration.ofMillis(request.getRequestTimeoutMs()))
+                .header("Content-Type", "text/xml")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        String customerId = template.getCustomerId();
+        String environment = template.getEnvironment();
+        String failure;
+        try {
+            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            long latency = System.nanoTime() - intendedNanos;
+            if (response.statusCode() < 400) {
+                if (recorder != null) {
+                    recorder.recordSuccess(endpoint, customerId, environment, latency);
+                }
+                return;
+            }
+            failure = "HTTP " + response.statusCode();
+        } catch (HttpTimeoutException e) {
+            failure = "timeout";
+        } catch (ConnectException e) {
+            failure = "connection refused";
+        } catch (IOException e) {
+            failure = "I/O " + e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (recorder != null) {
+            recorder.recordError(endpoint, customerId, environment, failure);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.waters.punchout.mock.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * The fields of a stored cxml_templates document (CxmlTemplateDocument) that the load
+ * generator needs. Read from a mongoexport file or the UI backend's template API.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LoadTestTemplate {
+    private String templateName;
+    private String environment;
+    private String customerId;
+    private String customerName;
+    private String cxmlTemplate;
+}
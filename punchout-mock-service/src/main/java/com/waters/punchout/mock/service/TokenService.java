@@ -1,6 +1,7 @@
 package com.waters.punchout.mock.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -11,31 +12,41 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
 public class TokenService {
     
-    @Value("${jwt.secret:punchout-mock-service-secret-key-for-jwt-token-generation-minimum-32-chars}")
-    private String jwtSecret;
+    private final long jwtExpiration; // 30 minutes in milliseconds by default
     
-    @Value("${jwt.expiration:1800000}")
-    private long jwtExpiration; // 30 minutes in milliseconds
+    // Built once: key derivation and parser construction dominate per-token cost otherwise
+    private final SecretKey signingKey;
+    private final JwtParser parser;
     
-    // Store used token JTIs to prevent reuse
-    private final Set<String> usedTokens = ConcurrentHashMap.newKeySet();
+    // JTIs of consumed tokens, held until the token expires
+    private final UsedJtiStore usedTokens;
+    
+    // JTIs only need to be unique per process: a random prefix per start plus a counter
+    private final String jtiPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong()) + "-";
+    private final AtomicLong jtiSequence = new AtomicLong();
+    
+    public TokenService(
+            @Value("${jwt.secret:punchout-mock-service-secret-key-for-jwt-token-generation-minimum-32-chars}") String jwtSecret,
+            @Value("${jwt.expiration:1800000}") long jwtExpiration,
+            @Value("${jwt.jti-bucket-millis:1000}") long jtiBucketMillis) {
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.usedTokens = new UsedJtiStore(jtiBucketMillis);
+    }
     
     public String generateOneTimeToken(String sessionKey, String operation) {
-        String jti = UUID.randomUUID().toString();
+        String jti = jtiPrefix + Long.toHexString(jtiSequence.incrementAndGet());
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
         
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-        
         String token = Jwts.builder()
                 .setId(jti)
                 .setSubject(sessionKey)
@@ -44,10 +55,10 @@ public class TokenService {
                 .claim("operation", operation)
                 .claim("type", "one-time-token")
                 .claim("sessionKey", sessionKey)
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
         
-        log.info("Generated JWT one-time token for sessionKey: {}, jti: {}, expires: {}", 
+        log.debug("Generated JWT one-time token for sessionKey: {}, jti: {}, expires: {}", 
                 sessionKey, jti, expiryDate);
         
         return token;
@@ -55,13 +66,7 @@ public class TokenService {
     
     public boolean validateAndConsumeToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = parser.parseClaimsJws(token).getBody();
             
             String jti = claims.getId();
             String sessionKey = claims.getSubject();
@@ -73,12 +78,6 @@ public class TokenService {
                 return false;
             }
             
-            // Check if token already used
-            if (usedTokens.contains(jti)) {
-                log.warn("Token already used: jti={}, sessionKey={}", jti, sessionKey);
-                return false;
-            }
-            
             // Check expiration (JWT library already validates this)
             Date expiration = claims.getExpiration();
             if (expiration.before(new Date())) {
@@ -86,9 +85,12 @@ public class TokenService {
                 return false;
             }
             
-            // Mark as used
-            usedTokens.add(jti);
-            log.info("JWT token validated and consumed: jti={}, sessionKey={}", jti, sessionKey);
+            // Mark as used; fails if the token was already consumed
+            if (!usedTokens.markUsed(jti, expiration.getTime())) {
+                log.warn("Token already used: jti={}, sessionKey={}", jti, sessionKey);
+                return false;
+            }
+            log.debug("JWT token validated and consumed: jti={}, sessionKey={}", jti, sessionKey);
             
             return true;
             
@@ -109,21 +111,13 @@ public class TokenService {
     }
     
     public void clearExpiredTokens() {
-        // JWT tokens are self-expiring, just clear the used tokens set periodically
-        if (usedTokens.size() > 10000) {
-            usedTokens.clear();
-            log.info("Cleared used tokens cache");
-        }
+        // Expired buckets are also dropped on every validation; this covers idle periods
+        usedTokens.expire(System.currentTimeMillis());
     }
     
     public Claims getTokenClaims(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             log.error("Error parsing JWT token: {}", e.getMessage());
             return null;
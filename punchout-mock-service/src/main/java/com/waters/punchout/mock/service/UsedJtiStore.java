@@ -0,0 +1,70 @@
+package com.waters.punchout.mock.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumed token IDs, kept only until the token itself expires.
+ *
+ * Each JTI is filed in the time bucket its token expires in. Buckets are dropped whole
+ * once the clock has passed them, on whichever call first notices, so memory follows the
+ * number of live tokens and a JTI is never forgotten while its token could still be
+ * replayed.
+ */
+class UsedJtiStore {
+
+    private final long bucketMillis;
+    private final Map<String, Boolean> used = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Queue<String>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicLong expiredBefore;
+
+    UsedJtiStore(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+        this.expiredBefore = new AtomicLong(System.currentTimeMillis() / bucketMillis);
+    }
+
+    /**
+     * Records the JTI as consumed. Returns false when it was already consumed or the token
+     * has expired.
+     */
+    boolean markUsed(String jti, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        if (expiresAtMillis <= now) {
+            return false;
+        }
+        if (used.putIfAbsent(jti, Boolean.TRUE) != null) {
+            return false;
+        }
+        long key = expiresAtMillis / bucketMillis;
+        Queue<String> bucket = buckets.computeIfAbsent(key, b -> new ConcurrentLinkedQueue<>());
+        bucket.add(jti);
+        if (buckets.get(key) != bucket) {
+            // Bucket expired while we were filing into it; the token has expired too
+            used.remove(jti);
+        }
+        return true;
+    }
+
+    int size() {
+        return used.size();
+    }
+
+    void expire(long nowMillis) {
+        long current = nowMillis / bucketMillis;
+        long previous = expiredBefore.get();
+        if (current <= previous || !expiredBefore.compareAndSet(previous, current)) {
+            return;
+        }
+        Map.Entry<Long, Queue<String>> bucket;
+        while ((bucket = buckets.firstEntry()) != null && bucket.getKey() < current) {
+            if (buckets.remove(bucket.getKey(), bucket.getValue())) {
+                bucket.getValue().forEach(used::remove);
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.waters.punchout.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.waters.punchout.model.ConversionResponse;
 import com.waters.punchout.model.CxmlRequest;
+import com.waters.punchout.service.CxmlBatchConversionService;
 import com.waters.punchout.service.CxmlConversionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +11,15 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -17,6 +28,8 @@ import org.springframework.web.bind.annotation.*;
 public class CxmlConversionController {
 
     private final CxmlConversionService conversionService;
+    private final CxmlBatchConversionService batchConversionService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping(value = "/convert", 
                  consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE},
@@ -58,6 +71,57 @@ public class CxmlConversionController {
         return ResponseEntity.status(status).body(response);
     }
 
+    @PostMapping(value = "/convert/batch",
+                 consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void convertBatchNdjson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("Received NDJSON batch conversion request, content length: {}", request.getContentLengthLong());
+        
+        Iterator<CxmlRequest> requests = objectMapper.readerFor(CxmlRequest.class)
+                .readValues(request.getInputStream());
+        
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        int count = batchConversionService.convertBatch(requests, response.getOutputStream());
+        
+        log.info("Streamed {} batch conversion results", count);
+    }
+
+    @PostMapping(value = "/convert/batch",
+                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void convertBatchMultipart(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(required = false) String customerId,
+            @RequestParam String documentType,
+            HttpServletResponse response) throws IOException {
+        
+        log.info("Received multipart batch conversion request for customer: {}, documentType: {}, files: {}", 
+                customerId, 
+                documentType, 
+                files.size());
+        
+        Iterator<CxmlRequest> requests = files.stream()
+                .map(file -> CxmlRequest.builder()
+                        .customerId(customerId)
+                        .documentType(documentType)
+                        .cxmlContent(readContent(file))
+                        .build())
+                .iterator();
+        
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        int count = batchConversionService.convertBatch(requests, response.getOutputStream());
+        
+        log.info("Streamed {} batch conversion results", count);
+    }
+
+    private String readContent(MultipartFile file) {
+        try {
+            return new String(file.getBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read part: " + file.getOriginalFilename(), e);
+        }
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("cXML Conversion Service is running");
@@ -1,5 +1,6 @@
 package com.waters.punchout.converter.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.waters.punchout.converter.CxmlConverter;
@@ -7,6 +8,7 @@ import com.waters.punchout.model.OrderData;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -34,6 +36,24 @@ public class CustomerACxmlConverter implements CxmlConverter {
         }
     }
 
+    @Override
+    public void convert(String cxmlContent, String documentType, JsonGenerator generator) throws IOException {
+        JsonNode xmlNode;
+        try {
+            xmlNode = xmlMapper.readTree(cxmlContent);
+        } catch (Exception e) {
+            log.error("Error converting cXML for Customer A", e);
+            throw new RuntimeException("Conversion failed for Customer A: " + e.getMessage());
+        }
+        
+        if ("ORDER".equalsIgnoreCase(documentType)) {
+            generator.writeObject(convertOrderWithCustomLogic(xmlNode));
+            return;
+        }
+        
+        generator.writeTree(xmlNode);
+    }
+
     private OrderData convertOrderWithCustomLogic(JsonNode xmlNode) {
         OrderData.OrderDataBuilder builder = OrderData.builder();
         
@@ -1,5 +1,6 @@
 package com.waters.punchout.converter.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
@@ -8,6 +9,7 @@ import com.waters.punchout.model.OrderData;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +38,25 @@ public class DefaultCxmlConverter implements CxmlConverter {
         }
     }
 
+    @Override
+    public void convert(String cxmlContent, String documentType, JsonGenerator generator) throws IOException {
+        JsonNode xmlNode;
+        try {
+            xmlNode = xmlMapper.readTree(cxmlContent);
+        } catch (Exception e) {
+            log.error("Error converting cXML for default customer", e);
+            throw new RuntimeException("Conversion failed: " + e.getMessage());
+        }
+        
+        if ("ORDER".equalsIgnoreCase(documentType)) {
+            generator.writeObject(convertOrder(xmlNode));
+            return;
+        }
+        
+        // Write the parsed tree directly instead of materialising it as a Map first
+        generator.writeTree(xmlNode);
+    }
+
     private OrderData convertOrder(JsonNode xmlNode) {
         OrderData.OrderDataBuilder builder = OrderData.builder();
         
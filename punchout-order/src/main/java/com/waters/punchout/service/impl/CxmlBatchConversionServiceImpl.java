@@ -0,0 +1,149 @@
+package com.waters.punchout.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.waters.punchout.model.ConversionResponse;
+import com.waters.punchout.model.CxmlRequest;
+import com.waters.punchout.service.CxmlBatchConversionService;
+import com.waters.punchout.service.CxmlConversionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+@Slf4j
+@Service
+public class CxmlBatchConversionServiceImpl implements CxmlBatchConversionService {
+
+    private final CxmlConversionService conversionService;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+
+    public CxmlBatchConversionServiceImpl(
+            CxmlConversionService conversionService,
+            ObjectMapper objectMapper,
+            @Value("${punchout.order.batch.parallelism:0}") int parallelism,
+            @Value("${punchout.order.batch.max-in-flight:0}") int maxInFlight) {
+        this.conversionService = conversionService;
+        // NDJSON needs one document per line, so never pretty-print converted data
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : threads * 4;
+
+        log.info("Initialized batch conversion pool: parallelism={}, maxInFlight={}",
+                threads, this.maxInFlight);
+    }
+
+    @Override
+    public int convertBatch(Iterator<CxmlRequest> requests, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        int count = 0;
+        int failures = 0;
+        RuntimeException inputError = null;
+
+        Deque<CompletableFuture<BatchItem>> inFlight = new ArrayDeque<>();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            try {
+                while (requests.hasNext()) {
+                    CxmlRequest request = requests.next();
+                    int index = count++;
+                    inFlight.addLast(CompletableFuture.supplyAsync(() -> convertItem(index, request), pool));
+
+                    // Bounded window: results are written strictly in input order
+                    if (inFlight.size() >= maxInFlight) {
+                        failures += writeItem(generator, inFlight.removeFirst().join());
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to read batch input after {} items: {}", count, e.getMessage());
+                inputError = e;
+            }
+
+            while (!inFlight.isEmpty()) {
+                failures += writeItem(generator, inFlight.removeFirst().join());
+            }
+
+            if (inputError != null) {
+                writeInputError(generator, count, inputError);
+            }
+        }
+
+        log.info("Batch conversion completed: items={}, failures={}, duration={}ms",
+                count, failures, System.currentTimeMillis() - startTime);
+        return count;
+    }
+
+    private BatchItem convertItem(int index, CxmlRequest request) {
+        TokenBuffer data = new TokenBuffer(objectMapper, false);
+        ConversionResponse response = conversionService.convertCxml(request, data);
+        return new BatchItem(index, response, data);
+    }
+
+    private int writeItem(JsonGenerator generator, BatchItem item) throws IOException {
+        ConversionResponse response = item.response;
+
+        generator.writeStartObject();
+        generator.writeNumberField("index", item.index);
+        generator.writeBooleanField("success", response.isSuccess());
+        generator.writeStringField("message", response.getMessage());
+        if (response.getCustomerId() != null) {
+            generator.writeStringField("customerId", response.getCustomerId());
+        }
+        if (response.getDocumentType() != null) {
+            generator.writeStringField("documentType", response.getDocumentType());
+        }
+        if (response.isSuccess()) {
+            generator.writeFieldName("data");
+            item.data.serialize(generator);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.flush();
+
+        return response.isSuccess() ? 0 : 1;
+    }
+
+    private void writeInputError(JsonGenerator generator, int index, RuntimeException error) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("index", index);
+        generator.writeBooleanField("success", false);
+        generator.writeStringField("message", "Invalid batch input: " + error.getMessage());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static final class BatchItem {
+        private final int index;
+        private final ConversionResponse response;
+        private final TokenBuffer data;
+
+        private BatchItem(int index, ConversionResponse response, TokenBuffer data) {
+            this.index = index;
+            this.response = response;
+            this.data = data;
+        }
+    }
+}
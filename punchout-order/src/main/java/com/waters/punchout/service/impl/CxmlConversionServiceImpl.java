@@ -1,5 +1,8 @@
 package com.waters.punchout.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.waters.punchout.converter.CxmlConverter;
 import com.waters.punchout.model.ConversionResponse;
 import com.waters.punchout.model.CxmlRequest;
@@ -7,6 +10,7 @@ import com.waters.punchout.service.CxmlConversionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -17,8 +21,10 @@ import java.util.stream.Collectors;
 public class CxmlConversionServiceImpl implements CxmlConversionService {
 
     private final Map<String, CxmlConverter> converterMap;
+    private final ObjectMapper objectMapper;
 
-    public CxmlConversionServiceImpl(List<CxmlConverter> converters) {
+    public CxmlConversionServiceImpl(List<CxmlConverter> converters, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
         this.converterMap = converters.stream()
                 .collect(Collectors.toMap(
                         converter -> converter.getCustomerId().toUpperCase(),
@@ -31,31 +37,49 @@ public class CxmlConversionServiceImpl implements CxmlConversionService {
 
     @Override
     public ConversionResponse convertCxml(CxmlRequest request) {
+        // The streaming overload does the work; the buffer turns its output back into data
+        TokenBuffer data = new TokenBuffer(objectMapper, false);
+        ConversionResponse response = convertCxml(request, data);
+        if (response.isSuccess()) {
+            try {
+                response.setData(data.asParser().readValueAsTree());
+            } catch (IOException e) {
+                log.error("Could not read converted data for customer: {}", request.getCustomerId(), e);
+                response.setSuccess(false);
+                response.setMessage("Conversion failed: " + e.getMessage());
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public ConversionResponse convertCxml(CxmlRequest request, JsonGenerator dataGenerator) {
         try {
             validateRequest(request);
             
             CxmlConverter converter = getConverter(request.getCustomerId());
             
-            Object jsonData = converter.convert(
+            converter.convert(
                     request.getCxmlContent(), 
-                    request.getDocumentType()
+                    request.getDocumentType(), 
+                    dataGenerator
             );
             
             return ConversionResponse.builder()
                     .success(true)
                     .message("Conversion successful")
-                    .data(jsonData)
                     .customerId(request.getCustomerId())
                     .documentType(request.getDocumentType())
                     .build();
                     
         } catch (Exception e) {
-            log.error("Conversion failed for customer: {}", request.getCustomerId(), e);
+            String customerId = request != null ? request.getCustomerId() : null;
+            log.error("Conversion failed for customer: {}", customerId, e);
             return ConversionResponse.builder()
                     .success(false)
                     .message("Conversion failed: " + e.getMessage())
-                    .customerId(request.getCustomerId())
-                    .documentType(request.getDocumentType())
+                    .customerId(customerId)
+                    .documentType(request != null ? request.getDocumentType() : null)
                     .build();
         }
     }
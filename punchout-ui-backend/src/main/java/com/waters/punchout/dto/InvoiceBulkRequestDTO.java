@@ -0,0 +1,18 @@
+package com.waters.punchout.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBulkRequestDTO {
+    
+    private String environment;
+    private String customerId;
+    private String source;
+    private List<String> invoices;
+}
@@ -0,0 +1,22 @@
+package com.waters.punchout.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBulkResultDTO {
+    
+    private int received;
+    private int inserted;
+    private int updated;
+    private int failed;
+    private long durationMs;
+    private List<Map<String, Object>> errors = new ArrayList<>();
+}
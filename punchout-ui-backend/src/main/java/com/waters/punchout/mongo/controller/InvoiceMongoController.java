@@ -1,5 +1,7 @@
 package com.waters.punchout.mongo.controller;
 
+import com.waters.punchout.dto.InvoiceBulkRequestDTO;
+import com.waters.punchout.dto.InvoiceBulkResultDTO;
 import com.waters.punchout.dto.InvoiceDTO;
 import com.waters.punchout.dto.NetworkRequestDTO;
 import com.waters.punchout.mongo.service.InvoiceMongoService;
@@ -54,6 +56,15 @@ public class InvoiceMongoController {
         return ResponseEntity.ok(invoices);
     }
     
+    @PostMapping("/bulk")
+    public ResponseEntity<InvoiceBulkResultDTO> ingestInvoices(@RequestBody InvoiceBulkRequestDTO request) {
+        int count = request.getInvoices() != null ? request.getInvoices().size() : 0;
+        log.info("POST /api/v1/invoices/bulk - invoices={}, environment={}", count, request.getEnvironment());
+        
+        InvoiceBulkResultDTO result = invoiceService.ingestInvoices(request);
+        return ResponseEntity.ok(result);
+    }
+    
     @GetMapping("/{invoiceNumber}")
     public ResponseEntity<InvoiceDTO> getInvoiceByNumber(@PathVariable String invoiceNumber) {
         log.info("GET /api/v1/invoices/{}", invoiceNumber);
@@ -1,13 +1,35 @@
 package com.waters.punchout.mongo.service;
 
+import com.mongodb.bulk.BulkWriteResult;
+import com.waters.punchout.dto.InvoiceBulkRequestDTO;
+import com.waters.punchout.dto.InvoiceBulkResultDTO;
 import com.waters.punchout.dto.InvoiceDTO;
+import com.waters.punchout.invoice.InvoiceConverter;
+import com.waters.punchout.model.InvoiceData;
 import com.waters.punchout.mongo.entity.InvoiceDocument;
 import com.waters.punchout.mongo.repository.InvoiceMongoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,6 +38,24 @@ import java.util.stream.Collectors;
 public class InvoiceMongoService {
     
     private final InvoiceMongoRepository repository;
+    private final InvoiceConverter invoiceConverter;
+    private final MongoTemplate mongoTemplate;
+    
+    @Value("${invoice.bulk.batch-size:500}")
+    private int bulkBatchSize;
+    
+    /**
+     * Upserts by invoice number rely on this index to stay unique under concurrent ingests.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        try {
+            mongoTemplate.indexOps(InvoiceDocument.class).ensureIndex(
+                    new Index().on("invoiceNumber", Sort.Direction.ASC).unique().named("idx_invoiceNumber"));
+        } catch (DataAccessException e) {
+            log.warn("Could not ensure unique invoiceNumber index on invoices: {}", e.getMessage());
+        }
+    }
     
     public List<InvoiceDTO> getAllInvoices() {
         log.info("Fetching all invoices");
@@ -52,6 +92,182 @@ public class InvoiceMongoService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Parses the cXML invoices and upserts them by invoice number, one unordered
+     * bulk write per batch. Parse failures are reported per index and do not stop the batch.
+     * Re-ingesting an invoice updates its parsed fields only; status, receivedDate and
+     * fields set after ingestion (e.g. paidAt) are kept.
+     */
+    public InvoiceBulkResultDTO ingestInvoices(InvoiceBulkRequestDTO request) {
+        long startTime = System.currentTimeMillis();
+        List<String> invoices = request.getInvoices() != null ? request.getInvoices() : List.of();
+        int batchSize = Math.max(1, bulkBatchSize);
+        
+        InvoiceBulkResultDTO result = new InvoiceBulkResultDTO();
+        result.setReceived(invoices.size());
+        
+        List<InvoiceDocument> batch = new ArrayList<>(Math.min(batchSize, invoices.size()));
+        List<Integer> batchIndexes = new ArrayList<>(Math.min(batchSize, invoices.size()));
+        
+        for (int i = 0; i < invoices.size(); i++) {
+            try {
+                InvoiceData invoice = invoiceConverter.convertInvoice(invoices.get(i));
+                batch.add(toDocument(invoice, request));
+                batchIndexes.add(i);
+            } catch (RuntimeException e) {
+                log.warn("Skipping invoice {} in bulk request: {}", i, e.getMessage());
+                addError(result, i, null, e.getMessage());
+            }
+            
+            if (batch.size() >= batchSize) {
+                writeBatch(batch, batchIndexes, result);
+            }
+        }
+        writeBatch(batch, batchIndexes, result);
+        
+        result.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("Bulk invoice ingestion completed: received={}, inserted={}, updated={}, failed={}, duration={}ms",
+                result.getReceived(), result.getInserted(), result.getUpdated(), result.getFailed(), result.getDurationMs());
+        return result;
+    }
+    
+    private void writeBatch(List<InvoiceDocument> batch, List<Integer> batchIndexes, InvoiceBulkResultDTO result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        LocalDateTime receivedDate = LocalDateTime.now();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InvoiceDocument.class);
+        for (InvoiceDocument doc : batch) {
+            Query query = Query.query(Criteria.where("invoiceNumber").is(doc.getInvoiceNumber()));
+            operations.upsert(query, toUpdate(doc, receivedDate));
+        }
+        
+        try {
+            countWrites(operations.execute(), result);
+        } catch (BulkOperationException e) {
+            countWrites(e.getResult(), result);
+            e.getErrors().forEach(error -> addError(result, batchIndexes.get(error.getIndex()),
+                    batch.get(error.getIndex()).getInvoiceNumber(), error.getMessage()));
+        }
+        
+        batch.clear();
+        batchIndexes.clear();
+    }
+    
+    private Update toUpdate(InvoiceDocument doc, LocalDateTime receivedDate) {
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(doc, fields);
+        fields.remove("_id");
+        
+        Update update = new Update();
+        fields.forEach(update::set);
+        update.setOnInsert("status", "RECEIVED");
+        update.setOnInsert("receivedDate", receivedDate);
+        return update;
+    }
+    
+    private void countWrites(BulkWriteResult writeResult, InvoiceBulkResultDTO result) {
+        result.setInserted(result.getInserted() + writeResult.getUpserts().size());
+        result.setUpdated(result.getUpdated() + writeResult.getMatchedCount());
+    }
+    
+    private void addError(InvoiceBulkResultDTO result, int index, String invoiceNumber, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("index", index);
+        if (invoiceNumber != null) {
+            error.put("invoiceNumber", invoiceNumber);
+        }
+        error.put("message", message);
+        result.getErrors().add(error);
+        result.setFailed(result.getFailed() + 1);
+    }
+    
+    private InvoiceDocument toDocument(InvoiceData invoice, InvoiceBulkRequestDTO request) {
+        InvoiceData.Header header = invoice.getHeader();
+        InvoiceData.Summary summary = invoice.getSummary();
+        if (header.getInvoiceNumber() == null || header.getInvoiceNumber().isEmpty()) {
+            throw new IllegalArgumentException("Invoice is missing invoiceID");
+        }
+        
+        InvoiceDocument doc = new InvoiceDocument();
+        doc.setInvoiceNumber(header.getInvoiceNumber());
+        doc.setEnvironment(request.getEnvironment());
+        doc.setCustomerId(request.getCustomerId());
+        doc.setSource(request.getSource() != null ? request.getSource() : "CXML");
+        doc.setInvoiceDate(header.getInvoiceDate());
+        doc.setDueDate(dueDate(header));
+        doc.setPaymentTerms(header.getPaymentTerms());
+        doc.setNotes(header.getComments());
+        doc.setShipTo(header.getShipTo());
+        doc.setBillTo(header.getBillTo());
+        if (header.getRemitTo() != null) {
+            doc.setSupplierName((String) header.getRemitTo().get("name"));
+        }
+        
+        BigDecimal lineTotal = BigDecimal.ZERO;
+        List<Map<String, Object>> lineItems = new ArrayList<>(invoice.getLineItems().size());
+        for (InvoiceData.LineItem item : invoice.getLineItems()) {
+            if (doc.getOrderId() == null && item.getOrderId() != null) {
+                doc.setOrderId(item.getOrderId());
+                doc.setPoNumber(item.getOrderId());
+            }
+            if (doc.getCurrency() == null) {
+                doc.setCurrency(item.getCurrency());
+            }
+            if (item.getExtendedAmount() != null) {
+                lineTotal = lineTotal.add(item.getExtendedAmount());
+            }
+            
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("lineNumber", item.getLineNumber());
+            line.put("partNumber", item.getSupplierPartId());
+            line.put("description", item.getDescription());
+            line.put("quantity", item.getQuantity());
+            line.put("unitPrice", item.getUnitPrice());
+            line.put("extendedAmount", item.getExtendedAmount());
+            lineItems.add(line);
+        }
+        doc.setLineItems(lineItems);
+        
+        if (summary != null) {
+            doc.setSubtotal(summary.getSubtotal());
+            doc.setTaxAmount(summary.getTaxAmount());
+            doc.setShippingAmount(summary.getShippingAmount());
+            doc.setInvoiceTotal(firstNonNull(summary.getDueAmount(), summary.getNetAmount(), summary.getGrossAmount()));
+            if (summary.getCurrency() != null) {
+                doc.setCurrency(summary.getCurrency());
+            }
+        }
+        if (doc.getInvoiceTotal() == null && !lineItems.isEmpty()) {
+            doc.setInvoiceTotal(lineTotal);
+        }
+        
+        doc.setProcessedAt(LocalDateTime.now());
+        return doc;
+    }
+    
+    private LocalDateTime dueDate(InvoiceData.Header header) {
+        String terms = header.getPaymentTerms();
+        if (header.getInvoiceDate() == null || terms == null || !terms.startsWith("Net ")) {
+            return null;
+        }
+        try {
+            return header.getInvoiceDate().plusDays(Long.parseLong(terms.substring(4).trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static BigDecimal firstNonNull(BigDecimal... values) {
+        for (BigDecimal value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
     private InvoiceDTO convertToDTO(InvoiceDocument doc) {
         InvoiceDTO dto = new InvoiceDTO();
         dto.setId(doc.getId());
@@ -92,6 +92,23 @@ create_index "punchout_sessions" \
 
 verify_indexes "punchout_sessions"
 
+echo ""
+echo "=========================================="
+echo "1b. Creating indexes for punchout (active session lookups)"
+echo "=========================================="
+
+create_index "punchout" \
+    '{ "sessionKey": 1 }' \
+    "idx_sessionKey" \
+    ""
+
+create_index "punchout" \
+    '{ "buyerCookie": 1, "sessionDate": -1 }' \
+    "idx_buyerCookie_sessionDate" \
+    ""
+
+verify_indexes "punchout"
+
 echo ""
 echo "=========================================="
 echo "2. Creating indexes for customer_onboarding"
@@ -161,8 +178,8 @@ echo "6. Creating indexes for invoices"
 echo "=========================================="
 
 create_index "invoices" \
-    '{ "invoiceId": 1 }' \
-    "idx_invoiceId" \
+    '{ "invoiceNumber": 1 }' \
+    "idx_invoiceNumber" \
     "unique: true"
 
 create_index "invoices" \
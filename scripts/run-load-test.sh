@@ -0,0 +1,52 @@
+#!/bin/bash
+
+set -e
+
+echo "=========================================="
+echo "PunchOut Gateway Load Test"
+echo "=========================================="
+echo ""
+
+MOCK_URL="${MOCK_URL:-http://localhost:8082}"
+GATEWAY_URL="${GATEWAY_URL:-http://localhost:9090}"
+MODE="${MODE:-CLOSED}"                 # CLOSED (workers) or RATE (requests/second)
+STEPS="${STEPS:-4,8,16,32,64}"         # levels to step through
+WARMUP_SECONDS="${WARMUP_SECONDS:-10}"
+DURATION_SECONDS="${DURATION_SECONDS:-60}"
+ORDER_PERCENT="${ORDER_PERCENT:-20}"
+REPORT_FILE="${REPORT_FILE:-load-test-$(date +%Y%m%d-%H%M%S).json}"
+
+echo "Mock service: ${MOCK_URL}"
+echo "Gateway:      ${GATEWAY_URL}"
+echo "Mode:         ${MODE}, levels ${STEPS}"
+echo ""
+
+RUN=$(curl -sf -X POST "${MOCK_URL}/api/v1/loadtest/runs" \
+    -H "Content-Type: application/json" \
+    -d "{\"gatewayUrl\":\"${GATEWAY_URL}\",\"mode\":\"${MODE}\",\"steps\":[${STEPS}],\"warmupSeconds\":${WARMUP_SECONDS},\"durationSeconds\":${DURATION_SECONDS},\"orderPercent\":${ORDER_PERCENT}}")
+RUN_ID=$(echo "${RUN}" | python3 -c 'import json,sys; print(json.load(sys.stdin)["runId"])')
+echo "Started run ${RUN_ID}"
+
+STATUS=RUNNING
+while [ "${STATUS}" = "RUNNING" ]; do
+    sleep 5
+    curl -sf "${MOCK_URL}/api/v1/loadtest/runs/${RUN_ID}" > "${REPORT_FILE}"
+    STATUS=$(python3 -c 'import json,sys; print(json.load(open(sys.argv[1]))["status"])' "${REPORT_FILE}")
+    echo -n "."
+done
+echo ""
+
+python3 - "${REPORT_FILE}" <<'PY'
+import json, sys
+report = json.load(open(sys.argv[1]))
+print("Run %s: %s" % (report["runId"], report["status"]))
+print("%8s %10s %10s %10s %10s %10s  %s" % ("level", "req/s", "p50 ms", "p99 ms", "p999 ms", "errors", "breakdown"))
+for step in report["steps"]:
+    latency = step["latency"]
+    print("%8d %10.1f %10.2f %10.2f %10.2f %10d  %s" % (step["level"], step["throughput"], latency["p50Ms"],
+          latency["p99Ms"], latency["p999Ms"], step["errors"], step["errorBreakdown"] or ""))
+print("Peak throughput at level %s" % report["peakThroughputLevel"])
+PY
+
+echo ""
+echo "Full report (per endpoint, customer and environment): ${REPORT_FILE}"